@@ -0,0 +1,1328 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.ServiceWorkerCache;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Generates a Spring controller that answers many GET requests in one round trip, and decides which routes the
+ * generated services send through it.
+ *
+ * <p>The generated services collect the requests that are made in the same tick, see the batch function in
+ * service.ts, and send them together. The controller dispatches every sub-request through the DispatcherServlet,
+ * runs them in parallel and streams each response back as one JSON line as soon as it is done. Every sub-request can
+ * be conditional and every line has its own status and ETag, so that a batched read can still be answered with 304.</p>
+ *
+ * <p>Only reads are batched, since mutations must keep their order and their own error handling. Routes with a
+ * {@code max-age} are left alone, the browser cache can answer them without any round trip, and so are the
+ * routes that the service worker caches, the authentication routes, streams and file downloads.</p>
+ */
+public class BatchControllerGenerator {
+    /**
+     * Name of the generated controller class, it is in the same package as the other generated backend code.
+     */
+    public static final String CLASS_NAME = "BatchController";
+
+    /**
+     * Path of the batch route, it has to match BATCH_PATH in service.ts
+     */
+    public static final String PATH = "api/v1/batch";
+
+    /**
+     * Most sub-requests in one batch, it has to match MAX_BATCH_SIZE in service.ts
+     */
+    public static final int MAX_REQUESTS = 20;
+
+    /**
+     * How many sub-requests of all batches run at the same time, the others wait for a thread.
+     */
+    private static final int PARALLELISM = 8;
+
+    /**
+     * Checks if the generated services send the requests of a route through the batch controller.
+     */
+    public static boolean isBatchable(EndpointCatalog.Route route) {
+        var method = route.method();
+        return route.isQuery()
+            && EndpointGenerator.getStreamingResponse(method) == null
+            && !EndpointGenerator.isBinaryType(method.getReturnType())
+            && !CachePolicyGenerator.isAuthRoute(route)
+            && !CachePolicyGenerator.getPolicy(route)
+            .cacheControl()
+            .contains("max-age")
+            && ServiceWorkerRouteGenerator.getStrategy(route) == ServiceWorkerCache.Strategy.NETWORK_ONLY;
+    }
+
+    /**
+     * Generates the Java code of the controller.
+     *
+     * @param catalog     all endpoints.
+     * @param packageName the package of the generated class.
+     */
+    public static CodeWriter getCode(EndpointCatalog catalog, String packageName) {
+        var code = new CodeWriter();
+        code.writeLine("package ", packageName, ";");
+        code.writeLine();
+        code.writeLine("import com.fasterxml.jackson.databind.ObjectMapper;");
+        code.writeLine("import org.springframework.beans.factory.ObjectProvider;");
+        code.writeLine("import org.springframework.http.HttpStatus;");
+        code.writeLine("import org.springframework.http.InvalidMediaTypeException;");
+        code.writeLine("import org.springframework.http.MediaType;");
+        code.writeLine("import org.springframework.http.ResponseEntity;");
+        code.writeLine("import org.springframework.security.core.context.SecurityContextHolder;");
+        code.writeLine("import org.springframework.security.web.access.WebInvocationPrivilegeEvaluator;");
+        code.writeLine("import org.springframework.util.DigestUtils;");
+        code.writeLine("import org.springframework.web.bind.annotation.PostMapping;");
+        code.writeLine("import org.springframework.web.bind.annotation.RequestBody;");
+        code.writeLine("import org.springframework.web.bind.annotation.RequestMapping;");
+        code.writeLine("import org.springframework.web.bind.annotation.RestController;");
+        code.writeLine("import org.springframework.web.filter.ShallowEtagHeaderFilter;");
+        code.writeLine("import org.springframework.web.server.ResponseStatusException;");
+        code.writeLine("import org.springframework.web.servlet.DispatcherServlet;");
+        code.writeLine("import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;");
+        code.writeLine();
+        code.writeLine("import javax.annotation.PreDestroy;");
+        code.writeLine("import javax.servlet.AsyncContext;");
+        code.writeLine("import javax.servlet.DispatcherType;");
+        code.writeLine("import javax.servlet.ReadListener;");
+        code.writeLine("import javax.servlet.RequestDispatcher;");
+        code.writeLine("import javax.servlet.ServletContext;");
+        code.writeLine("import javax.servlet.ServletException;");
+        code.writeLine("import javax.servlet.ServletInputStream;");
+        code.writeLine("import javax.servlet.ServletOutputStream;");
+        code.writeLine("import javax.servlet.ServletRequest;");
+        code.writeLine("import javax.servlet.ServletResponse;");
+        code.writeLine("import javax.servlet.WriteListener;");
+        code.writeLine("import javax.servlet.http.Cookie;");
+        code.writeLine("import javax.servlet.http.HttpServletRequest;");
+        code.writeLine("import javax.servlet.http.HttpServletResponse;");
+        code.writeLine("import javax.servlet.http.HttpSession;");
+        code.writeLine("import javax.servlet.http.HttpUpgradeHandler;");
+        code.writeLine("import javax.servlet.http.Part;");
+        code.writeLine("import java.io.BufferedReader;");
+        code.writeLine("import java.io.ByteArrayOutputStream;");
+        code.writeLine("import java.io.IOException;");
+        code.writeLine("import java.io.InterruptedIOException;");
+        code.writeLine("import java.io.OutputStreamWriter;");
+        code.writeLine("import java.io.PrintWriter;");
+        code.writeLine("import java.io.StringReader;");
+        code.writeLine("import java.net.URLDecoder;");
+        code.writeLine("import java.nio.charset.Charset;");
+        code.writeLine("import java.nio.charset.StandardCharsets;");
+        code.writeLine("import java.security.Principal;");
+        code.writeLine("import java.time.Instant;");
+        code.writeLine("import java.time.ZoneOffset;");
+        code.writeLine("import java.time.ZonedDateTime;");
+        code.writeLine("import java.time.format.DateTimeFormatter;");
+        code.writeLine("import java.time.format.DateTimeParseException;");
+        code.writeLine("import java.util.ArrayList;");
+        code.writeLine("import java.util.Arrays;");
+        code.writeLine("import java.util.Collection;");
+        code.writeLine("import java.util.Collections;");
+        code.writeLine("import java.util.Enumeration;");
+        code.writeLine("import java.util.HashMap;");
+        code.writeLine("import java.util.LinkedHashMap;");
+        code.writeLine("import java.util.List;");
+        code.writeLine("import java.util.Locale;");
+        code.writeLine("import java.util.Map;");
+        code.writeLine("import java.util.TreeMap;");
+        code.writeLine("import java.util.concurrent.ConcurrentHashMap;");
+        code.writeLine("import java.util.concurrent.ExecutionException;");
+        code.writeLine("import java.util.concurrent.ExecutorCompletionService;");
+        code.writeLine("import java.util.concurrent.ExecutorService;");
+        code.writeLine("import java.util.concurrent.Executors;");
+        code.writeLine("import java.util.concurrent.Future;");
+        code.writeLine("import java.util.concurrent.Phaser;");
+        code.writeLine("import java.util.function.Supplier;");
+        code.writeLine("import java.util.regex.Pattern;");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Answers many GET requests in one round trip, see the batch function in service.ts.");
+        code.writeLine(" *");
+        code.writeLine(" * <p>Every sub-request goes through the DispatcherServlet like a normal request, so it gets the same argument");
+        code.writeLine(" * resolution, validation, interceptors and exception handlers. Servlet filters don't run for sub-requests, so the");
+        code.writeLine(" * URL rules of Spring Security are checked here, and the ETags are added here. The sub-requests run in parallel, and");
+        code.writeLine(" * every response is written as one JSON line as soon as it is done, so a slow sub-request doesn't hold back the others.</p>");
+        code.writeLine(" */");
+        code.writeLine("@RestController");
+        code.writeLine("@RequestMapping(\"/", PATH, "\")");
+        code.writeLine("public class ", CLASS_NAME, " {");
+        code.beginIndent();
+
+        code.writeLine("private static final int MAX_REQUESTS = ", String.valueOf(MAX_REQUESTS), ";");
+        code.writeLine("private static final int PARALLELISM = ", String.valueOf(PARALLELISM), ";");
+        code.writeLine("/**");
+        code.writeLine(" * The routes that can be batched. Others would not be sent in a batch by the generated services anyway.");
+        code.writeLine(" */");
+        code.writeLine("private static final List<BatchRoute> ROUTES = List.of(");
+        code.beginIndent();
+        // Routes with the same path only get an ETag if all of them get one
+        var routes = new LinkedHashMap<String, Boolean>();
+        catalog.getRoutes()
+            .stream()
+            .filter(BatchControllerGenerator::isBatchable)
+            .forEach(v -> routes.merge(v.getPathPattern(), CachePolicyGenerator.getPolicy(v)
+                .etag(), Boolean::logicalAnd));
+        var routeCode = routes.entrySet()
+            .stream()
+            .map(v -> "new BatchRoute(Pattern.compile(" + StringUtils.toJsonString(v.getKey()) + "), " + v.getValue() + ")")
+            .toList();
+        for (int i = 0; i < routeCode.size(); i++) {
+            code.writeLine(routeCode.get(i), i < routeCode.size() - 1 ? "," : "");
+        }
+        code.endIndent();
+        code.writeLine(");");
+        code.writeLine("/**");
+        code.writeLine(" * Parts of a path that a firewall would reject, the sub-requests don't pass the firewall.");
+        code.writeLine(" */");
+        code.writeLine("private static final List<String> UNSAFE_PATH_PARTS = List.of(\"..\", \"//\", \"%2e\", \"%2f\", \"%5c\", \"%25\", \"%3b\", \"%00\");");
+        code.writeLine();
+        code.writeLine("private final DispatcherServlet dispatcherServlet;");
+        code.writeLine("private final ObjectMapper objectMapper;");
+        code.writeLine("private final WebInvocationPrivilegeEvaluator privilegeEvaluator;");
+        code.writeLine("private final ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM, runnable -> {");
+        code.beginIndent();
+        code.writeLine("var thread = new Thread(runnable, \"batch-request\");");
+        code.writeLine("thread.setDaemon(true);");
+        code.writeLine("return thread;");
+        code.endIndent();
+        code.writeLine("});");
+        code.writeLine();
+        code.writeLine("public BatchController(DispatcherServlet dispatcherServlet, ObjectMapper objectMapper, ObjectProvider<WebInvocationPrivilegeEvaluator> privilegeEvaluator) {");
+        code.beginIndent();
+        code.writeLine("this.dispatcherServlet = dispatcherServlet;");
+        code.writeLine("this.objectMapper = objectMapper;");
+        code.writeLine("this.privilegeEvaluator = privilegeEvaluator.getIfAvailable();");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * The sub-requests, every path is relative to the context path, like \"api/v1/events/1?page=0\".");
+        code.writeLine(" */");
+        code.writeLine("public record BatchRequest(List<SubRequest> requests) {");
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * One sub-request, with the validators of the response that the client already has, if any.");
+        code.writeLine(" */");
+        code.writeLine("public record SubRequest(String path, String ifNoneMatch, String ifModifiedSince) {");
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * One line of the response, the index is the position of the sub-request. A 304 has an empty body.");
+        code.writeLine(" */");
+        code.writeLine("public record SubResponse(int index, int status, String contentType, String etag, String lastModified, String body) {");
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * A route that can be batched, and whether the ETag filter would add an ETag to its responses.");
+        code.writeLine(" */");
+        code.writeLine("private record BatchRoute(Pattern pattern, boolean etag) {");
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * A copy of everything that the sub-requests need from the real request. The real request is recycled once the");
+        code.writeLine(" * response is done, so the sub-requests never touch it.");
+        code.writeLine(" */");
+        code.writeLine("private record ParentRequest(");
+        code.beginIndent();
+        code.beginIndent();
+        code.writeLine("String contextPath,");
+        code.writeLine("String serverUrl,");
+        code.writeLine("Map<String, List<String>> headers,");
+        code.writeLine("List<Locale> locales,");
+        code.writeLine("Map<String, Object> attributes,");
+        code.writeLine("Cookie[] cookies,");
+        code.writeLine("Principal userPrincipal,");
+        code.writeLine("String remoteUser,");
+        code.writeLine("String authType,");
+        code.writeLine("HttpSession session,");
+        code.writeLine("String requestedSessionId,");
+        code.writeLine("boolean isRequestedSessionIdValid,");
+        code.writeLine("boolean isRequestedSessionIdFromCookie,");
+        code.writeLine("ServletContext servletContext,");
+        code.writeLine("String scheme,");
+        code.writeLine("String serverName,");
+        code.writeLine("int serverPort,");
+        code.writeLine("boolean isSecure,");
+        code.writeLine("String protocol,");
+        code.writeLine("String remoteAddr,");
+        code.writeLine("String remoteHost,");
+        code.writeLine("int remotePort,");
+        code.writeLine("String localName,");
+        code.writeLine("String localAddr,");
+        code.writeLine("int localPort");
+        code.endIndent();
+        code.writeLine(") {");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@PreDestroy");
+        code.writeLine("public void shutdown() {");
+        code.beginIndent();
+        code.writeLine("executor.shutdownNow();");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@PostMapping");
+        code.writeLine("public ResponseEntity<StreamingResponseBody> batch(@RequestBody BatchRequest batchRequest, HttpServletRequest request, HttpServletResponse response) {");
+        code.beginIndent();
+        code.writeLine("var subRequests = batchRequest.requests();");
+        code.writeLine("if (subRequests == null || subRequests.isEmpty() || subRequests.size() > MAX_REQUESTS) {");
+        code.beginIndent();
+        code.writeLine("throw new ResponseStatusException(HttpStatus.BAD_REQUEST, \"Expected 1 to \" + MAX_REQUESTS + \" requests\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("var parentRequest = toParentRequest(request);");
+        code.writeLine("var securityContext = SecurityContextHolder.getContext();");
+        code.writeLine("var completionService = new ExecutorCompletionService<SubResponse>(executor);");
+        code.writeLine("var futures = new ArrayList<Future<SubResponse>>();");
+        code.writeLine("// Every running sub-request is a party, so that the batch can wait until none of them is running anymore");
+        code.writeLine("var running = new Phaser(1);");
+        code.writeLine("for (int i = 0; i < subRequests.size(); i++) {");
+        code.beginIndent();
+        code.writeLine("int index = i;");
+        code.writeLine("var subRequest = subRequests.get(i);");
+        code.writeLine("futures.add(completionService.submit(() -> {");
+        code.beginIndent();
+        code.writeLine("if (running.register() < 0) {");
+        code.beginIndent();
+        code.writeLine("// The batch is already done, nobody reads this response");
+        code.writeLine("return new SubResponse(index, HttpStatus.SERVICE_UNAVAILABLE.value(), null, null, null, \"\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("SecurityContextHolder.setContext(securityContext);");
+        code.writeLine("try {");
+        code.beginIndent();
+        code.writeLine("return dispatch(parentRequest, index, subRequest);");
+        code.endIndent();
+        code.writeLine("} catch (Exception e) {");
+        code.beginIndent();
+        code.writeLine("return new SubResponse(index, HttpStatus.INTERNAL_SERVER_ERROR.value(), null, null, null, \"\");");
+        code.endIndent();
+        code.writeLine("} finally {");
+        code.beginIndent();
+        code.writeLine("SecurityContextHolder.clearContext();");
+        code.writeLine("running.arriveAndDeregister();");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("// Otherwise the ETag filter would hold back the lines until all of them are done");
+        code.writeLine("ShallowEtagHeaderFilter.disableContentCaching(request);");
+        code.writeLine("StreamingResponseBody body = outputStream -> {");
+        code.beginIndent();
+        code.writeLine("try {");
+        code.beginIndent();
+        code.writeLine("for (int i = 0; i < futures.size(); i++) {");
+        code.beginIndent();
+        code.writeLine("outputStream.write(objectMapper.writeValueAsBytes(completionService.take()");
+        code.beginIndent();
+        code.writeLine(".get()));");
+        code.endIndent();
+        code.writeLine("outputStream.write('\\n');");
+        code.writeLine("outputStream.flush();");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("} catch (InterruptedException e) {");
+        code.beginIndent();
+        code.writeLine("Thread.currentThread()");
+        code.beginIndent();
+        code.writeLine(".interrupt();");
+        code.endIndent();
+        code.writeLine("throw new InterruptedIOException(\"Interrupted while waiting for the sub-requests\");");
+        code.endIndent();
+        code.writeLine("} catch (ExecutionException e) {");
+        code.beginIndent();
+        code.writeLine("throw new IOException(e.getCause());");
+        code.endIndent();
+        code.writeLine("} finally {");
+        code.beginIndent();
+        code.writeLine("// If the client is gone, nobody needs the remaining responses");
+        code.writeLine("futures.forEach(v -> v.cancel(true));");
+        code.writeLine("// Cancelling only interrupts, the batch is done once no sub-request is running anymore");
+        code.writeLine("running.awaitAdvance(running.arriveAndDeregister());");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("};");
+        code.writeLine("return ResponseEntity.ok()");
+        code.beginIndent();
+        code.writeLine(".contentType(MediaType.parseMediaType(\"application/x-ndjson\"))");
+        code.writeLine(".header(\"Cache-Control\", \"no-store\")");
+        code.writeLine(".body(body);");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private SubResponse dispatch(ParentRequest parentRequest, int index, SubRequest subRequest) throws Exception {");
+        code.beginIndent();
+        code.writeLine("if (subRequest == null || subRequest.path() == null) {");
+        code.beginIndent();
+        code.writeLine("return new SubResponse(index, HttpStatus.BAD_REQUEST.value(), null, null, null, \"\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("String pathAndQuery = subRequest.path();");
+        code.writeLine("int queryStart = pathAndQuery.indexOf('?');");
+        code.writeLine("String path = \"/\" + (queryStart == -1 ? pathAndQuery : pathAndQuery.substring(0, queryStart));");
+        code.writeLine("String query = queryStart == -1 ? null : pathAndQuery.substring(queryStart + 1);");
+        code.writeLine("var route = isSafePath(path) ? findRoute(path) : null;");
+        code.writeLine("if (route == null) {");
+        code.beginIndent();
+        code.writeLine("return new SubResponse(index, HttpStatus.NOT_FOUND.value(), null, null, null, \"\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("if (privilegeEvaluator != null && !privilegeEvaluator.isAllowed(parentRequest.contextPath(), path, \"GET\", SecurityContextHolder.getContext()");
+        code.beginIndent();
+        code.writeLine(".getAuthentication())) {");
+        code.writeLine("return new SubResponse(index, HttpStatus.FORBIDDEN.value(), null, null, null, \"\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("SubHttpServletRequest servletRequest;");
+        code.writeLine("try {");
+        code.beginIndent();
+        code.writeLine("servletRequest = new SubHttpServletRequest(parentRequest, path, query, subRequest);");
+        code.endIndent();
+        code.writeLine("} catch (IllegalArgumentException e) {");
+        code.beginIndent();
+        code.writeLine("// A malformed query");
+        code.writeLine("return new SubResponse(index, HttpStatus.BAD_REQUEST.value(), null, null, null, \"\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("var servletResponse = new CapturedHttpServletResponse();");
+        code.writeLine("dispatcherServlet.service(servletRequest, servletResponse);");
+        code.writeLine("if (route.etag()) {");
+        code.beginIndent();
+        code.writeLine("servletResponse.addShallowEtag(subRequest.ifNoneMatch());");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return servletResponse.toSubResponse(index);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private static BatchRoute findRoute(String path) {");
+        code.beginIndent();
+        code.writeLine("return ROUTES.stream()");
+        code.beginIndent();
+        code.writeLine(".filter(v -> v.pattern()");
+        code.beginIndent();
+        code.writeLine(".matcher(path)");
+        code.writeLine(".matches())");
+        code.endIndent();
+        code.writeLine(".findFirst()");
+        code.writeLine(".orElse(null);");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private static boolean isSafePath(String path) {");
+        code.beginIndent();
+        code.writeLine("String lowerCasePath = path.toLowerCase(Locale.ROOT);");
+        code.writeLine("return path.chars()");
+        code.beginIndent();
+        code.writeLine(".allMatch(c -> c < 128 && (Character.isLetterOrDigit(c) || \"-._~!$&'()*+,=:@/%\".indexOf(c) != -1))");
+        code.writeLine("&& UNSAFE_PATH_PARTS.stream()");
+        code.writeLine(".noneMatch(lowerCasePath::contains);");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private static ParentRequest toParentRequest(HttpServletRequest request) {");
+        code.beginIndent();
+        code.writeLine("var headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);");
+        code.writeLine("for (String name : Collections.list(request.getHeaderNames())) {");
+        code.beginIndent();
+        code.writeLine("String lowerCaseName = name.toLowerCase(Locale.ROOT);");
+        code.writeLine("// The sub-requests have no body, and every sub-request has its own conditional headers");
+        code.writeLine("if (!lowerCaseName.startsWith(\"content-\") && !lowerCaseName.startsWith(\"if-\") && !lowerCaseName.equals(\"transfer-encoding\")) {");
+        code.beginIndent();
+        code.writeLine("headers.put(name, Collections.list(request.getHeaders(name)));");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("headers.put(\"Accept\", List.of(MediaType.APPLICATION_JSON_VALUE));");
+        code.writeLine("String requestUrl = request.getRequestURL()");
+        code.beginIndent();
+        code.writeLine(".toString();");
+        code.endIndent();
+        code.writeLine("String serverUrl = requestUrl.substring(0, requestUrl.length() - request.getRequestURI()");
+        code.beginIndent();
+        code.writeLine(".length());");
+        code.endIndent();
+        code.writeLine("// Only the attributes of the application, the ones of Spring and of the servlet container describe the batch request");
+        code.writeLine("var attributes = new HashMap<String, Object>();");
+        code.writeLine("for (String name : Collections.list(request.getAttributeNames())) {");
+        code.beginIndent();
+        code.writeLine("var value = request.getAttribute(name);");
+        code.writeLine("if (value != null && !name.startsWith(\"org.springframework.web.\") && !name.startsWith(\"javax.servlet.\")) {");
+        code.beginIndent();
+        code.writeLine("attributes.put(name, value);");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("var cookies = request.getCookies() == null ? new Cookie[0] : Arrays.stream(request.getCookies())");
+        code.beginIndent();
+        code.writeLine(".map(v -> (Cookie) v.clone())");
+        code.writeLine(".toArray(Cookie[]::new);");
+        code.endIndent();
+        code.writeLine("return new ParentRequest(");
+        code.beginIndent();
+        code.beginIndent();
+        code.writeLine("request.getContextPath(),");
+        code.writeLine("serverUrl,");
+        code.writeLine("headers,");
+        code.writeLine("Collections.list(request.getLocales()),");
+        code.writeLine("attributes,");
+        code.writeLine("cookies,");
+        code.writeLine("request.getUserPrincipal(),");
+        code.writeLine("request.getRemoteUser(),");
+        code.writeLine("request.getAuthType(),");
+        code.writeLine("request.getSession(false),");
+        code.writeLine("request.getRequestedSessionId(),");
+        code.writeLine("request.isRequestedSessionIdValid(),");
+        code.writeLine("request.isRequestedSessionIdFromCookie(),");
+        code.writeLine("request.getServletContext(),");
+        code.writeLine("request.getScheme(),");
+        code.writeLine("request.getServerName(),");
+        code.writeLine("request.getServerPort(),");
+        code.writeLine("request.isSecure(),");
+        code.writeLine("request.getProtocol(),");
+        code.writeLine("request.getRemoteAddr(),");
+        code.writeLine("request.getRemoteHost(),");
+        code.writeLine("request.getRemotePort(),");
+        code.writeLine("request.getLocalName(),");
+        code.writeLine("request.getLocalAddr(),");
+        code.writeLine("request.getLocalPort()");
+        code.endIndent();
+        code.writeLine(");");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLines(getSubRequestClass());
+        code.writeLine();
+        code.writeLines(getCapturedResponseClass());
+
+        code.endIndent();
+        code.writeLine("}");
+        return code;
+    }
+
+    private static CodeWriter getSubRequestClass() {
+        var code = new CodeWriter();
+        code.writeLine("/**");
+        code.writeLine(" * A GET request without a body. Everything else comes from the copy of the real request, plus the conditional");
+        code.writeLine(" * headers of the sub-request. Attributes that a sub-request sets stay with it.");
+        code.writeLine(" */");
+        code.writeLine("private static class SubHttpServletRequest implements HttpServletRequest {");
+        code.beginIndent();
+        code.writeLine("private final ParentRequest parentRequest;");
+        code.writeLine("private final String path;");
+        code.writeLine("private final String query;");
+        code.writeLine("private final Map<String, String[]> parameters;");
+        code.writeLine("private final Map<String, List<String>> headers;");
+        code.writeLine("private final Map<String, Object> attributes;");
+        code.writeLine();
+        code.writeLine("SubHttpServletRequest(ParentRequest parentRequest, String path, String query, SubRequest subRequest) {");
+        code.beginIndent();
+        code.writeLine("this.parentRequest = parentRequest;");
+        code.writeLine("this.path = path;");
+        code.writeLine("this.query = query;");
+        code.writeLine("this.parameters = parseQuery(query);");
+        code.writeLine("this.headers = new TreeMap<>(parentRequest.headers());");
+        code.writeLine("if (subRequest.ifNoneMatch() != null) {");
+        code.beginIndent();
+        code.writeLine("headers.put(\"If-None-Match\", List.of(subRequest.ifNoneMatch()));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("if (subRequest.ifModifiedSince() != null) {");
+        code.beginIndent();
+        code.writeLine("headers.put(\"If-Modified-Since\", List.of(subRequest.ifModifiedSince()));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("this.attributes = new ConcurrentHashMap<>(parentRequest.attributes());");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private static Map<String, String[]> parseQuery(String query) {");
+        code.beginIndent();
+        code.writeLine("var values = new LinkedHashMap<String, List<String>>();");
+        code.writeLine("if (query != null) {");
+        code.beginIndent();
+        code.writeLine("for (String pair : query.split(\"&\")) {");
+        code.beginIndent();
+        code.writeLine("if (pair.isEmpty()) {");
+        code.beginIndent();
+        code.writeLine("continue;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("int separator = pair.indexOf('=');");
+        code.writeLine("String name = URLDecoder.decode(separator == -1 ? pair : pair.substring(0, separator), StandardCharsets.UTF_8);");
+        code.writeLine("String value = separator == -1 ? \"\" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);");
+        code.writeLine("values.computeIfAbsent(name, v -> new ArrayList<>())");
+        code.beginIndent();
+        code.writeLine(".add(value);");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("var parameters = new LinkedHashMap<String, String[]>();");
+        code.writeLine("values.forEach((name, value) -> parameters.put(name, value.toArray(String[]::new)));");
+        code.writeLine("return Collections.unmodifiableMap(parameters);");
+        code.endIndent();
+        code.writeLine("}");
+
+        // The request line
+        writeOverride(code, "public String getMethod()", "return \"GET\";");
+        writeOverride(code, "public String getRequestURI()", "return parentRequest.contextPath() + path;");
+        writeOverride(code, "public StringBuffer getRequestURL()", "return new StringBuffer(parentRequest.serverUrl() + getRequestURI());");
+        writeOverride(code, "public String getContextPath()", "return parentRequest.contextPath();");
+        writeOverride(code, "public String getServletPath()", "return path;");
+        writeOverride(code, "public String getPathInfo()", "return null;");
+        writeOverride(code, "public String getPathTranslated()", "return null;");
+        writeOverride(code, "public String getQueryString()", "return query;");
+        writeOverride(code, "public String getProtocol()", "return parentRequest.protocol();");
+        writeOverride(code, "public String getScheme()", "return parentRequest.scheme();");
+        writeOverride(code, "public String getServerName()", "return parentRequest.serverName();");
+        writeOverride(code, "public int getServerPort()", "return parentRequest.serverPort();");
+        writeOverride(code, "public boolean isSecure()", "return parentRequest.isSecure();");
+
+        // Parameters
+        writeOverride(code, "public String getParameter(String name)",
+            "var values = parameters.get(name);",
+            "return values == null ? null : values[0];");
+        writeOverride(code, "public Map<String, String[]> getParameterMap()", "return parameters;");
+        writeOverride(code, "public Enumeration<String> getParameterNames()", "return Collections.enumeration(parameters.keySet());");
+        writeOverride(code, "public String[] getParameterValues(String name)",
+            "var values = parameters.get(name);",
+            "return values == null ? null : values.clone();");
+
+        // Headers
+        writeOverride(code, "public String getHeader(String name)",
+            "var values = headers.get(name);",
+            "return values == null || values.isEmpty() ? null : values.get(0);");
+        writeOverride(code, "public Enumeration<String> getHeaders(String name)", "return Collections.enumeration(headers.getOrDefault(name, List.of()));");
+        writeOverride(code, "public Enumeration<String> getHeaderNames()", "return Collections.enumeration(headers.keySet());");
+        writeOverride(code, "public int getIntHeader(String name)",
+            "String value = getHeader(name);",
+            "return value == null ? -1 : Integer.parseInt(value);");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public long getDateHeader(String name) {");
+        code.beginIndent();
+        code.writeLine("String value = getHeader(name);");
+        code.writeLine("if (value == null) {");
+        code.beginIndent();
+        code.writeLine("return -1;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("try {");
+        code.beginIndent();
+        code.writeLine("return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)");
+        code.beginIndent();
+        code.writeLine(".toInstant()");
+        code.writeLine(".toEpochMilli();");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("} catch (DateTimeParseException e) {");
+        code.beginIndent();
+        code.writeLine("// Like a servlet container, so that Spring falls back to its own parsing");
+        code.writeLine("throw new IllegalArgumentException(\"Not a date: \" + value, e);");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        writeOverride(code, "public Cookie[] getCookies()", "return parentRequest.cookies().length == 0 ? null : parentRequest.cookies().clone();");
+        writeOverride(code, "public Locale getLocale()", "return parentRequest.locales().get(0);");
+        writeOverride(code, "public Enumeration<Locale> getLocales()", "return Collections.enumeration(parentRequest.locales());");
+
+        // The body
+        writeOverride(code, "public String getContentType()", "return null;");
+        writeOverride(code, "public int getContentLength()", "return -1;");
+        writeOverride(code, "public long getContentLengthLong()", "return -1;");
+        writeOverride(code, "public String getCharacterEncoding()", "return null;");
+        writeOverride(code, "public void setCharacterEncoding(String encoding)", "// There is no body");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public ServletInputStream getInputStream() {");
+        code.beginIndent();
+        code.writeLine("return new ServletInputStream() {");
+        code.beginIndent();
+        code.writeLine("@Override");
+        code.writeLine("public boolean isFinished() {");
+        code.beginIndent();
+        code.writeLine("return true;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public boolean isReady() {");
+        code.beginIndent();
+        code.writeLine("return true;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setReadListener(ReadListener readListener) {");
+        code.beginIndent();
+        code.writeLine("throw new IllegalStateException(\"Sub-requests of a batch are synchronous\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public int read() {");
+        code.beginIndent();
+        code.writeLine("return -1;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("};");
+        code.endIndent();
+        code.writeLine("}");
+        writeOverride(code, "public BufferedReader getReader()", "return new BufferedReader(new StringReader(\"\"));");
+        writeOverride(code, "public Collection<Part> getParts()", "return List.of();");
+        writeOverride(code, "public Part getPart(String name)", "return null;");
+
+        // Attributes
+        writeOverride(code, "public Object getAttribute(String name)", "return attributes.get(name);");
+        writeOverride(code, "public Enumeration<String> getAttributeNames()", "return Collections.enumeration(attributes.keySet());");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setAttribute(String name, Object value) {");
+        code.beginIndent();
+        code.writeLine("if (value == null) {");
+        code.beginIndent();
+        code.writeLine("attributes.remove(name);");
+        code.endIndent();
+        code.writeLine("} else {");
+        code.beginIndent();
+        code.writeLine("attributes.put(name, value);");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        writeOverride(code, "public void removeAttribute(String name)", "attributes.remove(name);");
+
+        // The user and the session
+        writeOverride(code, "public Principal getUserPrincipal()", "return parentRequest.userPrincipal();");
+        writeOverride(code, "public String getRemoteUser()", "return parentRequest.remoteUser();");
+        writeOverride(code, "public String getAuthType()", "return parentRequest.authType();");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public boolean isUserInRole(String role) {");
+        code.beginIndent();
+        code.writeLine("// Like Spring Security's request wrapper, which the real request went through");
+        code.writeLine("var authentication = SecurityContextHolder.getContext()");
+        code.beginIndent();
+        code.writeLine(".getAuthentication();");
+        code.endIndent();
+        code.writeLine("return role != null && authentication != null && authentication.getAuthorities()");
+        code.beginIndent();
+        code.writeLine(".stream()");
+        code.writeLine(".anyMatch(v -> role.equals(v.getAuthority()) || (\"ROLE_\" + role).equals(v.getAuthority()));");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        writeOverride(code, "public boolean authenticate(HttpServletResponse response)", "return parentRequest.userPrincipal() != null;");
+        writeOverride(code, "public void login(String username, String password) throws ServletException",
+            "throw new ServletException(\"Sub-requests of a batch cannot log in\");");
+        writeOverride(code, "public void logout() throws ServletException", "throw new ServletException(\"Sub-requests of a batch cannot log out\");");
+        writeOverride(code, "public HttpSession getSession()", "return getSession(true);");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public HttpSession getSession(boolean create) {");
+        code.beginIndent();
+        code.writeLine("if (parentRequest.session() == null && create) {");
+        code.beginIndent();
+        code.writeLine("throw new IllegalStateException(\"Sub-requests of a batch cannot create a session\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return parentRequest.session();");
+        code.endIndent();
+        code.writeLine("}");
+        writeOverride(code, "public String changeSessionId()", "throw new IllegalStateException(\"Sub-requests of a batch cannot change the session\");");
+        writeOverride(code, "public String getRequestedSessionId()", "return parentRequest.requestedSessionId();");
+        writeOverride(code, "public boolean isRequestedSessionIdValid()", "return parentRequest.isRequestedSessionIdValid();");
+        writeOverride(code, "public boolean isRequestedSessionIdFromCookie()", "return parentRequest.isRequestedSessionIdFromCookie();");
+        writeOverride(code, "public boolean isRequestedSessionIdFromURL()", "return parentRequest.requestedSessionId() != null && !parentRequest.isRequestedSessionIdFromCookie();");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("@SuppressWarnings(\"deprecation\")");
+        code.writeLine("public boolean isRequestedSessionIdFromUrl() {");
+        code.beginIndent();
+        code.writeLine("return isRequestedSessionIdFromURL();");
+        code.endIndent();
+        code.writeLine("}");
+
+        // The connection and the container
+        writeOverride(code, "public String getRemoteAddr()", "return parentRequest.remoteAddr();");
+        writeOverride(code, "public String getRemoteHost()", "return parentRequest.remoteHost();");
+        writeOverride(code, "public int getRemotePort()", "return parentRequest.remotePort();");
+        writeOverride(code, "public String getLocalName()", "return parentRequest.localName();");
+        writeOverride(code, "public String getLocalAddr()", "return parentRequest.localAddr();");
+        writeOverride(code, "public int getLocalPort()", "return parentRequest.localPort();");
+        writeOverride(code, "public ServletContext getServletContext()", "return parentRequest.servletContext();");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public RequestDispatcher getRequestDispatcher(String path) {");
+        code.beginIndent();
+        code.writeLine("return parentRequest.servletContext()");
+        code.beginIndent();
+        code.writeLine(".getRequestDispatcher(path.startsWith(\"/\") ? path : this.path.substring(0, this.path.lastIndexOf('/') + 1) + path);");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("@SuppressWarnings(\"deprecation\")");
+        code.writeLine("public String getRealPath(String path) {");
+        code.beginIndent();
+        code.writeLine("return parentRequest.servletContext()");
+        code.beginIndent();
+        code.writeLine(".getRealPath(path);");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        writeOverride(code, "public DispatcherType getDispatcherType()", "return DispatcherType.REQUEST;");
+        writeOverride(code, "public boolean isAsyncSupported()", "return false;");
+        writeOverride(code, "public boolean isAsyncStarted()", "return false;");
+        writeOverride(code, "public AsyncContext startAsync()", "throw new IllegalStateException(\"Sub-requests of a batch are synchronous\");");
+        writeOverride(code, "public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse)",
+            "throw new IllegalStateException(\"Sub-requests of a batch are synchronous\");");
+        writeOverride(code, "public AsyncContext getAsyncContext()", "throw new IllegalStateException(\"Sub-requests of a batch are synchronous\");");
+        writeOverride(code, "public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass)",
+            "throw new IllegalStateException(\"Sub-requests of a batch cannot be upgraded\");");
+        code.endIndent();
+        code.writeLine("}");
+        return code;
+    }
+
+    /**
+     * Writes an overriding method, after an empty line.
+     */
+    private static void writeOverride(CodeWriter code, String signature, String... body) {
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine(signature, " {");
+        code.beginIndent();
+        for (String line : body) {
+            code.writeLine(line);
+        }
+        code.endIndent();
+        code.writeLine("}");
+    }
+
+    private static CodeWriter getCapturedResponseClass() {
+        var code = new CodeWriter();
+        code.writeLine("/**");
+        code.writeLine(" * Keeps the status, the headers and the body in memory. It has nothing to do with the real response,");
+        code.writeLine(" * which is shared by all sub-requests. Cookies are dropped.");
+        code.writeLine(" */");
+        code.writeLine("private static class CapturedHttpServletResponse implements HttpServletResponse {");
+        code.beginIndent();
+        code.writeLine("private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);");
+        code.writeLine("private final ByteArrayOutputStream body = new ByteArrayOutputStream();");
+        code.writeLine("private int status = HttpStatus.OK.value();");
+        code.writeLine("private String contentType;");
+        code.writeLine("private String characterEncoding;");
+        code.writeLine("private ServletOutputStream outputStream;");
+        code.writeLine("private PrintWriter writer;");
+        code.writeLine("private boolean isCommitted = false;");
+        code.writeLine();
+        code.writeLine("SubResponse toSubResponse(int index) {");
+        code.beginIndent();
+        code.writeLine("if (writer != null) {");
+        code.beginIndent();
+        code.writeLine("writer.flush();");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return new SubResponse(index, status, contentType, getHeader(\"ETag\"), getHeader(\"Last-Modified\"), body.toString(getCharset()));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Adds an ETag like the ShallowEtagHeaderFilter would, and answers with 304 if the client already has the body.");
+        code.writeLine(" */");
+        code.writeLine("void addShallowEtag(String ifNoneMatch) {");
+        code.beginIndent();
+        code.writeLine("if (writer != null) {");
+        code.beginIndent();
+        code.writeLine("writer.flush();");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("String cacheControl = getHeader(\"Cache-Control\");");
+        code.writeLine("if (status < 200 || status >= 300 || containsHeader(\"ETag\") || (cacheControl != null && cacheControl.contains(\"no-store\"))) {");
+        code.beginIndent();
+        code.writeLine("return;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("String etag = \"\\\"0\" + DigestUtils.md5DigestAsHex(body.toByteArray()) + \"\\\"\";");
+        code.writeLine("setHeader(\"ETag\", etag);");
+        code.writeLine("if (ifNoneMatch != null && Arrays.stream(ifNoneMatch.split(\",\"))");
+        code.beginIndent();
+        code.writeLine(".map(v -> v.trim()");
+        code.beginIndent();
+        code.writeLine(".replaceFirst(\"^W/\", \"\"))");
+        code.endIndent();
+        code.writeLine(".anyMatch(v -> v.equals(\"*\") || v.equals(etag))) {");
+        code.writeLine("status = HttpStatus.NOT_MODIFIED.value();");
+        code.writeLine("body.reset();");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private Charset getCharset() {");
+        code.beginIndent();
+        code.writeLine("if (characterEncoding != null) {");
+        code.beginIndent();
+        code.writeLine("return Charset.forName(characterEncoding);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("if (contentType != null) {");
+        code.beginIndent();
+        code.writeLine("try {");
+        code.beginIndent();
+        code.writeLine("var charset = MediaType.parseMediaType(contentType)");
+        code.beginIndent();
+        code.writeLine(".getCharset();");
+        code.endIndent();
+        code.writeLine("if (charset != null) {");
+        code.beginIndent();
+        code.writeLine("return charset;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("} catch (InvalidMediaTypeException e) {");
+        code.beginIndent();
+        code.writeLine("// Same as without a charset");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return StandardCharsets.UTF_8;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setStatus(int status) {");
+        code.beginIndent();
+        code.writeLine("if (!isCommitted) {");
+        code.beginIndent();
+        code.writeLine("this.status = status;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("@SuppressWarnings(\"deprecation\")");
+        code.writeLine("public void setStatus(int status, String message) {");
+        code.beginIndent();
+        code.writeLine("setStatus(status);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public int getStatus() {");
+        code.beginIndent();
+        code.writeLine("return status;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void sendError(int status) {");
+        code.beginIndent();
+        code.writeLine("sendError(status, null);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void sendError(int status, String message) {");
+        code.beginIndent();
+        code.writeLine("if (isCommitted) {");
+        code.beginIndent();
+        code.writeLine("throw new IllegalStateException(\"The response has already been committed\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("this.status = status;");
+        code.writeLine("body.reset();");
+        code.writeLine("isCommitted = true;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void sendRedirect(String location) {");
+        code.beginIndent();
+        code.writeLine("if (isCommitted) {");
+        code.beginIndent();
+        code.writeLine("throw new IllegalStateException(\"The response has already been committed\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("status = HttpStatus.FOUND.value();");
+        code.writeLine("setHeader(\"Location\", location);");
+        code.writeLine("isCommitted = true;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setHeader(String name, String value) {");
+        code.beginIndent();
+        code.writeLine("if (name.equalsIgnoreCase(\"Content-Type\")) {");
+        code.beginIndent();
+        code.writeLine("setContentType(value);");
+        code.endIndent();
+        code.writeLine("} else if (value == null) {");
+        code.beginIndent();
+        code.writeLine("headers.remove(name);");
+        code.endIndent();
+        code.writeLine("} else {");
+        code.beginIndent();
+        code.writeLine("headers.put(name, new ArrayList<>(List.of(value)));");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void addHeader(String name, String value) {");
+        code.beginIndent();
+        code.writeLine("if (name.equalsIgnoreCase(\"Content-Type\")) {");
+        code.beginIndent();
+        code.writeLine("setContentType(value);");
+        code.endIndent();
+        code.writeLine("} else if (value != null) {");
+        code.beginIndent();
+        code.writeLine("headers.computeIfAbsent(name, v -> new ArrayList<>())");
+        code.beginIndent();
+        code.writeLine(".add(value);");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setIntHeader(String name, int value) {");
+        code.beginIndent();
+        code.writeLine("setHeader(name, String.valueOf(value));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void addIntHeader(String name, int value) {");
+        code.beginIndent();
+        code.writeLine("addHeader(name, String.valueOf(value));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setDateHeader(String name, long date) {");
+        code.beginIndent();
+        code.writeLine("setHeader(name, DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date)");
+        code.beginIndent();
+        code.writeLine(".atZone(ZoneOffset.UTC)));");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void addDateHeader(String name, long date) {");
+        code.beginIndent();
+        code.writeLine("addHeader(name, DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date)");
+        code.beginIndent();
+        code.writeLine(".atZone(ZoneOffset.UTC)));");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public boolean containsHeader(String name) {");
+        code.beginIndent();
+        code.writeLine("return getHeader(name) != null;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public String getHeader(String name) {");
+        code.beginIndent();
+        code.writeLine("if (name.equalsIgnoreCase(\"Content-Type\")) {");
+        code.beginIndent();
+        code.writeLine("return contentType;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("var values = headers.get(name);");
+        code.writeLine("return values == null || values.isEmpty() ? null : values.get(0);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public Collection<String> getHeaders(String name) {");
+        code.beginIndent();
+        code.writeLine("if (name.equalsIgnoreCase(\"Content-Type\")) {");
+        code.beginIndent();
+        code.writeLine("return contentType == null ? List.of() : List.of(contentType);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return List.copyOf(headers.getOrDefault(name, List.of()));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public Collection<String> getHeaderNames() {");
+        code.beginIndent();
+        code.writeLine("var names = new ArrayList<>(headers.keySet());");
+        code.writeLine("if (contentType != null) {");
+        code.beginIndent();
+        code.writeLine("names.add(\"Content-Type\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return names;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public String encodeURL(String url) {");
+        code.beginIndent();
+        code.writeLine("return url;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public String encodeRedirectURL(String url) {");
+        code.beginIndent();
+        code.writeLine("return url;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("@SuppressWarnings(\"deprecation\")");
+        code.writeLine("public String encodeUrl(String url) {");
+        code.beginIndent();
+        code.writeLine("return url;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("@SuppressWarnings(\"deprecation\")");
+        code.writeLine("public String encodeRedirectUrl(String url) {");
+        code.beginIndent();
+        code.writeLine("return url;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setTrailerFields(Supplier<Map<String, String>> supplier) {");
+        code.beginIndent();
+        code.writeLine("// Lines of the batch response have no trailers");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void addCookie(Cookie cookie) {");
+        code.beginIndent();
+        code.writeLine("// The batch response is shared, so a sub-request cannot set cookies");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setContentType(String contentType) {");
+        code.beginIndent();
+        code.writeLine("if (!isCommitted) {");
+        code.beginIndent();
+        code.writeLine("this.contentType = contentType;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public String getContentType() {");
+        code.beginIndent();
+        code.writeLine("return contentType;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setCharacterEncoding(String characterEncoding) {");
+        code.beginIndent();
+        code.writeLine("if (!isCommitted && writer == null) {");
+        code.beginIndent();
+        code.writeLine("this.characterEncoding = characterEncoding;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public String getCharacterEncoding() {");
+        code.beginIndent();
+        code.writeLine("return getCharset().name();");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setContentLength(int length) {");
+        code.beginIndent();
+        code.writeLine("// The length of the captured body is known anyway");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setContentLengthLong(long length) {");
+        code.beginIndent();
+        code.writeLine("// The length of the captured body is known anyway");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setLocale(Locale locale) {");
+        code.beginIndent();
+        code.writeLine("// Only a Content-Language header would come from it");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public Locale getLocale() {");
+        code.beginIndent();
+        code.writeLine("return Locale.getDefault();");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public ServletOutputStream getOutputStream() {");
+        code.beginIndent();
+        code.writeLine("if (writer != null) {");
+        code.beginIndent();
+        code.writeLine("throw new IllegalStateException(\"getWriter() has already been called\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("if (outputStream == null) {");
+        code.beginIndent();
+        code.writeLine("outputStream = new ServletOutputStream() {");
+        code.beginIndent();
+        code.writeLine("@Override");
+        code.writeLine("public boolean isReady() {");
+        code.beginIndent();
+        code.writeLine("return true;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setWriteListener(WriteListener writeListener) {");
+        code.beginIndent();
+        code.writeLine("throw new IllegalStateException(\"Sub-requests of a batch are synchronous\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void write(int b) {");
+        code.beginIndent();
+        code.writeLine("body.write(b);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void write(byte[] b, int off, int len) {");
+        code.beginIndent();
+        code.writeLine("body.write(b, off, len);");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("};");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return outputStream;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public PrintWriter getWriter() {");
+        code.beginIndent();
+        code.writeLine("if (outputStream != null) {");
+        code.beginIndent();
+        code.writeLine("throw new IllegalStateException(\"getOutputStream() has already been called\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("if (writer == null) {");
+        code.beginIndent();
+        code.writeLine("writer = new PrintWriter(new OutputStreamWriter(body, getCharset()));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return writer;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void flushBuffer() {");
+        code.beginIndent();
+        code.writeLine("if (writer != null) {");
+        code.beginIndent();
+        code.writeLine("writer.flush();");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("isCommitted = true;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public boolean isCommitted() {");
+        code.beginIndent();
+        code.writeLine("return isCommitted;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void resetBuffer() {");
+        code.beginIndent();
+        code.writeLine("if (isCommitted) {");
+        code.beginIndent();
+        code.writeLine("throw new IllegalStateException(\"The response has already been committed\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("if (writer != null) {");
+        code.beginIndent();
+        code.writeLine("writer.flush();");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("body.reset();");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void reset() {");
+        code.beginIndent();
+        code.writeLine("resetBuffer();");
+        code.writeLine("status = HttpStatus.OK.value();");
+        code.writeLine("headers.clear();");
+        code.writeLine("contentType = null;");
+        code.writeLine("characterEncoding = null;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void setBufferSize(int size) {");
+        code.beginIndent();
+        code.writeLine("// Everything is buffered");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public int getBufferSize() {");
+        code.beginIndent();
+        code.writeLine("return Integer.MAX_VALUE;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        return code;
+    }
+}
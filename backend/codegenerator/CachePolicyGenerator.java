@@ -0,0 +1,225 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.CachePolicy;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a Spring configuration that sets the caching headers of every endpoint method.
+ *
+ * <p>The policies come from {@link CachePolicy} annotations, see there for the defaults. The generated interceptor
+ * looks up the policy of the handler method, and the {@code ShallowEtagHeaderFilter} adds the ETag. Responses
+ * without an ETag, like streams, opt out of the filter, since it would buffer the whole body.</p>
+ */
+public class CachePolicyGenerator {
+    /**
+     * Package of the generated configuration.
+     */
+    public static final String PACKAGE_NAME = "at.ac.tuwien.sepm.groupphase.backend.config.generated";
+
+    /**
+     * Name of the generated configuration class.
+     */
+    public static final String CLASS_NAME = "CachePolicyConfig";
+
+    /**
+     * Path segments of routes that deal with credentials, their responses must never be stored.
+     */
+    private static final Pattern AUTH_SEGMENT = Pattern.compile("(?i).*(auth|login|logout|token|password).*");
+
+    /**
+     * The headers of one endpoint method.
+     *
+     * @param cacheControl the Cache-Control header.
+     * @param etag         whether the response gets an ETag.
+     * @param vary         the Vary header, or an empty String.
+     */
+    public record Policy(String cacheControl, boolean etag, String vary) {
+    }
+
+    /**
+     * Gets the policy of an endpoint method, from its annotation or the defaults.
+     */
+    public static Policy getPolicy(EndpointCatalog.Route route) {
+        if (!route.isQuery() || EndpointGenerator.getStreamingResponse(route.method()) != null) {
+            return new Policy("no-store", false, "");
+        }
+        var annotation = route.method()
+            .getAnnotation(CachePolicy.class);
+        if (annotation == null) {
+            return isAuthRoute(route) ? new Policy("no-store", false, "") : new Policy("private, no-cache", true, "Authorization");
+        }
+        if (annotation.noStore()) {
+            return new Policy("no-store", false, "");
+        }
+
+        String cacheControl = (annotation.shared() ? "public" : "private")
+            + ", " + (annotation.maxAge() > 0 ? "max-age=" + annotation.maxAge() : "no-cache");
+        var vary = new LinkedHashSet<String>();
+        if (!annotation.shared()) {
+            vary.add("Authorization");
+        }
+        vary.addAll(Arrays.asList(annotation.vary()));
+        return new Policy(cacheControl, annotation.etag(), String.join(", ", vary));
+    }
+
+    static boolean isAuthRoute(EndpointCatalog.Route route) {
+        return Arrays.stream(StringUtils.split(route.path(), "/"))
+            .anyMatch(v -> AUTH_SEGMENT.matcher(v)
+                .matches());
+    }
+
+    /**
+     * Gets the key of a method, it has to match the getKey function in the generated code.
+     * For example "at.ac.tuwien.EventEndpoint#find(java.lang.Long)".
+     */
+    public static String getKey(Method method) {
+        return method.getDeclaringClass()
+            .getName() + "#" + method.getName() + "(" + Arrays.stream(method.getParameterTypes())
+            .map(Class::getName)
+            .collect(Collectors.joining(",")) + ")";
+    }
+
+    /**
+     * Generates the Java code of the configuration class.
+     *
+     * @param catalog all endpoints.
+     */
+    public static CodeWriter getCode(EndpointCatalog catalog) {
+        var code = new CodeWriter();
+        code.writeLine("package ", PACKAGE_NAME, ";");
+        code.writeLine();
+        code.writeLine("import org.springframework.boot.web.servlet.FilterRegistrationBean;");
+        code.writeLine("import org.springframework.context.annotation.Bean;");
+        code.writeLine("import org.springframework.context.annotation.Configuration;");
+        code.writeLine("import org.springframework.web.filter.ShallowEtagHeaderFilter;");
+        code.writeLine("import org.springframework.web.method.HandlerMethod;");
+        code.writeLine("import org.springframework.web.servlet.HandlerInterceptor;");
+        code.writeLine("import org.springframework.web.servlet.config.annotation.InterceptorRegistry;");
+        code.writeLine("import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;");
+        code.writeLine();
+        code.writeLine("import javax.servlet.http.HttpServletRequest;");
+        code.writeLine("import javax.servlet.http.HttpServletResponse;");
+        code.writeLine("import java.lang.reflect.Method;");
+        code.writeLine("import java.util.Arrays;");
+        code.writeLine("import java.util.Map;");
+        code.writeLine("import java.util.stream.Collectors;");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Sets the Cache-Control, ETag and Vary headers of every endpoint method, see @CachePolicy.");
+        code.writeLine(" */");
+        code.writeLine("@Configuration");
+        code.writeLine("public class ", CLASS_NAME, " implements WebMvcConfigurer {");
+        code.beginIndent();
+
+        code.writeLine("private static final Map<String, Policy> POLICIES = Map.ofEntries(");
+        code.beginIndent();
+        var entries = new ArrayList<String>();
+        for (EndpointCatalog.Route route : catalog.getRoutes()) {
+            var policy = getPolicy(route);
+            entries.add("Map.entry(" + StringUtils.toJsonString(getKey(route.method())) + ", new Policy("
+                + StringUtils.toJsonString(policy.cacheControl()) + ", " + policy.etag() + ", " + StringUtils.toJsonString(policy.vary()) + "))");
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            code.writeLine(entries.get(i), i < entries.size() - 1 ? "," : "");
+        }
+        code.endIndent();
+        code.writeLine(");");
+        code.writeLine();
+
+        code.writeLine("private record Policy(String cacheControl, boolean etag, String vary) {");
+        code.writeLine("}");
+        code.writeLine();
+
+        code.writeLine("@Override");
+        code.writeLine("public void addInterceptors(InterceptorRegistry registry) {");
+        code.beginIndent();
+        code.writeLine("registry.addInterceptor(new CachePolicyInterceptor());");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+
+        code.writeLine("@Bean");
+        code.writeLine("public FilterRegistrationBean<ShallowEtagHeaderFilter> etagFilter() {");
+        code.beginIndent();
+        code.writeLine("var registration = new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());");
+        code.writeLine("registration.addUrlPatterns(", getUrlPatterns(catalog).stream()
+            .map(StringUtils::toJsonString)
+            .collect(Collectors.joining(", ")), ");");
+        code.writeLine("return registration;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+
+        code.writeLine("private static String getKey(Method method) {");
+        code.beginIndent();
+        code.writeLine("return method.getDeclaringClass().getName() + \"#\" + method.getName() + \"(\" + Arrays.stream(method.getParameterTypes())");
+        code.beginIndent();
+        code.beginIndent();
+        code.writeLine(".map(Class::getName)");
+        code.writeLine(".collect(Collectors.joining(\",\")) + \")\";");
+        code.endIndent();
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+
+        code.writeLine("private static class CachePolicyInterceptor implements HandlerInterceptor {");
+        code.beginIndent();
+        code.writeLine("@Override");
+        code.writeLine("public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {");
+        code.beginIndent();
+        code.writeLine("if (!(handler instanceof HandlerMethod handlerMethod)) {");
+        code.beginIndent();
+        code.writeLine("return true;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("var policy = POLICIES.get(getKey(handlerMethod.getMethod()));");
+        code.writeLine("if (policy == null) {");
+        code.beginIndent();
+        code.writeLine("return true;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("response.setHeader(\"Cache-Control\", policy.cacheControl());");
+        code.writeLine("if (!policy.vary().isEmpty()) {");
+        code.beginIndent();
+        code.writeLine("response.addHeader(\"Vary\", policy.vary());");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("if (!policy.etag()) {");
+        code.beginIndent();
+        code.writeLine("// Otherwise the whole body gets buffered to compute the ETag");
+        code.writeLine("ShallowEtagHeaderFilter.disableContentCaching(request);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return true;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+
+        code.endIndent();
+        code.writeLine("}");
+        return code;
+    }
+
+    /**
+     * Gets the servlet URL patterns of all endpoints, like "/api/v1/events/*". The interceptor decides about
+     * the ETag of each single route.
+     */
+    private static List<String> getUrlPatterns(EndpointCatalog catalog) {
+        return catalog.getEndpointClasses()
+            .stream()
+            .map(v -> "/" + EndpointCatalog.getBasePath(v))
+            .map(v -> (v.endsWith("/") ? v : v + "/") + "*")
+            .distinct()
+            .sorted()
+            .toList();
+    }
+}
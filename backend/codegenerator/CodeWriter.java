@@ -45,6 +45,13 @@ public class CodeWriter {
         }
     }
 
+    /**
+     * Checks if no lines have been written yet.
+     */
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
     /**
      * Gets all the lines of code as a String.
      *
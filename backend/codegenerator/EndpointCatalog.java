@@ -0,0 +1,206 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * All REST endpoints, and the routes of their methods.
+ *
+ * <p>The routes are sorted by endpoint and method name, so that everything generated from them is stable.</p>
+ */
+public class EndpointCatalog {
+    /**
+     * Orders methods by name, and overloaded methods by their parameters. {@code getDeclaredMethods()} has no order.
+     */
+    public static final Comparator<Method> METHOD_ORDER = Comparator.comparing(Method::getName)
+        .thenComparing(Method::toGenericString);
+
+    private final List<Class<?>> endpointClasses;
+    private final List<Route> routes = new ArrayList<>();
+
+    /**
+     * Creates a new {@link EndpointCatalog}.
+     *
+     * @param endpointClasses REST endpoint classes, they need a @RestController annotation.
+     */
+    public EndpointCatalog(List<Class<?>> endpointClasses) {
+        this.endpointClasses = List.copyOf(endpointClasses);
+        for (Class<?> endpointClass : this.endpointClasses) {
+            if (endpointClass.getAnnotation(RestController.class) == null) {
+                throw new IllegalArgumentException("Expected endpointClass to have a @RestController annotation");
+            }
+            for (Method declaredMethod : Arrays.stream(endpointClass.getDeclaredMethods())
+                .sorted(METHOD_ORDER)
+                .toList()) {
+                var mappingType = getMappingType(declaredMethod);
+                if (mappingType != null) {
+                    routes.add(toRoute(endpointClass, declaredMethod, mappingType));
+                }
+            }
+        }
+    }
+
+    public List<Class<?>> getEndpointClasses() {
+        return endpointClasses;
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Gets the routes of one endpoint.
+     */
+    public List<Route> getRoutes(Class<?> endpointClass) {
+        return routes.stream()
+            .filter(v -> v.endpointClass()
+                .equals(endpointClass))
+            .toList();
+    }
+
+    /**
+     * Gets the path of an endpoint from its @RequestMapping, without the leading "/".
+     */
+    public static String getBasePath(Class<?> endpointClass) {
+        var route = endpointClass.getAnnotation(RequestMapping.class)
+            .value()[0];
+        return StringUtils.withoutLeading(route, '/');
+    }
+
+    /**
+     * Gets the route of an endpoint method.
+     *
+     * @param mappingType the mapping of the method, see {@link #getMappingType(Method)}.
+     */
+    static Route toRoute(Class<?> endpointClass, Method endpointMethod, RequestMappingType mappingType) {
+        return new Route(endpointClass, endpointMethod, mappingType.getType(), joinPath(getBasePath(endpointClass), mappingType.getPath()));
+    }
+
+    /**
+     * Joins two parts of a path with exactly one "/".
+     */
+    private static String joinPath(String basePath, String path) {
+        String trimmedBasePath = basePath.endsWith("/") ? basePath.substring(0, basePath.length() - 1) : basePath;
+        String trimmedPath = StringUtils.withoutLeading(path, '/');
+        if (trimmedPath.isEmpty()) {
+            return trimmedBasePath;
+        }
+        return trimmedBasePath + "/" + trimmedPath;
+    }
+
+    static RequestMappingType getMappingType(Method endpointMethod) {
+        {
+            var annotation = endpointMethod.getAnnotation(GetMapping.class);
+            if (annotation != null) {
+                return new RequestMappingType(RequestMappingType.MappingType.GET, String.join("/", annotation.value()));
+            }
+        }
+        {
+            var annotation = endpointMethod.getAnnotation(PostMapping.class);
+            if (annotation != null) {
+                return new RequestMappingType(RequestMappingType.MappingType.POST, String.join("/", annotation.value()));
+            }
+        }
+        {
+            var annotation = endpointMethod.getAnnotation(PutMapping.class);
+            if (annotation != null) {
+                return new RequestMappingType(RequestMappingType.MappingType.PUT, String.join("/", annotation.value()));
+            }
+        }
+        {
+            var annotation = endpointMethod.getAnnotation(PatchMapping.class);
+            if (annotation != null) {
+                return new RequestMappingType(RequestMappingType.MappingType.PATCH, String.join("/", annotation.value()));
+            }
+        }
+        {
+            var annotation = endpointMethod.getAnnotation(DeleteMapping.class);
+            if (annotation != null) {
+                return new RequestMappingType(RequestMappingType.MappingType.DELETE, String.join("/", annotation.value()));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One endpoint method and where it can be reached.
+     *
+     * @param path the full path including the endpoint's base path, without the leading "/", like "api/v1/tickets/{id}".
+     */
+    public record Route(Class<?> endpointClass, Method method, RequestMappingType.MappingType type, String path) {
+        /**
+         * Gets the names of the path variables, in order.
+         */
+        public List<String> getPathVariables() {
+            var pathVariables = new ArrayList<String>();
+            for (String segment : StringUtils.split(path, "/")) {
+                if (segment.startsWith("{") && segment.endsWith("}")) {
+                    // Spring also supports {name:regex}
+                    int regexStart = segment.indexOf(':');
+                    pathVariables.add(segment.substring(1, regexStart == -1 ? segment.length() - 1 : regexStart));
+                }
+            }
+            return pathVariables;
+        }
+
+        /**
+         * Gets a regex that matches the paths of the route, from the root and with any value for the path variables.
+         */
+        public String getPathPattern() {
+            var pattern = new StringBuilder("/");
+            for (String segment : StringUtils.split(path, "/")) {
+                if (pattern.length() > 1) {
+                    pattern.append('/');
+                }
+                pattern.append(segment.startsWith("{") && segment.endsWith("}") ? "[^/]+" : Pattern.quote(segment));
+            }
+            // Spring also matches a trailing "/"
+            pattern.append("/?");
+            return pattern.toString();
+        }
+
+        /**
+         * Checks if the route only reads data.
+         */
+        public boolean isQuery() {
+            return type == RequestMappingType.MappingType.GET;
+        }
+    }
+
+    /**
+     * The HTTP method and path of one @...Mapping annotation.
+     */
+    public static class RequestMappingType {
+        public enum MappingType {
+            GET, PUT, POST, PATCH, DELETE
+        }
+
+        private final MappingType type;
+        private final String path;
+
+        private RequestMappingType(MappingType type, String path) {
+            this.type = type;
+            this.path = path;
+        }
+
+        public MappingType getType() {
+            return type;
+        }
+
+        public String getPath() {
+            return path;
+        }
+    }
+}
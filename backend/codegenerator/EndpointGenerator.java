@@ -15,31 +15,39 @@ import at.ac.tuwien.sepm.groupphase.backend.endpoint.PasswordResetEndpoint;
 import at.ac.tuwien.sepm.groupphase.backend.endpoint.SeatingPlanEndpoint;
 import at.ac.tuwien.sepm.groupphase.backend.endpoint.TicketEndpoint;
 import at.ac.tuwien.sepm.groupphase.backend.endpoint.UserEndpoint;
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.DeltaSync;
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.RequestPriority;
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.Resilience;
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.ResumableUpload;
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.StreamingResponse;
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.WorkerDecoding;
 import org.springframework.core.DefaultParameterNameDiscoverer;
-import org.springframework.web.bind.annotation.DeleteMapping;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -53,91 +61,289 @@ import java.util.stream.Stream;
 public class EndpointGenerator {
 
     /**
-     * Output base path, basically all outputted files will end up in this directory or one of
+     * Default output base path, basically all outputted files will end up in this directory or one of
      * its subdirectories.
      */
     public static final Path basePath = Path.of("../frontend/src");
 
+    /**
+     * Default output path of the generated backend code, a Java source root of its own. It is not src/main/java,
+     * because the generated code can only be compiled after the endpoints that it is generated from.
+     */
+    public static final Path javaBasePath = Path.of("build/generated/sources/endpoints/java");
+
+    /**
+     * Name of the optional last parameter of every generated method, see RequestOptions in service.ts
+     */
+    private static final String REQUEST_OPTIONS_NAME = "options";
+
+    /**
+     * Parameter types that Spring fills in by itself, they are never sent by a client
+     */
+    private static final Set<String> INJECTED_PARAMETER_TYPES = Set.of(
+        "java.security.Principal",
+        "java.util.Locale",
+        "java.util.TimeZone",
+        "java.time.ZoneId",
+        "javax.servlet.ServletRequest",
+        "javax.servlet.ServletResponse",
+        "javax.servlet.http.HttpSession",
+        "org.springframework.web.context.request.WebRequest",
+        "org.springframework.validation.Errors",
+        "org.springframework.ui.Model",
+        "org.springframework.web.util.UriComponentsBuilder"
+    );
+
+    /**
+     * How many rendered files can wait to be written, see {@link OutputPipeline}
+     */
+    private static final int OUTPUT_PIPELINE_CAPACITY = 4;
+
+    /**
+     * How many elements every array is assumed to have, see {@link PayloadAnalyzer}. About one page.
+     */
+    private static final int PAYLOAD_ARRAY_SIZE = 20;
+
+    /**
+     * Responses with more nested DTOs get flagged, see {@link PayloadAnalyzer}
+     */
+    private static final int PAYLOAD_MAX_DEPTH = 4;
+
+    /**
+     * Usage: {@code EndpointGenerator [outputDirectory] [javaOutputDirectory] [--non-interactive] [--payload-report]
+     * [--max-payload-size=<bytes>] [--jackson-module]}.
+     * Build tools use the non-interactive mode, which never asks and fails instead of overwriting manually edited files.
+     * The payload report ranks the GET routes by their estimated response size, and with a max payload size, the
+     * generator fails when a response is estimated to be bigger.
+     * The Jackson module is opt-in, since it was not measurably faster than Jackson, see {@link JacksonModuleGenerator}.
+     */
     public static void main(String[] args) throws IOException {
-        if (!Files.isDirectory(basePath)) {
-            throw new FileNotFoundException("Expected basePath to exist: " + basePath.toAbsolutePath()
+        boolean isInteractive = !Arrays.asList(args)
+            .contains("--non-interactive");
+        boolean printPayloadReport = Arrays.asList(args)
+            .contains("--payload-report");
+        boolean generateJacksonModule = Arrays.asList(args)
+            .contains("--jackson-module");
+        long maxPayloadSize = Arrays.stream(args)
+            .filter(v -> v.startsWith("--max-payload-size="))
+            .mapToLong(v -> Long.parseLong(v.substring("--max-payload-size=".length())))
+            .findFirst()
+            .orElse(-1);
+        var paths = Arrays.stream(args)
+            .filter(v -> !v.startsWith("--"))
+            .map(Path::of)
+            .toList();
+        Path outputDirectory = paths.size() > 0 ? paths.get(0) : basePath;
+        Path javaOutputDirectory = paths.size() > 1 ? paths.get(1) : javaBasePath;
+        if (!isInteractive) {
+            Files.createDirectories(outputDirectory);
+        }
+        if (!Files.isDirectory(outputDirectory)) {
+            throw new FileNotFoundException("Expected outputDirectory to exist: " + outputDirectory.toAbsolutePath()
                 .normalize());
         }
 
+        var catalog = getEndpointCatalog();
         var generator = new TypescriptGenerator("at.ac.tuwien", List.of("at.ac.tuwien.sepm.groupphase.backend.endpoint.dto"));
-        var outputFiles = new ArrayList<OutputFile>();
-        outputFiles.addAll(generateForEndpoint(ArtistEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(EventEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(EventShowEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(InvoiceEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(LocationEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(OrderEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(SeatingPlanEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(TicketEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(UserEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(ImageMediaEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(CartEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(MerchandiseProductEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(MerchandisePurchaseEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(NewsEndpoint.class, generator));
-        outputFiles.addAll(generateForEndpoint(PasswordResetEndpoint.class, generator));
-
-        outputFiles.addAll(
+        var entityStores = new EntityStoreGenerator();
+        var invalidationGraph = new InvalidationGraph(catalog);
+
+        var fileUpdater = new InteractiveFileUpdater(outputDirectory, ".ts", isInteractive);
+        fileUpdater.findFilesToUpdate();
+
+        // The backend files get checked before anything is written, so a manually modified one doesn't leave a half updated output
+        var javaPackagePath = javaOutputDirectory.resolve(CachePolicyGenerator.PACKAGE_NAME.replace('.', '/'));
+        Files.createDirectories(javaPackagePath);
+        var javaFileUpdater = new InteractiveFileUpdater(javaPackagePath, ".java", isInteractive);
+        javaFileUpdater.findFilesToUpdate();
+        var cachePolicyPath = javaPackagePath.resolve(CachePolicyGenerator.CLASS_NAME + ".java");
+        var batchControllerPath = javaPackagePath.resolve(BatchControllerGenerator.CLASS_NAME + ".java");
+        var jacksonModulePath = javaPackagePath.resolve(JacksonModuleGenerator.CLASS_NAME + ".java");
+        javaFileUpdater.checkFile(cachePolicyPath);
+        javaFileUpdater.checkFile(batchControllerPath);
+        if (generateJacksonModule) {
+            javaFileUpdater.checkFile(jacksonModulePath);
+        }
+        var clientPackagePath = javaOutputDirectory.resolve(JavaClientGenerator.PACKAGE_NAME.replace('.', '/'));
+        Files.createDirectories(clientPackagePath);
+        var clientFileUpdater = new InteractiveFileUpdater(clientPackagePath, ".java", isInteractive);
+        clientFileUpdater.findFilesToUpdate();
+        var apiClientPath = clientPackagePath.resolve(JavaClientGenerator.API_CLIENT_NAME + ".java");
+        clientFileUpdater.checkFile(apiClientPath);
+        for (Class<?> endpointClass : catalog.getEndpointClasses()) {
+            clientFileUpdater.checkFile(clientPackagePath.resolve(JavaClientGenerator.getClientName(endpointClass) + ".java"));
+        }
+
+        // Rendered files wait on disk instead of keeping the whole API in memory, and nothing is written if rendering fails
+        int writtenFiles = new OutputPipeline(OUTPUT_PIPELINE_CAPACITY).run(sink -> {
+            for (Class<?> endpointClass : catalog.getEndpointClasses()) {
+                generateForEndpoint(endpointClass, outputDirectory, generator, entityStores, invalidationGraph)
+                    .forEach(v -> sink.accept(v.getPath(), v.getContents()));
+            }
+
+            // All DTOs are known now, so their imports and code only need to be computed once
+            generator.freeze();
+            printDeduplicationReport(generator.getInterfaces());
+
             Stream.concat(
                     generator.getInterfaces()
                         .stream(),
                     generator.getTypes()
                         .stream()
                 )
-                .map(v -> new OutputFile(
-                        basePath.resolve("./dtos/" + toTsFilePath(v.getPath()) + toTsFileName(v.getName(), true)),
+                .forEach(v -> sink.accept(
+                        outputDirectory.resolve("./dtos/" + NamingUtils.toTsFilePath(v.getPath()) + NamingUtils.toTsFileName(v.getName(), true)),
                         autogeneratedHeader() + "\n"
                             + v.getCodeImports()
                             .stream()
-                            .map(ref -> "import type { " + ref.getName() + " } from \"@/dtos/" + toTsFilePath(ref.getPath()) + toTsFileName(ref.getName(), false) + "\"\n")
+                            .map(ref -> "import type { " + ref.getName() + " } from \"" + NamingUtils.toDtoImportPath(ref.getPath(), ref.getName()) + "\"\n")
                             .collect(Collectors.joining(""))
                             + "\n"
                             + "export " + v.getCode()
                             .toCode(0)
                     )
-                )
-                .toList()
+                );
+
+            // The service worker caches the GETs that are the same for everyone
+            sink.accept(
+                outputDirectory.resolve("./" + ServiceWorkerRouteGenerator.FILE_NAME),
+                autogeneratedHeader() + "\n" + ServiceWorkerRouteGenerator.getCode(catalog, generator)
+                    .toCode(0)
+            );
+
+            var entityStoresCode = entityStores.getCode(generator.getInterfaces());
+            if (entityStoresCode != null) {
+                sink.accept(
+                    outputDirectory.resolve("./services/entity-stores.ts"),
+                    autogeneratedHeader() + "\n" + entityStoresCode.toCode(0)
+                );
+            }
+        }, fileUpdater::checkFile, fileUpdater::interactiveUpdateFile);
+        // TODO: One IOException in the pipeline shouldn't stop everything
+        System.out.println("Wrote " + writtenFiles + " files");
+        fileUpdater.cleanupRemainingFiles();
+
+        // The backend gets the caching headers that match the endpoints
+        javaFileUpdater.interactiveUpdateFile(
+            cachePolicyPath,
+            "/** Autogenerated Code - Do Not Touch */\n\n" + CachePolicyGenerator.getCode(catalog)
+                .toCode(0)
+        );
+        // And many reads can be answered in one round trip
+        javaFileUpdater.interactiveUpdateFile(
+            batchControllerPath,
+            "/** Autogenerated Code - Do Not Touch */\n\n" + BatchControllerGenerator.getCode(catalog, CachePolicyGenerator.PACKAGE_NAME)
+                .toCode(0)
         );
+        if (generateJacksonModule) {
+            // The DTO records can be serialized without reflection
+            javaFileUpdater.interactiveUpdateFile(
+                jacksonModulePath,
+                "/** Autogenerated Code - Do Not Touch */\n\n" + new JacksonModuleGenerator(generator.getInterfaces()).getCode(CachePolicyGenerator.PACKAGE_NAME)
+                    .toCode(0)
+            );
+        }
+        javaFileUpdater.cleanupRemainingFiles();
 
-        System.out.println("About to write " + outputFiles.size() + " files");
-        var fileUpdater = new InteractiveFileUpdater(basePath, ".ts");
-        fileUpdater.findFilesToUpdate();
-        for (OutputFile outputFile : outputFiles) {
-            // TODO: One IOException in the loop shouldn't stop everything
-            fileUpdater.interactiveUpdateFile(outputFile.getPath(), outputFile.getContents());
+        // Internal tools and integration tests call the endpoints through typed clients
+        clientFileUpdater.interactiveUpdateFile(
+            apiClientPath,
+            "/** Autogenerated Code - Do Not Touch */\n\n" + JavaClientGenerator.getApiClientCode()
+                .toCode(0)
+        );
+        var clientGenerator = new JavaClientGenerator(catalog);
+        for (Class<?> endpointClass : catalog.getEndpointClasses()) {
+            clientFileUpdater.interactiveUpdateFile(
+                clientPackagePath.resolve(JavaClientGenerator.getClientName(endpointClass) + ".java"),
+                "/** Autogenerated Code - Do Not Touch */\n\n" + clientGenerator.getClientCode(endpointClass)
+                    .toCode(0)
+            );
+        }
+        clientFileUpdater.cleanupRemainingFiles();
+
+        // Payload bloat gets caught here, instead of in the latency graphs
+        if (printPayloadReport || maxPayloadSize >= 0) {
+            var payloadCosts = new PayloadAnalyzer(PAYLOAD_ARRAY_SIZE, PAYLOAD_MAX_DEPTH).analyze(catalog);
+            PayloadAnalyzer.printReport(payloadCosts);
+            var tooBig = payloadCosts.stream()
+                .filter(v -> maxPayloadSize >= 0 && v.estimatedSize() > maxPayloadSize)
+                .map(v -> "/" + v.route()
+                    .path())
+                .toList();
+            if (!tooBig.isEmpty()) {
+                throw new IllegalStateException("Expected every response to be at most " + maxPayloadSize + " bytes, but these are estimated to be bigger: "
+                    + String.join(", ", tooBig));
+            }
         }
-        fileUpdater.cleanupRemainingFiles();
         System.out.println("Done!");
         // TODO: Mapping validation stuff to Vuelidate or zod
         // TODO: Validation group => Generate a Pick<DTO, some fields> type. Might as well generate idiomatic Typescript code for it.
         // TODO: Nullable strings (parse the @NonNull annotation)
     }
 
+    /**
+     * Prints which DTOs have the same shape as another one, and thus became type aliases.
+     */
+    private static void printDeduplicationReport(List<TypescriptGenerator.TsInterface> interfaces) {
+        var aliases = interfaces.stream()
+            .filter(v -> v.getAliasOf() != null)
+            .toList();
+        if (aliases.isEmpty()) {
+            return;
+        }
+        System.out.println((interfaces.size() - aliases.size()) + " of " + interfaces.size()
+            + " DTOs are generated as interfaces, the others have the same shape as one of them:");
+        aliases.forEach(v -> System.out.println("  type " + v.getName() + " = " + v.getAliasOf()
+            .getName()));
+    }
+
+    /**
+     * All REST endpoints that the frontend gets generated code for.
+     */
+    public static EndpointCatalog getEndpointCatalog() {
+        // Class literals load the endpoint classes without initializing them, so no Spring beans or static fields are touched
+        return new EndpointCatalog(List.of(
+            ArtistEndpoint.class,
+            EventEndpoint.class,
+            EventShowEndpoint.class,
+            InvoiceEndpoint.class,
+            LocationEndpoint.class,
+            OrderEndpoint.class,
+            SeatingPlanEndpoint.class,
+            TicketEndpoint.class,
+            UserEndpoint.class,
+            ImageMediaEndpoint.class,
+            CartEndpoint.class,
+            MerchandiseProductEndpoint.class,
+            MerchandisePurchaseEndpoint.class,
+            NewsEndpoint.class,
+            PasswordResetEndpoint.class
+        ));
+    }
+
     /**
      * Takes an endpoint and generates the matching Typescript code.
      *
-     * @param endpointClass REST endpoint class.
-     * @param gen           a utility class to simplify generating Typescript code from Java code.
+     * @param endpointClass   REST endpoint class.
+     * @param outputDirectory where the generated files will end up.
+     * @param gen             a utility class to simplify generating Typescript code from Java code.
+     * @param entityStores    remembers the returned entities in the client-side entity stores.
+     * @param invalidations   which cached GET routes each mutation invalidates.
      * @return the Typescript service file, note that imported interface files are not returned.
      */
-    public static <T> List<OutputFile> generateForEndpoint(Class<T> endpointClass, TypescriptGenerator gen) {
+    public static <T> List<OutputFile> generateForEndpoint(Class<T> endpointClass, Path outputDirectory, TypescriptGenerator gen,
+                                                           EntityStoreGenerator entityStores, InvalidationGraph invalidations) {
         if (endpointClass.getAnnotation(RestController.class) == null) {
             throw new IllegalArgumentException("Expected endpointClass to have a @RestController annotation");
         }
 
         var importedNames = new HashSet<String>();
         var imports = new CodeWriter();
-        imports.writeLine("import { useService } from './service';");
         Function<TypescriptGenerator.TsValue, TypescriptGenerator.TsValue> addImport = (TypescriptGenerator.TsValue v) -> {
             for (TypescriptGenerator.TsValue valueToImport : v.getRequiredImports()) {
                 if (!importedNames.contains(valueToImport.getName())) {
                     importedNames.add(valueToImport.getName());
-                    imports.writeLine("import type { " + valueToImport.getName() + " } from \"@/dtos/" + toTsFilePath(valueToImport.getPath()) + toTsFileName(valueToImport.getName(), false) + "\"");
+                    imports.writeLine("import type { " + valueToImport.getName() + " } from \"" + NamingUtils.toDtoImportPath(valueToImport.getPath(), valueToImport.getName()) + "\"");
                 }
             }
             return v;
@@ -147,111 +353,350 @@ public class EndpointGenerator {
         String name = TypescriptGenerator.withoutSuffix(endpointClass.getSimpleName(), "Endpoint") + "Service";
         output.writeLine("export function use", name, "() {");
         output.beginIndent();
-        var route = endpointClass.getAnnotation(RequestMapping.class)
-            .value()[0];
-        output.writeLine("const basePath = `", route.replaceAll("^/", ""), "`;");
-        output.writeLine("const { api, filterSearchParams } = useService(basePath);");
+        output.writeLine("const basePath = `", EndpointCatalog.getBasePath(endpointClass), "`;");
+        output.writeLine("const { api, schedule, batch } = useService(basePath);");
         output.writeLine();
 
-        // Spring has some really neat utilities
-        var parameterNamesGetter = new DefaultParameterNameDiscoverer();
-
         var methods = new ArrayList<TypescriptGenerator.TsMethod>();
+        var declarations = new CodeWriter();
+        var serviceFunctions = new TreeSet<String>();
+        serviceFunctions.add("useService");
+        var serviceTypes = new TreeSet<String>();
+        serviceTypes.add("RequestOptions");
+        var entityStoreNames = new TreeSet<String>();
+        boolean decodesInWorker = false;
 
         for (Method declaredMethod : Arrays.stream(endpointClass.getDeclaredMethods())
-            .sorted(Comparator.comparing(Method::getName))
+            .sorted(EndpointCatalog.METHOD_ORDER)
             .toList()) {
-            var mappingType = getMappingType(declaredMethod);
+            var mappingType = EndpointCatalog.getMappingType(declaredMethod);
             if (mappingType == null) {
                 continue;
             }
 
-            var parameters = declaredMethod.getParameters();
-            var parameterNames = parameterNamesGetter.getParameterNames(declaredMethod);
-            if (parameterNames == null || parameterNames.length < parameters.length) {
-                parameterNames = Arrays.stream(parameters)
-                    .map(Parameter::getName)
-                    .toList()
-                    .toArray(new String[0]);
-            }
+            var endpointParameters = getEndpointParameters(declaredMethod, gen);
+            var pathVariables = getPathVariables(endpointParameters);
+            String metricsName = endpointClass.getSimpleName() + "." + declaredMethod.getName();
 
             /*
              * There are 3 different supported ways of passing parameters to a REST endpoint:
              * 1. Path parameters: @PathVariable, /user/{id}
              * 2. Query parameters: @RequestParam, /?param=value
              * 3. Body parameters: @RequestBody, { json: value }
+             * And files, which are sent as they are: MultipartFile, { body: formData } or @RequestBody byte[], { body: value }
              */
 
 
             var parametersList = new ArrayList<TypescriptGenerator.TsProperty>();
+            var deltaSync = declaredMethod.getAnnotation(DeltaSync.class);
+            if (deltaSync != null && mappingType.getType() != EndpointCatalog.RequestMappingType.MappingType.GET) {
+                throw new IllegalArgumentException("Expected method with @DeltaSync to be a GET: " + declaredMethod);
+            }
+            String deltaCursorType = null;
 
-            var requestOptions = new HashMap<String, String>();
-            var requestOptionsSearchParams = new HashMap<String, String>();
+            // Sorted, so that the generated code is always the same
+            var requestOptions = new TreeMap<String, String>();
+            var queryParameters = new QueryParameters();
+            var formDataFields = new CodeWriter();
+            var binaryParameterNames = new ArrayList<String>();
+            // The locals of the generated method must not redeclare one of its parameters
+            var parameterNames = endpointParameters.stream()
+                .map(EndpointParameter::name)
+                .toList();
+            String searchParamsName = getLocalName("searchParams", parameterNames);
+            String formDataName = getLocalName("formData", parameterNames);
 
-            for (int i = 0; i < parameters.length; i++) {
-                var parameter = parameters[i];
-                String parameterName = parameterNames[i];
+            for (EndpointParameter endpointParameter : endpointParameters) {
+                var parameter = endpointParameter.parameter();
+                String parameterName = endpointParameter.name();
+                var binaryParameter = endpointParameter.binary();
                 var tsProperty = new TypescriptGenerator.TsProperty(
                     parameterName,
-                    addImport.apply(gen.addValue(parameter.getParameterizedType())),
+                    binaryParameter != null
+                        ? new TypescriptGenerator.TsPrimitive(binaryParameter.isArray() ? "Blob[]" : "Blob")
+                        : addImport.apply(gen.addValue(parameter.getParameterizedType())),
                     false);
-                parametersList.add(tsProperty);
-
-                if (parameter.isAnnotationPresent(RequestBody.class)) {
-                    requestOptions.put("json", parameterName);
-                } else if (parameter.isAnnotationPresent(PathVariable.class)) {
-                    // Handled further down
+                if (deltaSync != null && parameterName.equals(deltaSync.cursor())) {
+                    if (endpointParameter.kind() != EndpointParameter.Kind.QUERY) {
+                        throw new IllegalArgumentException("Expected the cursor of @DeltaSync method to be a query parameter: " + declaredMethod);
+                    }
+                    // The first sync has no cursor yet
+                    deltaCursorType = tsProperty.getValue()
+                        .getName();
+                    parametersList.add(new TypescriptGenerator.TsProperty(parameterName, new TypescriptGenerator.TsPrimitive(deltaCursorType + " | undefined"), false));
                 } else {
-                    // Query parameters
-                    if (tsProperty.getValue() instanceof TypescriptGenerator.TsInterface tsInterfaceProperty) {
-                        // We also have to handle the object case. This makes the logic here a bit more fun, because we have to "destructure" the object.
-                        // TODO: How are super-nested objects handled?
-                        tsInterfaceProperty.getProperties()
-                            .forEach(property -> {
-                                requestOptionsSearchParams.put("'" + property.getName() + "'", parameterName + "." + property.getName());
-                            });
-                    } else {
-                        requestOptionsSearchParams.put("'" + parameterName + "'", parameterName);
+                    parametersList.add(tsProperty);
+                }
+
+                if (binaryParameter != null) {
+                    binaryParameterNames.add(parameterName);
+                }
+                switch (endpointParameter.kind()) {
+                    case MULTIPART -> {
+                        // Files are streamed as they are, instead of being turned into JSON
+                        String fieldName = getMultipartName(parameter, parameterName);
+                        if (binaryParameter.isArray()) {
+                            String elementName = getLocalName("value", List.of(parameterName, formDataName));
+                            formDataFields.writeLine("for (const ", elementName, " of ", parameterName, ") ", formDataName, ".append('", fieldName, "', ",
+                                elementName, ");");
+                        } else {
+                            formDataFields.writeLine(formDataName, ".append('", fieldName, "', ", parameterName, ");");
+                        }
+                    }
+                    case BODY -> requestOptions.put(binaryParameter != null ? "body" : "json", parameterName);
+                    case PATH -> {
+                        // Handled further down
                     }
+                    // Query parameters, objects get "destructured"
+                    case QUERY -> queryParameters.add(parameterName, tsProperty.getValue());
                 }
             }
 
-            if (!requestOptionsSearchParams.isEmpty()) {
-                requestOptions.put("searchParams", "filterSearchParams(" + toJsonArray(requestOptionsSearchParams) + ")");
+            if (deltaSync != null && deltaCursorType == null) {
+                throw new IllegalArgumentException("Expected method with @DeltaSync to have a parameter named " + deltaSync.cursor() + ": " + declaredMethod);
+            }
+
+            var body = new CodeWriter();
+
+            if (!queryParameters.isEmpty()) {
+                queryParameters.writeTsBuilder(body, searchParamsName);
+                requestOptions.put("searchParams", searchParamsName);
+            }
+            // Only the resumable upload sends its file without the query parameters
+            var resumableBody = new CodeWriter();
+            resumableBody.writeLines(body);
+            if (!formDataFields.isEmpty()) {
+                body.writeLine("const ", formDataName, " = new FormData();");
+                body.writeLines(formDataFields);
+                requestOptions.put("body", formDataName);
             }
 
             // / The path variable syntax basically matches the Javascript string interpolation syntax...so we're using that
             String path = mappingType.getPath()
-                .isBlank() ? "" : (mappingType.getPath()
-                .replaceAll("^/", "")
-                .replaceAll("\\{", "\\${"));
+                .isBlank() ? "" : StringUtils.toTemplatePath(toParameterPath(mappingType.getPath(), pathVariables));
 
-            var body = new CodeWriter();
+            var streamingResponse = getStreamingResponse(declaredMethod);
+            if (streamingResponse != null) {
+                // Streamed elements are parsed one by one, instead of waiting for the whole body
+                var elementType = addImport.apply(gen.addValue(streamingResponse.elementType()));
+                String streamFunction = streamingResponse.format() == StreamingResponse.Format.SSE ? "streamServerSentEvents" : "streamJsonLines";
+                String mediaType = streamingResponse.format() == StreamingResponse.Format.SSE ? "text/event-stream" : "application/x-ndjson";
+                serviceFunctions.add(streamFunction);
+                requestOptions.put("headers", "{ accept: '" + mediaType + "' }");
+
+                body.writeLine(
+                    "return ", streamFunction, "<", elementType.getName(), ">(api.", mappingType.getType()
+                        .name()
+                        .toLowerCase(Locale.ROOT),
+                    "(`",
+                    path,
+                    "`, ",
+                    toJsonObject(requestOptions, REQUEST_OPTIONS_NAME),
+                    "));"
+                );
 
-            var returnType = addImport.apply(gen.addValue(declaredMethod.getGenericReturnType()));
-            boolean returnsVoid = returnType instanceof TypescriptGenerator.TsPrimitive tsPrimitive && tsPrimitive.getName()
-                .equals("void");
+                var methodParameters = new ArrayList<>(parametersList);
+                methodParameters.add(new TypescriptGenerator.TsProperty(REQUEST_OPTIONS_NAME, new TypescriptGenerator.TsPrimitive("RequestOptions"), true));
+                methods.add(new TypescriptGenerator.TsMethod(false,
+                    declaredMethod.getName(),
+                    methodParameters,
+                    new TypescriptGenerator.TsAsyncIterable(elementType),
+                    body,
+                    metricsName));
+                continue;
+            }
 
-            body.writeLine(
-                (returnsVoid ? "await " : "return ") + "api." + mappingType.getType()
+            // Files are downloaded as a Blob, instead of being parsed as JSON
+            boolean returnsBinary = isBinaryType(declaredMethod.getReturnType());
+            var returnType = returnsBinary
+                ? new TypescriptGenerator.TsPrimitive("Blob")
+                : addImport.apply(gen.addValue(declaredMethod.getGenericReturnType()));
+
+            // The scheduler decides when the request is sent, the more urgent ones go first
+            String priority = "'" + getRequestPriority(declaredMethod, mappingType.getType()).name()
+                .toLowerCase(Locale.ROOT) + "'";
+            // Reads that are made in the same tick are sent together, see BatchControllerGenerator
+            boolean isBatched = BatchControllerGenerator.isBatchable(EndpointCatalog.toRoute(endpointClass, declaredMethod, mappingType));
+            String request;
+            if (isBatched) {
+                request = "batch(" + priority + ", `" + path + "`, " + toJsonObject(requestOptions, REQUEST_OPTIONS_NAME) + ")";
+            } else {
+                request = "schedule(" + priority + ", () => api." + mappingType.getType()
                     .name()
-                    .toLowerCase(Locale.ROOT),
-                "(`",
-                path,
-                "`",
-                requestOptions.size() > 0 ? ", " + toJsonObject(requestOptions) : "",
-                ")" + (returnsVoid ? "" : ".json();")
-            );
+                    .toLowerCase(Locale.ROOT)
+                    + "(`" + path + "`, "
+                    + (requestOptions.size() > 0 ? toJsonObject(requestOptions, REQUEST_OPTIONS_NAME) : REQUEST_OPTIONS_NAME)
+                    + "), " + REQUEST_OPTIONS_NAME + "?.signal)";
+            }
+
+            var resiliencePolicy = getResiliencePolicy(declaredMethod, mappingType.getType());
+            if (resiliencePolicy != null) {
+                // Every attempt gets its own signal, so that the slower hedged request can be cancelled.
+                // ky must not retry by itself, otherwise the retries would multiply.
+                // Every attempt waits for its own slot, so a retry doesn't block a slot while it waits.
+                String resilienceName = declaredMethod.getName() + "Resilience";
+                serviceFunctions.add("resilience");
+                declarations.writeLine("const ", resilienceName, " = resilience(", resiliencePolicy.toTsObject(), ");");
+                String attemptOptions = toJsonObject(requestOptions, REQUEST_OPTIONS_NAME, "signal", "retry: 0");
+                if (isBatched) {
+                    request = resilienceName + "((signal) => batch(" + priority + ", `" + path + "`, " + attemptOptions + "), "
+                        + REQUEST_OPTIONS_NAME + "?.signal)";
+                } else {
+                    request = resilienceName + "((signal) => schedule(" + priority + ", () => api." + mappingType.getType()
+                        .name()
+                        .toLowerCase(Locale.ROOT)
+                        + "(`" + path + "`, " + attemptOptions + "), signal), " + REQUEST_OPTIONS_NAME + "?.signal)";
+                }
+            }
+
+            // Mutations make cached GET responses outdated, and the entities in them
+            var invalidationCode = new CodeWriter();
+            var invalidatedPaths = invalidations.getInvalidatedPaths(declaredMethod);
+            if (!invalidatedPaths.isEmpty()) {
+                serviceFunctions.add("invalidateCache");
+                invalidationCode.writeLine("invalidateCache([", invalidatedPaths.stream()
+                    .map(v -> "`" + StringUtils.toTemplatePath(toParameterPath(v, pathVariables)) + "`")
+                    .collect(Collectors.joining(", ")), "]);");
+            }
+            getEntityEvictions(invalidations.getInvalidatedRoutes(declaredMethod), gen, entityStores).forEach((storeName, keyParameters) -> {
+                entityStoreNames.add(storeName);
+                if (keyParameters.isEmpty()) {
+                    invalidationCode.writeLine(storeName, ".clear();");
+                } else {
+                    keyParameters.forEach(v -> invalidationCode.writeLine(storeName, ".delete(", pathVariables.get(v), ");"));
+                }
+            });
+
+            // Large responses can be parsed in a worker, instead of blocking the main thread
+            var workerDecoding = returnsBinary ? null : declaredMethod.getAnnotation(WorkerDecoding.class);
+            if (workerDecoding != null) {
+                decodesInWorker = true;
+            }
+
+            writeResponseHandling(body, request, returnType, returnsBinary, workerDecoding, invalidationCode, entityStores, entityStoreNames);
+
+            // Every method can be cancelled or given a different timeout
+            var methodParameters = new ArrayList<>(parametersList);
+            methodParameters.add(new TypescriptGenerator.TsProperty(REQUEST_OPTIONS_NAME, new TypescriptGenerator.TsPrimitive("RequestOptions"), true));
 
             methods.add(new TypescriptGenerator.TsMethod(true,
                 declaredMethod.getName(),
-                parametersList,
+                methodParameters,
                 returnType,
-                body));
+                body,
+                metricsName));
+
+            var resumableUpload = declaredMethod.getAnnotation(ResumableUpload.class);
+            if (resumableUpload != null) {
+                if (binaryParameterNames.size() != 1) {
+                    throw new IllegalArgumentException("Expected method with @ResumableUpload to have exactly one file parameter: " + declaredMethod);
+                }
+                // The file gets sent in chunks, with the raw bytes as the body
+                var chunkOptions = new TreeMap<>(requestOptions);
+                chunkOptions.remove("json");
+                chunkOptions.put("body", "chunk");
+                chunkOptions.put("headers", "headers");
+                serviceFunctions.add("uploadInChunks");
+                serviceTypes.add("UploadOptions");
+                String chunkRequest = "uploadInChunks(" + binaryParameterNames.get(0) + ", " + resumableUpload.chunkSize()
+                    + ", (chunk, headers) => api." + mappingType.getType()
+                    .name()
+                    .toLowerCase(Locale.ROOT)
+                    + "(`" + path + "`, " + toJsonObject(chunkOptions, REQUEST_OPTIONS_NAME) + "), " + REQUEST_OPTIONS_NAME + ")";
+                writeResponseHandling(resumableBody, chunkRequest, returnType, returnsBinary, workerDecoding, invalidationCode, entityStores, entityStoreNames);
+
+                var resumableParameters = new ArrayList<>(parametersList);
+                resumableParameters.add(new TypescriptGenerator.TsProperty(REQUEST_OPTIONS_NAME, new TypescriptGenerator.TsPrimitive("UploadOptions"), true));
+                methods.add(new TypescriptGenerator.TsMethod(true,
+                    declaredMethod.getName() + "Resumable",
+                    resumableParameters,
+                    returnType,
+                    resumableBody));
+            }
+
+            var cachedKeyParameter = getCachedKeyParameter(mappingType, returnType, endpointParameters);
+            if (cachedKeyParameter != null) {
+                // Looking up an entity by its key can be answered by the entity store
+                String storeName = EntityStoreGenerator.getStoreName((TypescriptGenerator.TsInterface) returnType);
+                entityStoreNames.add(storeName);
+                var cachedBody = new CodeWriter();
+                cachedBody.writeLine("return ", storeName, ".get(", cachedKeyParameter, ") ?? ", declaredMethod.getName(), "(", cachedKeyParameter, ", ", REQUEST_OPTIONS_NAME, ");");
+                methods.add(new TypescriptGenerator.TsMethod(true,
+                    declaredMethod.getName() + "Cached",
+                    methodParameters,
+                    returnType,
+                    cachedBody));
+            }
+
+            if (deltaSync != null) {
+                // Polled collections only fetch what changed since the last sync
+                var entity = (TypescriptGenerator.TsInterface) addImport.apply(getDeltaSyncEntity(declaredMethod, returnType));
+                var keyProperty = entity.getKeyProperty();
+                String keyType = keyProperty.getValue()
+                    .getName();
+                serviceFunctions.add("deltaSync");
+                serviceTypes.add("DeltaSync");
+
+                var syncBody = new CodeWriter();
+                syncBody.writeLine(
+                    "return deltaSync<", keyType, ", ", entity.getName(), ", ", deltaCursorType, ">(",
+                    "(cursor, ", REQUEST_OPTIONS_NAME, ") => ", declaredMethod.getName(), "(",
+                    parametersList.stream()
+                        .map(v -> v.getName()
+                            .equals(deltaSync.cursor()) ? "cursor, " : v.getName() + ", ")
+                        .collect(Collectors.joining()),
+                    REQUEST_OPTIONS_NAME, "), (entity) => entity.", keyProperty.getName(), ");"
+                );
+                methods.add(new TypescriptGenerator.TsMethod(false,
+                    declaredMethod.getName() + "Sync",
+                    parametersList.stream()
+                        .filter(v -> !v.getName()
+                            .equals(deltaSync.cursor()))
+                        .toList(),
+                    new TypescriptGenerator.TsPrimitive("DeltaSync<" + keyType + ", " + entity.getName() + ">"),
+                    syncBody));
+            }
+
+            if (mappingType.getType() == EndpointCatalog.RequestMappingType.MappingType.GET && !queryParameters.isEmpty()) {
+                // Searches get fired off all the time, and only the latest result is interesting
+                String latestWinsName = declaredMethod.getName() + "LatestWins";
+                serviceFunctions.add("latestWins");
+                declarations.writeLine("const ", latestWinsName, " = latestWins();");
+
+                var latestBody = new CodeWriter();
+                latestBody.writeLine(
+                    "return ", latestWinsName, "((signal) => ", declaredMethod.getName(), "(",
+                    parametersList.stream()
+                        .map(v -> v.getName() + ", ")
+                        .collect(Collectors.joining()),
+                    "{ ...", REQUEST_OPTIONS_NAME, ", signal }), ", REQUEST_OPTIONS_NAME, "?.signal);"
+                );
+                methods.add(new TypescriptGenerator.TsMethod(true,
+                    declaredMethod.getName() + "Latest",
+                    methodParameters,
+                    returnType,
+                    latestBody));
+            }
         }
 
+        output.writeLines(declarations);
         methods.forEach(v -> output.writeLines(v.getCode()));
 
+        var serviceImports = new CodeWriter();
+        serviceImports.writeLine("import { ", String.join(", ", serviceFunctions), " } from './service';");
+        serviceImports.writeLine("import type { ", String.join(", ", serviceTypes), " } from './service';");
+        if (!entityStoreNames.isEmpty()) {
+            serviceImports.writeLine("import { ", String.join(", ", entityStoreNames), " } from './entity-stores';");
+        }
+        if (methods.stream()
+            .anyMatch(TypescriptGenerator.TsMethod::hasMetrics)) {
+            serviceImports.writeLine("import { endpointMetricsEnabled, measureCall } from './endpoint-metrics';");
+        }
+        if (decodesInWorker) {
+            serviceImports.writeLine("import { decodeInWorker } from './json-decoder';");
+        }
+        serviceImports.writeLines(imports);
+
         output.writeLine("return {");
         output.beginIndent();
         methods.forEach(v -> output.writeLine(v.getName() + ","));
@@ -262,33 +707,65 @@ public class EndpointGenerator {
         output.writeLine("}");
 
         var outputFile = new OutputFile(
-            basePath.resolve("./services/" + toTsFileName(name, true)),
+            outputDirectory.resolve("./services/" + NamingUtils.toTsFileName(name, true)),
             autogeneratedHeader() + "\n"
-                + imports.toCode(0) + "\n"
+                + serviceImports.toCode(0) + "\n"
                 + output.toCode(0)
         );
 
         return List.of(outputFile);
     }
 
-    private static String toJsonArray(Map<String, String> obj) {
-        return "[" +
-            obj.entrySet()
-                .stream()
-                .map(entry -> "[" + entry.getKey() + ", " + entry.getValue() + "]")
+    private static String toJsonObject(Map<String, String> obj, String spreadObject, String... overrides) {
+        return "{ " +
+            Stream.of(
+                    obj.entrySet()
+                        .stream()
+                        .map(entry -> entry.getKey() + ": " + entry.getValue()),
+                    Stream.of("..." + spreadObject),
+                    Arrays.stream(overrides)
+                )
+                .flatMap(v -> v)
                 .collect(Collectors.joining(", ")) +
-            "]";
+            " }";
     }
 
-    private static String toJsonObject(Map<String, String> obj) {
-        return "{" +
-            (obj.size() > 0 ? " " : "") +
-            obj.entrySet()
-                .stream()
-                .map(entry -> entry.getKey() + ": " + entry.getValue())
-                .collect(Collectors.joining(", ")) +
-            (obj.size() > 0 ? " " : "") +
-            "}";
+    /**
+     * Gets how the requests of an endpoint method are retried and hedged, see {@link Resilience}.
+     *
+     * @return the policy, or null if the method must only be sent once.
+     */
+    private static ResiliencePolicy getResiliencePolicy(Method endpointMethod, EndpointCatalog.RequestMappingType.MappingType type) {
+        var annotation = endpointMethod.getAnnotation(Resilience.class);
+        boolean isRetryable = type == EndpointCatalog.RequestMappingType.MappingType.GET
+            || (type == EndpointCatalog.RequestMappingType.MappingType.PUT && annotation != null);
+        if (annotation != null && !isRetryable) {
+            throw new IllegalArgumentException("Expected @Resilience only on GET and PUT methods, but " + endpointMethod + " is a " + type);
+        }
+        if (!isRetryable || getStreamingResponse(endpointMethod) != null) {
+            return null;
+        }
+        if (annotation == null) {
+            return new ResiliencePolicy(2, 100, 2000, 0);
+        }
+        if (annotation.retries() < 0 || annotation.hedgePercentile() < 0 || annotation.hedgePercentile() >= 1) {
+            throw new IllegalArgumentException("Expected @Resilience with retries >= 0 and 0 <= hedgePercentile < 1 on " + endpointMethod);
+        }
+        return new ResiliencePolicy(annotation.retries(), annotation.baseDelay(), annotation.maxDelay(), annotation.hedgePercentile());
+    }
+
+    /**
+     * Gets how urgent the requests of an endpoint method are, see {@link RequestPriority}.
+     */
+    private static RequestPriority.Level getRequestPriority(Method endpointMethod, EndpointCatalog.RequestMappingType.MappingType type) {
+        var annotation = endpointMethod.getAnnotation(RequestPriority.class);
+        if (annotation != null) {
+            return annotation.value();
+        }
+        if (type != EndpointCatalog.RequestMappingType.MappingType.GET) {
+            return RequestPriority.Level.HIGH;
+        }
+        return isBinaryType(endpointMethod.getReturnType()) ? RequestPriority.Level.LOW : RequestPriority.Level.NORMAL;
     }
 
     private static String autogeneratedHeader() {
@@ -300,88 +777,449 @@ public class EndpointGenerator {
     }
 
     /**
-     * Takes a camelCase or PascalCase Java file name and outputs a corresponding snake-case
-     * Typescript file name.
+     * Gets the names of the parameters of a method.
      *
-     * <p>Regarding the ".ts" extension, sadly Typescript doesn't support imports with a
-     * proper file extension. Hence, this function has an option to exclude the file extension.
-     * </p>
+     * <p>Spring Boot compiles with {@code -parameters}, so the names are usually in the class file. Only otherwise
+     * Spring gets loaded, which is a noticeable part of the startup time.</p>
+     */
+    static String[] getParameterNames(Method method) {
+        var parameters = method.getParameters();
+        if (Arrays.stream(parameters)
+            .allMatch(Parameter::isNamePresent)) {
+            return Arrays.stream(parameters)
+                .map(Parameter::getName)
+                .toArray(String[]::new);
+        }
+
+        var parameterNames = SpringParameterNames.DISCOVERER.getParameterNames(method);
+        if (parameterNames == null || parameterNames.length < parameters.length) {
+            parameterNames = Arrays.stream(parameters)
+                .map(Parameter::getName)
+                .toArray(String[]::new);
+        }
+        return parameterNames;
+    }
+
+    /**
+     * Holds the Spring parameter name discoverer, so that Spring only gets loaded on the first use.
+     */
+    private static class SpringParameterNames {
+        // Spring has some really neat utilities
+        static final DefaultParameterNameDiscoverer DISCOVERER = new DefaultParameterNameDiscoverer();
+    }
+
+    /**
+     * Gets a name for a local variable of a generated method that is not already taken, like by one of the parameters.
      *
-     * @param name             the Java file name.
-     * @param includeExtension whether the ".ts" extension should be included or not.
-     * @return the Typescript file name.
+     * @param name      the preferred name.
+     * @param usedNames the names that the local variable must not hide or redeclare.
      */
-    private static String toTsFileName(String name, boolean includeExtension) {
-        return TypescriptGenerator.camelCaseToSnakeCase(name) + (includeExtension ? ".ts" : "");
+    static String getLocalName(String name, Collection<String> usedNames) {
+        while (usedNames.contains(name)) {
+            name += "_";
+        }
+        return name;
     }
 
+    /**
+     * Writes the code that sends the request, and then handles its response.
+     *
+     * @param body             where the code gets written to.
+     * @param request          the code that sends the request, it has to evaluate to a ky ResponsePromise.
+     * @param returnType       the type of the response body.
+     * @param returnsBinary    true if the response body is a file.
+     * @param workerDecoding   parses the response body in a worker, or null to parse it on the main thread.
+     * @param invalidationCode runs after the request succeeded.
+     * @param entityStores     remembers the returned entities.
+     * @param entityStoreNames the names that the code uses from the generated entity stores file get added to this.
+     */
+    private static void writeResponseHandling(CodeWriter body, String request, TypescriptGenerator.TsValue returnType, boolean returnsBinary,
+                                              WorkerDecoding workerDecoding, CodeWriter invalidationCode, EntityStoreGenerator entityStores,
+                                              Set<String> entityStoreNames) {
+        boolean returnsVoid = returnType instanceof TypescriptGenerator.TsPrimitive tsPrimitive && tsPrimitive.getName()
+            .equals("void");
+        String json;
+        if (workerDecoding == null) {
+            json = request + ".json<" + returnType.getName() + ">()";
+        } else if (workerDecoding.minSize() == WorkerDecoding.DEFAULT_MIN_SIZE) {
+            json = "decodeInWorker<" + returnType.getName() + ">(" + request + ")";
+        } else {
+            json = "decodeInWorker<" + returnType.getName() + ">(" + request + ", " + workerDecoding.minSize() + ")";
+        }
+        // Returned entities end up in the entity stores
+        String rememberResult = returnsVoid || returnsBinary ? null : entityStores.remember(returnType, "await " + json, entityStoreNames);
+
+        if (invalidationCode.isEmpty()) {
+            if (returnsVoid) {
+                body.writeLine("await ", request);
+            } else if (returnsBinary) {
+                body.writeLine("return ", request, ".blob();");
+            } else if (rememberResult != null) {
+                body.writeLine("return ", rememberResult, ";");
+            } else {
+                body.writeLine("return ", workerDecoding == null ? request + ".json()" : json, ";");
+            }
+        } else if (returnsVoid) {
+            body.writeLine("await ", request, ";");
+            body.writeLines(invalidationCode);
+        } else {
+            body.writeLine("const result = await ", returnsBinary ? request + ".blob()" : json, ";");
+            body.writeLines(invalidationCode);
+            // Only now, otherwise the returned entities would be evicted right away
+            String rememberedResult = rememberResult == null ? null : entityStores.remember(returnType, "result", entityStoreNames);
+            body.writeLine("return ", rememberedResult == null ? "result" : rememberedResult, ";");
+        }
+    }
+
+    /**
+     * Checks if a parameter is a file, like a {@code MultipartFile} or a {@code @RequestBody byte[]}.
+     * The types are compared by name, so that the generator does not depend on Spring's multipart support.
+     *
+     * @return how the file gets sent, or null if the parameter is not a file.
+     */
+    static BinaryParameter getBinaryParameter(Parameter parameter) {
+        var type = parameter.getParameterizedType();
+        if (isMultipartFile(type)) {
+            return new BinaryParameter(true, false);
+        } else if (type instanceof Class<?> typeClass && typeClass.isArray() && isMultipartFile(typeClass.getComponentType())) {
+            return new BinaryParameter(true, true);
+        } else if (type instanceof ParameterizedType parameterizedType
+            && parameterizedType.getRawType() instanceof Class<?> rawClass
+            && Collection.class.isAssignableFrom(rawClass)
+            && isMultipartFile(parameterizedType.getActualTypeArguments()[0])) {
+            return new BinaryParameter(true, true);
+        } else if (parameter.isAnnotationPresent(RequestBody.class) && isBinaryType(parameter.getType())) {
+            return new BinaryParameter(false, false);
+        }
+        return null;
+    }
+
+    private static boolean isMultipartFile(Type type) {
+        return type instanceof Class<?> typeClass && typeClass.getName()
+            .equals("org.springframework.web.multipart.MultipartFile");
+    }
 
     /**
-     * Takes a path and joins it with "/"s.
+     * Checks if a request or response body is raw bytes.
      */
-    private static String toTsFilePath(List<String> path) {
-        return path.stream()
-            .map(v -> v + "/")
-            .collect(Collectors.joining());
+    static boolean isBinaryType(Class<?> type) {
+        return type == byte[].class
+            || InputStream.class.isAssignableFrom(type)
+            || type.getName()
+            .equals("org.springframework.core.io.Resource");
     }
 
-    private static RequestMappingType getMappingType(Method endpointMethod) {
-        {
-            var annotation = endpointMethod.getAnnotation(GetMapping.class);
-            if (annotation != null) {
-                return new RequestMappingType(RequestMappingType.MappingType.GET, String.join("/", annotation.value()));
+    /**
+     * Gets the name of the multipart form field, which is the parameter name unless the annotation says otherwise.
+     */
+    static String getMultipartName(Parameter parameter, String parameterName) {
+        var requestParam = parameter.getAnnotation(RequestParam.class);
+        if (requestParam != null) {
+            if (!requestParam.value()
+                .isEmpty()) {
+                return requestParam.value();
+            } else if (!requestParam.name()
+                .isEmpty()) {
+                return requestParam.name();
             }
         }
-        {
-            var annotation = endpointMethod.getAnnotation(PostMapping.class);
-            if (annotation != null) {
-                return new RequestMappingType(RequestMappingType.MappingType.POST, String.join("/", annotation.value()));
+        var requestPart = parameter.getAnnotation(RequestPart.class);
+        if (requestPart != null) {
+            if (!requestPart.value()
+                .isEmpty()) {
+                return requestPart.value();
+            } else if (!requestPart.name()
+                .isEmpty()) {
+                return requestPart.name();
             }
         }
-        {
-            var annotation = endpointMethod.getAnnotation(PutMapping.class);
-            if (annotation != null) {
-                return new RequestMappingType(RequestMappingType.MappingType.PUT, String.join("/", annotation.value()));
+        return parameterName;
+    }
+
+    /**
+     * Gets the parameters of an endpoint method that a client sends, in order. The Typescript services, the Java
+     * clients and the load tester all go through this, so that they send the same requests. Parameters that Spring
+     * fills in by itself, see {@link #isInjectedParameter}, are left out. Query parameters of a type without a
+     * Typescript equivalent, like a BigDecimal, are still sent, as {@code any}.
+     *
+     * @param method an endpoint method.
+     * @param gen    figures out the types of the query parameters.
+     */
+    static List<EndpointParameter> getEndpointParameters(Method method, TypescriptGenerator gen) {
+        var parameters = method.getParameters();
+        var parameterNames = getParameterNames(method);
+        var endpointParameters = new ArrayList<EndpointParameter>();
+        for (int i = 0; i < parameters.length; i++) {
+            var parameter = parameters[i];
+            var binaryParameter = getBinaryParameter(parameter);
+            var pathVariable = parameter.getAnnotation(PathVariable.class);
+            EndpointParameter.Kind kind;
+            String pathVariableName = null;
+            if (binaryParameter != null && binaryParameter.isMultipart()) {
+                kind = EndpointParameter.Kind.MULTIPART;
+            } else if (parameter.isAnnotationPresent(RequestBody.class)) {
+                kind = EndpointParameter.Kind.BODY;
+            } else if (pathVariable != null) {
+                kind = EndpointParameter.Kind.PATH;
+                // Spring matches "{id}" to @PathVariable("id") Long eventId
+                pathVariableName = !pathVariable.value()
+                    .isEmpty() ? pathVariable.value() : !pathVariable.name()
+                    .isEmpty() ? pathVariable.name() : parameterNames[i];
+            } else if (isInjectedParameter(parameter)) {
+                continue;
+            } else {
+                kind = EndpointParameter.Kind.QUERY;
             }
+            endpointParameters.add(new EndpointParameter(parameterNames[i], parameter, kind, pathVariableName, binaryParameter));
+        }
+        return endpointParameters;
+    }
+
+    /**
+     * Checks if Spring fills in a parameter by itself, like the Authentication or the HttpServletRequest.
+     * The types are compared by name, so that the generator does not depend on Spring Security or the Servlet API.
+     */
+    static boolean isInjectedParameter(Parameter parameter) {
+        if (Arrays.stream(parameter.getAnnotations())
+            .anyMatch(v -> v.annotationType()
+                .getName()
+                .equals("org.springframework.security.core.annotation.AuthenticationPrincipal"))) {
+            return true;
         }
-        {
-            var annotation = endpointMethod.getAnnotation(PatchMapping.class);
-            if (annotation != null) {
-                return new RequestMappingType(RequestMappingType.MappingType.PATCH, String.join("/", annotation.value()));
+        var types = new ArrayList<Class<?>>();
+        types.add(parameter.getType());
+        // Also the supertypes, an Authentication is a Principal and a BindingResult is an Errors
+        for (int i = 0; i < types.size(); i++) {
+            var type = types.get(i);
+            if (INJECTED_PARAMETER_TYPES.contains(type.getName())) {
+                return true;
+            }
+            if (type.getSuperclass() != null) {
+                types.add(type.getSuperclass());
             }
+            types.addAll(Arrays.asList(type.getInterfaces()));
         }
-        {
-            var annotation = endpointMethod.getAnnotation(DeleteMapping.class);
-            if (annotation != null) {
-                return new RequestMappingType(RequestMappingType.MappingType.DELETE, String.join("/", annotation.value()));
+        return false;
+    }
+
+    /**
+     * Gets the parameter name of every path variable, like "id" to "eventId".
+     */
+    static Map<String, String> getPathVariables(List<EndpointParameter> endpointParameters) {
+        return endpointParameters.stream()
+            .filter(v -> v.kind() == EndpointParameter.Kind.PATH)
+            .collect(Collectors.toMap(EndpointParameter::pathVariable, EndpointParameter::name));
+    }
+
+    /**
+     * Renames the path variables of a path to their parameter names, like "events/{id:[0-9]+}" to "events/{eventId}".
+     *
+     * @param pathVariables the parameter name of every path variable, see {@link #getPathVariables}.
+     */
+    static String toParameterPath(String path, Map<String, String> pathVariables) {
+        var segments = StringUtils.split(path, "/");
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                // Spring also supports {name:regex}
+                int regexStart = segment.indexOf(':');
+                String pathVariable = segment.substring(1, regexStart == -1 ? segment.length() - 1 : regexStart);
+                if (!pathVariables.containsKey(pathVariable)) {
+                    throw new IllegalArgumentException("Expected a @PathVariable for {" + pathVariable + "} in " + path);
+                }
+                segments[i] = "{" + pathVariables.get(pathVariable) + "}";
             }
         }
-        return null;
+        return String.join("/", segments);
     }
 
-    private static class RequestMappingType {
-        enum MappingType {
-            GET, PUT, POST, PATCH, DELETE
+    /**
+     * Finds the entities that can be outdated after a mutation, which are all entities in the responses of the
+     * invalidated GET routes. A route that looks up one entity by a path variable of the mutation, like
+     * "tickets/{id}" after a PUT on "tickets/{id}/cancelation", only outdates that entity.
+     *
+     * @return the key parameters of the outdated entities by their store name, an empty set if the whole store
+     *     is outdated.
+     */
+    private static Map<String, Set<String>> getEntityEvictions(List<InvalidationGraph.InvalidatedRoute> invalidatedRoutes, TypescriptGenerator gen,
+                                                               EntityStoreGenerator entityStores) {
+        var evictions = new TreeMap<String, Set<String>>();
+        for (InvalidationGraph.InvalidatedRoute invalidatedRoute : invalidatedRoutes) {
+            var method = invalidatedRoute.query()
+                .method();
+            // Neither of them ends up in the entity stores
+            if (getStreamingResponse(method) != null || isBinaryType(method.getReturnType())) {
+                continue;
+            }
+            var returnType = gen.addValue(method.getGenericReturnType());
+            String lookedUpStore = null;
+            String keyParameter = null;
+            var pathVariables = Arrays.stream(StringUtils.split(invalidatedRoute.pathPattern(), "/"))
+                .filter(v -> v.startsWith("{") && v.endsWith("}"))
+                .toList();
+            if (returnType instanceof TypescriptGenerator.TsInterface tsInterface && tsInterface.getKeyProperty() != null
+                && invalidatedRoute.query()
+                .getPathVariables()
+                .size() == 1 && pathVariables.size() == 1) {
+                lookedUpStore = EntityStoreGenerator.getStoreName(tsInterface);
+                keyParameter = pathVariables.get(0)
+                    .substring(1, pathVariables.get(0)
+                        .length() - 1);
+            }
+
+            for (String storeName : entityStores.getStoreNames(returnType)) {
+                var keyParameters = evictions.get(storeName);
+                if (storeName.equals(lookedUpStore)) {
+                    if (keyParameters == null) {
+                        evictions.put(storeName, new TreeSet<>(Set.of(keyParameter)));
+                    } else if (!keyParameters.isEmpty()) {
+                        keyParameters.add(keyParameter);
+                    }
+                } else {
+                    // Nested or listed entities could be any of them
+                    evictions.put(storeName, Set.of());
+                }
+            }
         }
+        return evictions;
+    }
 
-        private final MappingType type;
-        private final String path;
+    /**
+     * Checks if an endpoint method only looks up an entity by its key, like {@code @GetMapping("/{id}")}.
+     *
+     * @return the name of the key parameter, or null if the method does something else.
+     */
+    private static String getCachedKeyParameter(EndpointCatalog.RequestMappingType mappingType, TypescriptGenerator.TsValue returnType, List<EndpointParameter> parameters) {
+        if (mappingType.getType() != EndpointCatalog.RequestMappingType.MappingType.GET || parameters.size() != 1
+            || parameters.get(0)
+            .kind() != EndpointParameter.Kind.PATH) {
+            return null;
+        }
+        if (!(returnType instanceof TypescriptGenerator.TsInterface tsInterface) || tsInterface.getKeyProperty() == null) {
+            return null;
+        }
+        String parameterName = parameters.get(0)
+            .name();
+        boolean isKeyPath = StringUtils.withoutLeading(mappingType.getPath(), '/')
+            .equals("{" + parameters.get(0)
+                .pathVariable() + "}");
+        boolean isKeyName = parameterName.equals(tsInterface.getKeyProperty()
+            .getName());
+        return isKeyPath && isKeyName ? parameterName : null;
+    }
 
-        private RequestMappingType(MappingType type, String path) {
-            this.type = type;
-            this.path = path;
+    /**
+     * Checks if an endpoint method streams its response, and figures out what it is streaming.
+     * The return types are compared by name, so that the generator does not depend on Spring WebFlux.
+     *
+     * @return the streamed element type, or null if the method returns a normal response.
+     */
+    static StreamingReturnType getStreamingResponse(Method endpointMethod) {
+        var annotation = endpointMethod.getAnnotation(StreamingResponse.class);
+        if (annotation != null) {
+            return new StreamingReturnType(annotation.value(), annotation.format());
         }
 
-        public MappingType getType() {
-            return type;
+        var returnType = endpointMethod.getGenericReturnType();
+        Type rawReturnType = returnType instanceof ParameterizedType parameterizedType ? parameterizedType.getRawType() : returnType;
+        if (!(rawReturnType instanceof Class<?> returnClass)) {
+            return null;
         }
+        switch (returnClass.getName()) {
+            case "reactor.core.publisher.Flux":
+                Type elementType = returnType instanceof ParameterizedType parameterizedType
+                    ? parameterizedType.getActualTypeArguments()[0]
+                    : Object.class;
+                return new StreamingReturnType(elementType, StreamingResponse.Format.NDJSON);
+            case "org.springframework.web.servlet.mvc.method.annotation.SseEmitter":
+                return new StreamingReturnType(Object.class, StreamingResponse.Format.SSE);
+            case "org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter":
+            case "org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody":
+                return new StreamingReturnType(Object.class, StreamingResponse.Format.NDJSON);
+            default:
+                return null;
+        }
+    }
 
-        public String getPath() {
-            return path;
+    /**
+     * @param isMultipart true if the file is sent as a multipart form field, false if it is the whole request body.
+     * @param isArray     true if it is a list of files.
+     */
+    record BinaryParameter(boolean isMultipart, boolean isArray) {
+    }
+
+    /**
+     * One parameter of an endpoint method, as a client sends it.
+     *
+     * @param name         the name of the parameter in the generated code.
+     * @param kind         where the value is sent.
+     * @param pathVariable the name in the path, like "id" for "{id}", or null if it is not a path variable.
+     * @param binary       how a file is sent, or null if the parameter is not a file.
+     */
+    record EndpointParameter(String name, Parameter parameter, Kind kind, String pathVariable, BinaryParameter binary) {
+        enum Kind {
+            PATH,
+            QUERY,
+            BODY,
+            MULTIPART
+        }
+    }
+
+    /**
+     * Gets the entity of a {@link DeltaSync} method, which is the element type of the changed property of its answer.
+     */
+    private static TypescriptGenerator.TsInterface getDeltaSyncEntity(Method endpointMethod, TypescriptGenerator.TsValue returnType) {
+        TypescriptGenerator.TsInterface changes;
+        List<TypescriptGenerator.TsValue> actualTypes = List.of();
+        if (returnType instanceof TypescriptGenerator.TsInterface tsInterface) {
+            changes = tsInterface;
+        } else if (returnType instanceof TypescriptGenerator.TsInterfaceInstance instance) {
+            changes = instance.getInterface();
+            actualTypes = instance.getActualTypes();
+        } else {
+            throw new IllegalArgumentException("Expected method with @DeltaSync to return a DTO: " + endpointMethod);
+        }
+
+        var properties = changes.getProperties()
+            .stream()
+            .collect(Collectors.toMap(TypescriptGenerator.TsProperty::getName, TypescriptGenerator.TsProperty::getValue));
+        if (!properties.keySet()
+            .containsAll(List.of("cursor", "changed", "deleted", "reset"))
+            || !(properties.get("changed") instanceof TypescriptGenerator.TsArray changed)) {
+            throw new IllegalArgumentException("Expected method with @DeltaSync to return a DTO with a cursor, changed, deleted and reset: " + endpointMethod);
+        }
+
+        var entity = changed.getValue();
+        // Like DeltaDto<T>, with the entity as a type argument
+        for (int i = 0; i < changes.getGenerics()
+            .size() && i < actualTypes.size(); i++) {
+            if (changes.getGenerics()
+                .get(i)
+                .getName()
+                .equals(entity.getName())) {
+                entity = actualTypes.get(i);
+            }
+        }
+        if (!(entity instanceof TypescriptGenerator.TsInterface tsInterface) || tsInterface.getKeyProperty() == null) {
+            throw new IllegalArgumentException("Expected the changed entities of @DeltaSync method to have an id or an @EntityKey: " + endpointMethod);
         }
+        return tsInterface;
+    }
+
+    private record ResiliencePolicy(int retries, int baseDelay, int maxDelay, double hedgePercentile) {
+        /**
+         * Gets the policy as the argument of resilience() in service.ts
+         */
+        String toTsObject() {
+            return "{ retries: " + retries + ", baseDelay: " + baseDelay + ", maxDelay: " + maxDelay
+                + (hedgePercentile > 0 ? ", hedgePercentile: " + hedgePercentile : "") + " }";
+        }
+    }
+
+    record StreamingReturnType(Type elementType, StreamingResponse.Format format) {
     }
 
-    private static class OutputFile {
+    static class OutputFile {
         private final Path path;
         private final String contents;
 
@@ -0,0 +1,233 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a normalized client-side entity store for all DTOs that have a key.
+ *
+ * <p>Every entity DTO gets an {@code EntityStore} and a "remember" function. The remember function first
+ * remembers all nested entities, and then puts the entity itself into its store. If the store already knows
+ * the entity, the newer object replaces it, the older one might still be shown somewhere. The stores are cleared
+ * together by {@code clearEntityStores} in entity-store.ts.</p>
+ */
+public class EntityStoreGenerator {
+    private final Map<TypescriptGenerator.TsInterface, Boolean> hasEntitiesCache = new HashMap<>();
+    private final Set<TypescriptGenerator.TsInterface> visiting = new HashSet<>();
+
+    /**
+     * Name of the store of an entity, like "eventDetailStore".
+     */
+    public static String getStoreName(TypescriptGenerator.TsInterface tsInterface) {
+        String name = tsInterface.getName();
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1) + "Store";
+    }
+
+    /**
+     * Name of the function that remembers an interface, like "rememberEventDetail".
+     */
+    public static String getRememberName(TypescriptGenerator.TsInterface tsInterface) {
+        return "remember" + tsInterface.getName();
+    }
+
+    /**
+     * Gets the Typescript code that remembers all entities in a value.
+     *
+     * @param value      the type of the value.
+     * @param expression the code that evaluates to the value.
+     * @param imports    the names that the code uses from the generated entity stores file get added to this.
+     * @return the code that evaluates to the remembered value, or null if there is nothing to remember.
+     */
+    public String remember(TypescriptGenerator.TsValue value, String expression, Set<String> imports) {
+        String code = remember(value, expression, Set.of(), 1);
+        if (code != null) {
+            imports.addAll(getUsedNames(value));
+        }
+        return code;
+    }
+
+    /**
+     * @param generics the generic type parameters that are in scope, they get remembered by a passed in function.
+     * @param depth    used for unique variable names in nested arrow functions.
+     */
+    private String remember(TypescriptGenerator.TsValue value, String expression, Set<String> generics, int depth) {
+        if (value instanceof TypescriptGenerator.TsInterface tsInterface) {
+            return interfaceHasEntities(tsInterface) ? getRememberName(tsInterface) + "(" + expression + ")" : null;
+        } else if (value instanceof TypescriptGenerator.TsInterfaceInstance instance) {
+            var tsInterface = instance.getInterface();
+            if (!interfaceHasEntities(tsInterface)) {
+                return null;
+            }
+            String variable = "v" + depth;
+            String rememberGenerics = instance.getActualTypes()
+                .stream()
+                .map(actualType -> {
+                    String code = remember(actualType, variable, generics, depth + 1);
+                    return code == null ? "undefined" : "(" + variable + ") => " + code;
+                })
+                .map(v -> ", " + v)
+                .collect(Collectors.joining());
+            return getRememberName(tsInterface) + "(" + expression + rememberGenerics + ")";
+        } else if (value instanceof TypescriptGenerator.TsArray tsArray) {
+            String variable = "v" + depth;
+            String code = remember(tsArray.getValue(), variable, generics, depth + 1);
+            if (code == null) {
+                return null;
+            }
+            String receiver = expression.startsWith("await ") ? "(" + expression + ")" : expression;
+            return receiver + "?.map((" + variable + ") => " + code + ")";
+        } else if (value instanceof TypescriptGenerator.TsPrimitive && generics.contains(value.getName())) {
+            String rememberGeneric = "remember" + value.getName();
+            return "(" + rememberGeneric + " ? " + rememberGeneric + "(" + expression + ") : " + expression + ")";
+        }
+        return null;
+    }
+
+    /**
+     * Gets the stores of all entities that a value can contain, like "eventDetailStore" for a page of events.
+     *
+     * @param value the type of the value.
+     * @return the store names, sorted.
+     */
+    public Set<String> getStoreNames(TypescriptGenerator.TsValue value) {
+        var storeNames = new TreeSet<String>();
+        addStoreNames(value, storeNames, new HashSet<>());
+        return storeNames;
+    }
+
+    private void addStoreNames(TypescriptGenerator.TsValue value, Set<String> storeNames, Set<TypescriptGenerator.TsInterface> visited) {
+        if (value instanceof TypescriptGenerator.TsInterface tsInterface) {
+            if (!interfaceHasEntities(tsInterface) || !visited.add(tsInterface)) {
+                return;
+            }
+            if (tsInterface.getKeyProperty() != null) {
+                storeNames.add(getStoreName(tsInterface));
+            }
+            tsInterface.getProperties()
+                .forEach(property -> addStoreNames(property.getValue(), storeNames, visited));
+        } else if (value instanceof TypescriptGenerator.TsInterfaceInstance instance) {
+            addStoreNames(instance.getInterface(), storeNames, visited);
+            instance.getActualTypes()
+                .forEach(actualType -> addStoreNames(actualType, storeNames, visited));
+        } else if (value instanceof TypescriptGenerator.TsArray tsArray) {
+            addStoreNames(tsArray.getValue(), storeNames, visited);
+        }
+    }
+
+    private boolean interfaceHasEntities(TypescriptGenerator.TsInterface tsInterface) {
+        var cached = hasEntitiesCache.get(tsInterface);
+        if (cached != null) {
+            return cached;
+        }
+        if (!visiting.add(tsInterface)) {
+            // Cyclic DTOs are not supported by the generator, this just avoids an endless loop
+            return false;
+        }
+        // Generic interfaces could contain entities, depending on the actual types
+        var generics = getGenericNames(tsInterface);
+        boolean hasEntities = tsInterface.getKeyProperty() != null || tsInterface.getProperties()
+            .stream()
+            .anyMatch(property -> remember(property.getValue(), "value", generics, 1) != null);
+        visiting.remove(tsInterface);
+        hasEntitiesCache.put(tsInterface, hasEntities);
+        return hasEntities;
+    }
+
+    private static Set<String> getGenericNames(TypescriptGenerator.TsInterface tsInterface) {
+        return tsInterface.getGenerics()
+            .stream()
+            .map(TypescriptGenerator.TsGeneric::getName)
+            .collect(Collectors.toSet());
+    }
+
+    private Set<String> getUsedNames(TypescriptGenerator.TsValue value) {
+        var names = new HashSet<String>();
+        if (value instanceof TypescriptGenerator.TsInterface tsInterface && interfaceHasEntities(tsInterface)) {
+            names.add(getRememberName(tsInterface));
+        } else if (value instanceof TypescriptGenerator.TsInterfaceInstance instance && interfaceHasEntities(instance.getInterface())) {
+            names.add(getRememberName(instance.getInterface()));
+            instance.getActualTypes()
+                .forEach(v -> names.addAll(getUsedNames(v)));
+        } else if (value instanceof TypescriptGenerator.TsArray tsArray) {
+            names.addAll(getUsedNames(tsArray.getValue()));
+        }
+        return names;
+    }
+
+    /**
+     * Generates the code of the entity stores file.
+     *
+     * @param interfaces all interfaces, they have to be frozen.
+     * @return the imports and code, or null if there are no entities.
+     */
+    public CodeWriter getCode(List<TypescriptGenerator.TsInterface> interfaces) {
+        var interfacesWithEntities = interfaces.stream()
+            .filter(this::interfaceHasEntities)
+            .toList();
+        if (interfacesWithEntities.isEmpty()) {
+            return null;
+        }
+
+        var code = new CodeWriter();
+        code.writeLine("import { EntityStore } from './entity-store';");
+        for (var tsInterface : interfacesWithEntities) {
+            code.writeLine("import type { ", tsInterface.getName(), " } from \"", NamingUtils.toDtoImportPath(tsInterface.getPath(), tsInterface.getName()), "\"");
+        }
+        code.writeLine();
+
+        for (var tsInterface : interfacesWithEntities) {
+            var keyProperty = tsInterface.getKeyProperty();
+            if (keyProperty != null) {
+                code.writeLine("export const ", getStoreName(tsInterface), " = new EntityStore<", keyProperty.getValue()
+                    .getName(), ", ", tsInterface.getName(), ">();");
+            }
+        }
+
+        for (var tsInterface : interfacesWithEntities) {
+            code.writeLine();
+            code.writeLines(getRememberFunction(tsInterface));
+        }
+        return code;
+    }
+
+    private CodeWriter getRememberFunction(TypescriptGenerator.TsInterface tsInterface) {
+        var generics = tsInterface.getGenerics()
+            .stream()
+            .map(TypescriptGenerator.TsGeneric::getName)
+            .toList();
+        String typeName = tsInterface.getName() + (generics.isEmpty() ? "" : "<" + String.join(",", generics) + ">");
+
+        var code = new CodeWriter();
+        code.writeLine(
+            "export function ", getRememberName(tsInterface),
+            generics.isEmpty() ? "" : "<" + String.join(",", generics) + ">",
+            "(value: ", typeName,
+            generics.stream()
+                .map(v -> ", remember" + v + "?: (value: " + v + ") => " + v)
+                .collect(Collectors.joining()),
+            "): ", typeName, " {");
+        code.beginIndent();
+        code.writeLine("if (value == null) return value;");
+        for (TypescriptGenerator.TsProperty property : tsInterface.getProperties()) {
+            String propertyExpression = "value." + property.getName();
+            String rememberProperty = remember(property.getValue(), propertyExpression, Set.copyOf(generics), 1);
+            if (rememberProperty != null) {
+                code.writeLine(propertyExpression, " = ", rememberProperty, ";");
+            }
+        }
+        var keyProperty = tsInterface.getKeyProperty();
+        if (keyProperty != null) {
+            code.writeLine("return ", getStoreName(tsInterface), ".put(value.", keyProperty.getName(), ", value);");
+        } else {
+            code.writeLine("return value;");
+        }
+        code.endIndent();
+        code.writeLine("}");
+        return code;
+    }
+}
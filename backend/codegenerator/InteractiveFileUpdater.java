@@ -1,6 +1,8 @@
 package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -11,6 +13,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.HexFormat;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -19,17 +22,22 @@ import java.util.stream.Stream;
  * Updates autogenerated files, and asks the user if anything unexpected happens.
  *
  * <p>It first searches for old files, then updates them one by one,
- * and finally cleans up the remaining ones.
+ * and finally cleans up the remaining ones. The files can be checked before the first one is updated,
+ * so that a manually modified file is found before anything has been written.
  */
 public class InteractiveFileUpdater {
     private static final String FILE_HEADER_START = "/** File Hash: ";
     private static final String FILE_HEADER_END = " */\n";
+    private static final int HASH_CHUNK_SIZE = 8192;
     private final MessageDigest digest;
     private final Scanner scanner;
 
     private final Set<Path> filesToUpdate = new HashSet<>();
+    private final Set<Path> checkedFiles = new HashSet<>();
+    private final Set<Path> filesToKeep = new HashSet<>();
     private final Path directoryPath;
     private final String fileExtension;
+    private final boolean isInteractive;
 
     /**
      * Creates a new {@link InteractiveFileUpdater}.
@@ -38,8 +46,21 @@ public class InteractiveFileUpdater {
      * @param fileExtension the file extension that all autogenerated files must have.
      */
     public InteractiveFileUpdater(Path directoryPath, String fileExtension) {
-        this.directoryPath = directoryPath;
+        this(directoryPath, fileExtension, true);
+    }
+
+    /**
+     * Creates a new {@link InteractiveFileUpdater}.
+     *
+     * @param directoryPath the directory where the files to update are.
+     * @param fileExtension the file extension that all autogenerated files must have.
+     * @param isInteractive false to never ask the user, for example in a build. Manually modified files then lead
+     *                      to an exception, and old autogenerated files get removed.
+     */
+    public InteractiveFileUpdater(Path directoryPath, String fileExtension, boolean isInteractive) {
+        this.directoryPath = directoryPath.normalize();
         this.fileExtension = fileExtension;
+        this.isInteractive = isInteractive;
         try {
             digest = MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
@@ -78,17 +99,49 @@ public class InteractiveFileUpdater {
         }
     }
 
+    /**
+     * Checks a file before any file gets updated. If the old file is not an autogenerated file or has been modified,
+     * this method will ask the user right away, and {@link #interactiveUpdateFile} sticks to that answer.
+     *
+     * @param fileToUpdate the path of the file.
+     * @throws IOException if an IO error happened while accessing the file, or if it must not be overwritten
+     *                     and there is no user to ask.
+     */
+    public void checkFile(Path fileToUpdate) throws IOException {
+        var filePath = toExpectedPath(fileToUpdate);
+        if (Files.exists(filePath) && !mayOverwrite(filePath)) {
+            filesToKeep.add(filePath);
+        }
+        checkedFiles.add(filePath);
+    }
+
     /**
      * Updates one autogenerated file.
      * Will create a new file if it doesn't exist, otherwise it'll check the old file and update it.
+     * A file that already has the new contents is left as it is.
      *
-     * <p>If the old file is not an autogenerated file or has been modified, this method will ask the user.
+     * <p>If the old file is not an autogenerated file or has been modified, this method will ask the user,
+     * unless the file has already been checked.
      *
      * @param fileToUpdate the path of the file.
      * @param contents     the new contents of the file.
+     * @return true if the file has been written.
      * @throws IOException if an IO error happened while accessing the files.
      */
-    public void interactiveUpdateFile(Path fileToUpdate, String contents) throws IOException {
+    public boolean interactiveUpdateFile(Path fileToUpdate, String contents) throws IOException {
+        var filePath = toExpectedPath(fileToUpdate);
+
+        // Not ideal file handling in multithreaded environments
+        if (filesToKeep.contains(filePath)) {
+            return false;
+        }
+        if (!checkedFiles.contains(filePath) && Files.exists(filePath) && !mayOverwrite(filePath)) {
+            return false;
+        }
+        return writeFile(filePath, contents);
+    }
+
+    private Path toExpectedPath(Path fileToUpdate) {
         var filePath = fileToUpdate.normalize();
         if (!filePath.startsWith(directoryPath)) {
             throw new IllegalArgumentException("Filepath is not in expected directory " + filePath);
@@ -96,61 +149,51 @@ public class InteractiveFileUpdater {
         if (!hasExpectedExtension(filePath)) {
             throw new IllegalArgumentException("Filepath does not have the expected file extension " + filePath);
         }
+        return filePath;
+    }
 
-        // Not ideal file handling in multithreaded environments
-        if (!Files.exists(filePath)) {
-            // Safe to just update the file
-            writeFile(filePath, contents);
-            return;
+    /**
+     * Checks an old file, and asks the user if it is not an unmodified autogenerated file.
+     */
+    private boolean mayOverwrite(Path filePath) throws IOException {
+        String problem = findModification(filePath);
+        if (problem == null) {
+            return true;
         }
+        logMessage("\n[" + filePath + "]");
+        logMessage(problem);
+        return askUser("Should the file be overwritten?");
+    }
 
+    /**
+     * Checks whether an old file is an unmodified autogenerated file.
+     * Only the header line is read at once, the rest of the file goes straight into the hash.
+     *
+     * @return what is wrong with the file, or null if it can be overwritten.
+     */
+    private String findModification(Path filePath) throws IOException {
         var hexConverter = HexFormat.of();
-
-        String logHeader = "\n[" + filePath + "]";
-
-        String oldContents = Files.readString(filePath);
-        if (!oldContents.startsWith(FILE_HEADER_START)) {
-            logMessage(logHeader);
-            logMessage("Expected to find a file starting with " + FILE_HEADER_START);
-            boolean overwriteFile = askUser("Should the file be overwritten?");
-            if (overwriteFile) {
-                writeFile(filePath, contents);
+        try (var reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
+            String headerLine = Objects.requireNonNullElse(reader.readLine(), "");
+            if (!headerLine.startsWith(FILE_HEADER_START)) {
+                return "Expected to find a file starting with " + FILE_HEADER_START;
             }
-            return;
-        }
-
-        int hashStartIndex = oldContents.indexOf(FILE_HEADER_START) + FILE_HEADER_START.length();
-        int hashEndIndex = oldContents.indexOf(FILE_HEADER_END, hashStartIndex);
-        if (hashEndIndex == -1) {
-            logMessage(logHeader);
-            logMessage("Expected to find a file with a valid header that ends with " + FILE_HEADER_END.trim());
-            boolean overwriteFile = askUser("Should the file be overwritten?");
-            if (overwriteFile) {
-                writeFile(filePath, contents);
+            // Without the line break
+            String headerEnd = FILE_HEADER_END.stripTrailing();
+            if (!headerLine.endsWith(headerEnd)) {
+                return "Expected to find a file with a valid header that ends with " + FILE_HEADER_END.trim();
             }
-            return;
-        }
 
-        var hash = hexConverter.parseHex(oldContents.substring(hashStartIndex, hashEndIndex));
-        String restOfFile = oldContents.substring(hashEndIndex + FILE_HEADER_END.length());
-
-        var fileHash = getHash(stripSpaces(restOfFile));
-        if (!Arrays.equals(hash, fileHash)) {
-            logMessage(logHeader);
-            logMessage("The file has been manually modified, the header hash is "
-                + hexConverter.formatHex(hash)
-                + " but the file contents have a hash of "
-                + hexConverter.formatHex(fileHash)
-            );
-            boolean overwriteFile = askUser("Should the file be overwritten?");
-            if (overwriteFile) {
-                writeFile(filePath, contents);
+            var hash = hexConverter.parseHex(headerLine, FILE_HEADER_START.length(), headerLine.length() - headerEnd.length());
+            var fileHash = getHash(reader);
+            if (!Arrays.equals(hash, fileHash)) {
+                return "The file has been manually modified, the header hash is "
+                    + hexConverter.formatHex(hash)
+                    + " but the file contents have a hash of "
+                    + hexConverter.formatHex(fileHash);
             }
-            return;
+            return null;
         }
-
-        // Safe to just update the file
-        writeFile(filePath, contents);
     }
 
     /**
@@ -164,9 +207,13 @@ public class InteractiveFileUpdater {
         }
 
         logMessage("Other autogenerated files have been found: ");
-        filesToUpdate.forEach(v -> logMessage("  " + v.toString()));
+        // Sorted, so that the log is the same every time
+        filesToUpdate.stream()
+            .sorted()
+            .forEach(v -> logMessage("  " + v.toString()));
         logMessage("");
-        boolean deleteFiles = askUser("Should these files be removed?");
+        // Without a user, the autogenerated files simply belong to the generator
+        boolean deleteFiles = !isInteractive || askUser("Should these files be removed?");
         if (deleteFiles) {
             for (Path path : filesToUpdate) {
                 Files.delete(path);
@@ -174,7 +221,10 @@ public class InteractiveFileUpdater {
         }
     }
 
-    private boolean askUser(String question) {
+    private boolean askUser(String question) throws IOException {
+        if (!isInteractive) {
+            throw new IOException("Refusing to answer \"" + question + "\" without a user, please check the files manually");
+        }
         logMessage(question + "(y/n)");
         while (true) {
             String userInput = scanner.nextLine();
@@ -194,24 +244,76 @@ public class InteractiveFileUpdater {
 
     /**
      * Writes a file, and includes a hash so that modifications can be detected.
+     * An unchanged file is not written again, so that its modification time stays the same for build tools.
+     *
+     * @return true if the file has been written.
      */
-    private void writeFile(Path filePath, String contents) throws IOException {
+    private boolean writeFile(Path filePath, String contents) throws IOException {
         filesToUpdate.remove(filePath);
         var hexConverter = HexFormat.of();
-        var hash = getHash(contents);
-        String header = FILE_HEADER_START + hexConverter.formatHex(hash) + FILE_HEADER_END;
+        var hash = getHash(new StringReader(contents));
+        if (Files.exists(filePath) && hasContents(filePath, FILE_HEADER_START, hexConverter.formatHex(hash), FILE_HEADER_END, "\n", contents)) {
+            return false;
+        }
         Files.createDirectories(filePath.getParent());
-        Files.writeString(filePath, header + "\n" + contents);
+        // Written piece by piece, a concatenated copy of the contents would only be thrown away
+        try (var writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
+            writer.write(FILE_HEADER_START);
+            writer.write(hexConverter.formatHex(hash));
+            writer.write(FILE_HEADER_END);
+            writer.write("\n");
+            writer.write(contents);
+        }
+        return true;
+    }
+
+    /**
+     * Compares a file with the parts of its expected contents, without concatenating them.
+     */
+    private static boolean hasContents(Path filePath, String... parts) throws IOException {
+        try (var reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
+            for (String part : parts) {
+                for (int i = 0; i < part.length(); i++) {
+                    if (reader.read() != part.charAt(i)) {
+                        return false;
+                    }
+                }
+            }
+            return reader.read() == -1;
+        }
     }
 
-    private byte[] getHash(String contents) {
-        // Strips the spaces so that minor differences in whitespaces are ignored
-        return digest.digest(stripSpaces(contents).getBytes(StandardCharsets.UTF_8));
+    /**
+     * Hashes the contents in chunks, so that no stripped copy of a whole file is needed.
+     */
+    private byte[] getHash(Reader contents) throws IOException {
+        var buffer = new char[HASH_CHUNK_SIZE];
+        var chunk = new StringBuilder(HASH_CHUNK_SIZE);
+        int length;
+        while ((length = contents.read(buffer)) != -1) {
+            for (int i = 0; i < length; i++) {
+                // Strips the spaces so that minor differences in whitespaces are ignored
+                if (!isSpace(buffer[i])) {
+                    chunk.append(buffer[i]);
+                }
+            }
+            // A character made of two chars must not be split between two chunks
+            if (chunk.length() >= HASH_CHUNK_SIZE && !Character.isHighSurrogate(chunk.charAt(chunk.length() - 1))) {
+                digest.update(chunk.toString()
+                    .getBytes(StandardCharsets.UTF_8));
+                chunk.setLength(0);
+            }
+        }
+        digest.update(chunk.toString()
+            .getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
     }
 
-    private String stripSpaces(String contents) {
-        // A tokenizer that keeps spaces inside Typescript strings would be even cooler
-        return contents.replaceAll("\\s", "");
+    /**
+     * Same as {@code \s} in a regex. A tokenizer that keeps spaces inside Typescript strings would be even cooler.
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
     private boolean hasExpectedExtension(Path filePath) {
@@ -0,0 +1,119 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.Invalidates;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Knows which GET routes get outdated when a mutation (POST, PUT, PATCH, DELETE) happens.
+ *
+ * <p>A mutation invalidates every GET route of its own endpoint, and the routes listed in an {@link Invalidates}
+ * annotation. In the routes of its own endpoint, path variables that the mutation also has are filled in, so
+ * updating ticket 5 only invalidates the GET routes of ticket 5. Every other path variable matches anything, also
+ * in the routes of other endpoints, where an "{id}" is usually the id of something else.</p>
+ */
+public class InvalidationGraph {
+    /**
+     * Path segment that matches any one path segment.
+     */
+    public static final String WILDCARD = "*";
+
+    private final Map<Method, List<InvalidatedRoute>> invalidatedRoutes = new HashMap<>();
+
+    /**
+     * A GET route that a mutation makes outdated.
+     *
+     * @param query       the GET route.
+     * @param pathPattern its path, like "api/v1/tickets/{id}" or "api/v1/events/*". Path variables with braces are
+     *                    the ones of the mutation.
+     */
+    public record InvalidatedRoute(EndpointCatalog.Route query, String pathPattern) {
+    }
+
+    /**
+     * Creates a new {@link InvalidationGraph}.
+     *
+     * @param catalog all endpoints.
+     */
+    public InvalidationGraph(EndpointCatalog catalog) {
+        var queries = catalog.getRoutes()
+            .stream()
+            .filter(EndpointCatalog.Route::isQuery)
+            .toList();
+
+        for (EndpointCatalog.Route mutation : catalog.getRoutes()) {
+            if (mutation.isQuery()) {
+                continue;
+            }
+            var annotation = mutation.method()
+                .getAnnotation(Invalidates.class);
+            List<String> annotatedPaths = annotation == null ? List.of() : List.of(annotation.value());
+
+            var routes = new ArrayList<InvalidatedRoute>();
+            for (EndpointCatalog.Route query : queries) {
+                boolean isSameEndpoint = query.endpointClass()
+                    .equals(mutation.endpointClass());
+                boolean isAnnotated = annotatedPaths.stream()
+                    .map(v -> StringUtils.withoutLeading(v, '/'))
+                    .anyMatch(v -> query.path()
+                        .equals(v) || query.path()
+                        .startsWith(v + "/"));
+                if (isSameEndpoint || isAnnotated) {
+                    var boundPathVariables = isSameEndpoint ? mutation.getPathVariables() : List.<String>of();
+                    routes.add(new InvalidatedRoute(query, toPathPattern(query, boundPathVariables)));
+                }
+            }
+            // Sorted, so that the generated code stays the same
+            routes.sort(Comparator.comparing(InvalidatedRoute::pathPattern)
+                .thenComparing(v -> v.query()
+                    .method()
+                    .toGenericString()));
+            invalidatedRoutes.put(mutation.method(), List.copyOf(routes));
+        }
+    }
+
+    /**
+     * Gets the path patterns that a mutation invalidates, like "api/v1/tickets/{id}" or "api/v1/events/*".
+     * Path variables with braces are the ones of the mutation.
+     *
+     * @param mutation an endpoint method.
+     * @return the invalidated path patterns, which is empty for GET methods.
+     */
+    public List<String> getInvalidatedPaths(Method mutation) {
+        return getInvalidatedRoutes(mutation).stream()
+            .map(InvalidatedRoute::pathPattern)
+            .distinct()
+            .toList();
+    }
+
+    /**
+     * Gets the GET routes that a mutation invalidates, sorted by their path pattern.
+     *
+     * @param mutation an endpoint method.
+     * @return the invalidated routes, which is empty for GET methods.
+     */
+    public List<InvalidatedRoute> getInvalidatedRoutes(Method mutation) {
+        return invalidatedRoutes.getOrDefault(mutation, List.of());
+    }
+
+    private static String toPathPattern(EndpointCatalog.Route query, List<String> mutationPathVariables) {
+        var segments = new ArrayList<String>();
+        var queryPathVariables = query.getPathVariables();
+        int pathVariableIndex = 0;
+        for (String segment : StringUtils.split(query.path(), "/")) {
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                String pathVariable = queryPathVariables.get(pathVariableIndex);
+                pathVariableIndex += 1;
+                segments.add(mutationPathVariables.contains(pathVariable) ? "{" + pathVariable + "}" : WILDCARD);
+            } else {
+                segments.add(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+}
@@ -0,0 +1,505 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a Jackson module with a serializer and a deserializer for every DTO record, so that Jackson neither
+ * introspects the records nor uses reflection to read and create them.
+ *
+ * <p>The properties get written in the same order as in the generated Typescript interfaces. Numbers, strings
+ * and booleans are written and parsed directly, nested DTOs call each other, and everything else (like dates and enums)
+ * is left to Jackson, so that the Spring configuration of the ObjectMapper still applies.</p>
+ *
+ * <p>Records with Jackson annotations are skipped, since Jackson knows better what those mean.
+ * Generic records only get a serializer, because a deserializer would need to know the actual type arguments.</p>
+ *
+ * <p>It is only generated with {@code --jackson-module}. With JMH on Jackson 2.16, it was not measurably faster than
+ * Jackson for the seating plan and the invoice, {@code src/jmh/.../DtoJacksonModuleBenchmark.java} repeats that measurement.</p>
+ */
+public class JacksonModuleGenerator {
+    /**
+     * Name of the generated module class, it is in the same package as the other generated backend code.
+     */
+    public static final String CLASS_NAME = "DtoJacksonModule";
+
+    private static final Map<Class<?>, SimpleType> SIMPLE_TYPES = Map.ofEntries(
+        Map.entry(long.class, new SimpleType("token == JsonToken.VALUE_NUMBER_INT", "p.getLongValue()", "0L")),
+        Map.entry(Long.class, new SimpleType("token == JsonToken.VALUE_NUMBER_INT", "p.getLongValue()", "null")),
+        Map.entry(int.class, new SimpleType("token == JsonToken.VALUE_NUMBER_INT", "p.getIntValue()", "0")),
+        Map.entry(Integer.class, new SimpleType("token == JsonToken.VALUE_NUMBER_INT", "p.getIntValue()", "null")),
+        Map.entry(double.class, new SimpleType("token.isNumeric()", "p.getDoubleValue()", "0.0")),
+        Map.entry(Double.class, new SimpleType("token.isNumeric()", "p.getDoubleValue()", "null")),
+        Map.entry(boolean.class, new SimpleType("token.isBoolean()", "token == JsonToken.VALUE_TRUE", "false")),
+        Map.entry(Boolean.class, new SimpleType("token.isBoolean()", "token == JsonToken.VALUE_TRUE", "null")),
+        Map.entry(String.class, new SimpleType("token == JsonToken.VALUE_STRING", "p.getText()", "null"))
+    );
+
+    /**
+     * How a type gets parsed without asking Jackson.
+     *
+     * @param isFast    the condition for the fast path.
+     * @param read      reads the value on the fast path.
+     * @param nullValue the value if the JSON is missing or null, like Jackson's default.
+     */
+    private record SimpleType(String isFast, String read, String nullValue) {
+    }
+
+    private final Map<Class<?>, String> classNames = new HashMap<>();
+    private final List<TypescriptGenerator.TsInterface> interfaces;
+
+    /**
+     * Creates a new {@link JacksonModuleGenerator}.
+     *
+     * @param interfaces all DTO interfaces, the ones that are made from records get a serializer.
+     */
+    public JacksonModuleGenerator(List<TypescriptGenerator.TsInterface> interfaces) {
+        this.interfaces = interfaces.stream()
+            .filter(JacksonModuleGenerator::isSupported)
+            .toList();
+        for (var tsInterface : this.interfaces) {
+            // Two DTOs in different packages can have the same name
+            String className = tsInterface.getJavaClass()
+                .getSimpleName();
+            while (classNames.containsValue(className)) {
+                className += "_";
+            }
+            classNames.put(tsInterface.getJavaClass(), className);
+        }
+    }
+
+    private static boolean isSupported(TypescriptGenerator.TsInterface tsInterface) {
+        var javaClass = tsInterface.getJavaClass();
+        if (javaClass == null || !javaClass.isRecord() || hasJacksonAnnotation(javaClass.getAnnotations())) {
+            return false;
+        }
+        return Arrays.stream(javaClass.getRecordComponents())
+            .noneMatch(v -> hasJacksonAnnotation(v.getAnnotations()) || hasJacksonAnnotation(v.getAccessor()
+                .getAnnotations()));
+    }
+
+    private static boolean hasJacksonAnnotation(Annotation[] annotations) {
+        return Arrays.stream(annotations)
+            .anyMatch(v -> v.annotationType()
+                .getName()
+                .startsWith("com.fasterxml.jackson."));
+    }
+
+    /**
+     * Generates the Java code of the module.
+     *
+     * @param packageName the package of the generated class.
+     */
+    public CodeWriter getCode(String packageName) {
+        var code = new CodeWriter();
+        code.writeLine("package ", packageName, ";");
+        code.writeLine();
+        code.writeLine("import com.fasterxml.jackson.annotation.JsonInclude;");
+        code.writeLine("import com.fasterxml.jackson.core.JsonGenerator;");
+        code.writeLine("import com.fasterxml.jackson.core.JsonParser;");
+        code.writeLine("import com.fasterxml.jackson.core.JsonToken;");
+        code.writeLine("import com.fasterxml.jackson.core.io.SerializedString;");
+        code.writeLine("import com.fasterxml.jackson.core.type.TypeReference;");
+        code.writeLine("import com.fasterxml.jackson.databind.BeanDescription;");
+        code.writeLine("import com.fasterxml.jackson.databind.DeserializationConfig;");
+        code.writeLine("import com.fasterxml.jackson.databind.DeserializationContext;");
+        code.writeLine("import com.fasterxml.jackson.databind.DeserializationFeature;");
+        code.writeLine("import com.fasterxml.jackson.databind.JsonDeserializer;");
+        code.writeLine("import com.fasterxml.jackson.databind.JsonMappingException;");
+        code.writeLine("import com.fasterxml.jackson.databind.JsonSerializer;");
+        code.writeLine("import com.fasterxml.jackson.databind.MapperFeature;");
+        code.writeLine("import com.fasterxml.jackson.databind.SerializationConfig;");
+        code.writeLine("import com.fasterxml.jackson.databind.SerializerProvider;");
+        code.writeLine("import com.fasterxml.jackson.databind.cfg.MapperConfig;");
+        code.writeLine("import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;");
+        code.writeLine("import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;");
+        code.writeLine("import com.fasterxml.jackson.databind.deser.std.StdDeserializer;");
+        code.writeLine("import com.fasterxml.jackson.databind.module.SimpleModule;");
+        code.writeLine("import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;");
+        code.writeLine("import com.fasterxml.jackson.databind.ser.std.StdSerializer;");
+        code.writeLine("import org.springframework.stereotype.Component;");
+        code.writeLine();
+        code.writeLine("import java.io.IOException;");
+        code.writeLine("import java.lang.reflect.RecordComponent;");
+        code.writeLine("import java.util.Map;");
+        code.writeLine("import java.util.function.Supplier;");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Serializers and deserializers for the DTO records, so that Jackson does not need reflection for them.");
+        code.writeLine(" * Spring Boot registers every Jackson module bean with its ObjectMapper.");
+        code.writeLine(" *");
+        code.writeLine(" * <p>They only replace the ones of Jackson if the ObjectMapper has the default settings, since they always write");
+        code.writeLine(" * every property with the name of the record component.</p>");
+        code.writeLine(" */");
+        code.writeLine("@Component");
+        code.writeLine("public class ", CLASS_NAME, " extends SimpleModule {");
+        code.beginIndent();
+        code.writeLine("private static final Map<Class<?>, JsonSerializer<?>> SERIALIZERS = Map.ofEntries(");
+        code.beginIndent();
+        for (int i = 0; i < interfaces.size(); i++) {
+            var javaClass = interfaces.get(i)
+                .getJavaClass();
+            code.writeLine("Map.entry(", toSourceName(javaClass), ".class, ", classNames.get(javaClass), "Serializer.INSTANCE)",
+                i < interfaces.size() - 1 ? "," : "");
+        }
+        code.endIndent();
+        code.writeLine(");");
+        code.writeLine("// A deserializer gets resolved with the context of one ObjectMapper, so every ObjectMapper gets new ones");
+        code.writeLine("private static final Map<Class<?>, Supplier<JsonDeserializer<?>>> DESERIALIZERS = Map.ofEntries(");
+        code.beginIndent();
+        var deserializedInterfaces = interfaces.stream()
+            .filter(tsInterface -> tsInterface.getGenerics()
+                .isEmpty())
+            .toList();
+        for (int i = 0; i < deserializedInterfaces.size(); i++) {
+            var javaClass = deserializedInterfaces.get(i)
+                .getJavaClass();
+            code.writeLine("Map.<Class<?>, Supplier<JsonDeserializer<?>>>entry(", toSourceName(javaClass), ".class, ", classNames.get(javaClass),
+                "Deserializer::new)", i < deserializedInterfaces.size() - 1 ? "," : "");
+        }
+        code.endIndent();
+        code.writeLine(");");
+        code.writeLine();
+
+        code.writeLine("public ", CLASS_NAME, "() {");
+        code.beginIndent();
+        code.writeLine("super(\"", CLASS_NAME, "\");");
+        code.writeLine("setSerializerModifier(new BeanSerializerModifier() {");
+        code.beginIndent();
+        code.writeLine("@Override");
+        code.writeLine("public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {");
+        code.beginIndent();
+        code.writeLine("var generated = SERIALIZERS.get(beanDesc.getBeanClass());");
+        code.writeLine("return generated != null && usesDefaults(config) ? generated : serializer;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("});");
+        code.writeLine("setDeserializerModifier(new BeanDeserializerModifier() {");
+        code.beginIndent();
+        code.writeLine("@Override");
+        code.writeLine("public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc, JsonDeserializer<?> deserializer) {");
+        code.beginIndent();
+        code.writeLine("var generated = DESERIALIZERS.get(beanDesc.getBeanClass());");
+        code.writeLine("return generated != null && usesDefaults(config) ? generated.get() : deserializer;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("});");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+
+        code.writeLine("/**");
+        code.writeLine(" * Whether the DTOs are written and read like the generated code does it. Anything else, like a naming strategy,");
+        code.writeLine(" * NON_NULL or failing on null primitives, is left to Jackson.");
+        code.writeLine(" */");
+        code.writeLine("private static boolean usesDefaults(MapperConfig<?> config) {");
+        code.beginIndent();
+        code.writeLine("if (config.getPropertyNamingStrategy() != null");
+        code.beginIndent();
+        code.writeLine("|| config.isEnabled(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)");
+        code.writeLine("|| config.isEnabled(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES)) {");
+        code.writeLine("return false;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("if (config instanceof DeserializationConfig deserializationConfig && (deserializationConfig.isEnabled(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES)");
+        code.beginIndent();
+        code.writeLine("|| deserializationConfig.isEnabled(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES)");
+        code.writeLine("|| deserializationConfig.isEnabled(DeserializationFeature.FAIL_ON_MISSING_CREATOR_PROPERTIES)");
+        code.writeLine("|| deserializationConfig.isEnabled(DeserializationFeature.UNWRAP_SINGLE_VALUE_ARRAYS)");
+        code.writeLine("|| deserializationConfig.isEnabled(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT))) {");
+        code.writeLine("return false;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("for (Class<?> dtoClass : SERIALIZERS.keySet()) {");
+        code.beginIndent();
+        code.writeLine("if (config.findMixInClassFor(dtoClass) != null || config.getDefaultTyper(config.constructType(dtoClass)) != null) {");
+        code.beginIndent();
+        code.writeLine("return false;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("for (RecordComponent component : dtoClass.getRecordComponents()) {");
+        code.beginIndent();
+        code.writeLine("var inclusion = config.getDefaultInclusion(dtoClass, component.getType());");
+        code.writeLine("if (!includesAll(inclusion.getValueInclusion()) || !includesAll(inclusion.getContentInclusion())) {");
+        code.beginIndent();
+        code.writeLine("return false;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return true;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private static boolean includesAll(JsonInclude.Include include) {");
+        code.beginIndent();
+        code.writeLine("return include == JsonInclude.Include.ALWAYS || include == JsonInclude.Include.USE_DEFAULTS;");
+        code.endIndent();
+        code.writeLine("}");
+
+        for (var tsInterface : interfaces) {
+            code.writeLine();
+            code.writeLines(getSerializer(tsInterface));
+            if (tsInterface.getGenerics()
+                .isEmpty()) {
+                code.writeLine();
+                code.writeLines(getDeserializer(tsInterface));
+            }
+        }
+
+        code.endIndent();
+        code.writeLine("}");
+        return code;
+    }
+
+    private CodeWriter getSerializer(TypescriptGenerator.TsInterface tsInterface) {
+        var javaClass = tsInterface.getJavaClass();
+        String className = classNames.get(javaClass) + "Serializer";
+        String typeName = toSourceName(javaClass) + (tsInterface.getGenerics()
+            .isEmpty() ? "" : "<" + tsInterface.getGenerics()
+            .stream()
+            .map(v -> "?")
+            .collect(Collectors.joining(", ")) + ">");
+        var components = javaClass.getRecordComponents();
+        var properties = tsInterface.getProperties();
+
+        var code = new CodeWriter();
+        code.writeLine("static final class ", className, " extends StdSerializer<", typeName, "> {");
+        code.beginIndent();
+        code.writeLine("static final ", className, " INSTANCE = new ", className, "();");
+        for (int i = 0; i < components.length; i++) {
+            code.writeLine("private static final SerializedString ", getConstantName(components[i]), " = new SerializedString(",
+                StringUtils.toJsonString(properties.get(i)
+                    .getName()), ");");
+        }
+        code.writeLine();
+        code.writeLine("private ", className, "() {");
+        code.beginIndent();
+        code.writeLine("super(", toSourceName(javaClass), ".class, false);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public void serialize(", typeName, " value, JsonGenerator gen, SerializerProvider provider) throws IOException {");
+        code.beginIndent();
+        code.writeLine("gen.writeStartObject(value);");
+        for (RecordComponent component : components) {
+            code.writeLine("gen.writeFieldName(", getConstantName(component), ");");
+            writeSerializeValue(code, component.getGenericType(), "value." + component.getName() + "()", component.getName() + "Value");
+        }
+        code.writeLine("gen.writeEndObject();");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        return code;
+    }
+
+    private void writeSerializeValue(CodeWriter code, Type type, String expression, String variableName) {
+        if (type == long.class || type == int.class || type == double.class) {
+            code.writeLine("gen.writeNumber(", expression, ");");
+        } else if (type == boolean.class) {
+            code.writeLine("gen.writeBoolean(", expression, ");");
+        } else if (type == String.class) {
+            // Also writes null
+            code.writeLine("gen.writeString(", expression, ");");
+        } else if (type == Long.class || type == Integer.class || type == Double.class || type == Boolean.class) {
+            code.writeLine("var ", variableName, " = ", expression, ";");
+            code.writeLine("if (", variableName, " == null) {");
+            code.beginIndent();
+            code.writeLine("gen.writeNull();");
+            code.endIndent();
+            code.writeLine("} else {");
+            code.beginIndent();
+            code.writeLine(type == Boolean.class ? "gen.writeBoolean(" : "gen.writeNumber(", variableName, ");");
+            code.endIndent();
+            code.writeLine("}");
+        } else if (type instanceof Class<?> typeClass && classNames.containsKey(typeClass)) {
+            code.writeLine("var ", variableName, " = ", expression, ";");
+            code.writeLine("if (", variableName, " == null) {");
+            code.beginIndent();
+            code.writeLine("gen.writeNull();");
+            code.endIndent();
+            code.writeLine("} else {");
+            code.beginIndent();
+            code.writeLine(classNames.get(typeClass), "Serializer.INSTANCE.serialize(", variableName, ", gen, provider);");
+            code.endIndent();
+            code.writeLine("}");
+        } else if (type instanceof ParameterizedType parameterizedType
+            && parameterizedType.getRawType() instanceof Class<?> rawClass
+            && Collection.class.isAssignableFrom(rawClass)
+            && parameterizedType.getActualTypeArguments()[0] instanceof Class<?> elementClass
+            && classNames.containsKey(elementClass)) {
+            // Lists of DTOs are the large responses, so they are written without asking Jackson for every element
+            code.writeLine("var ", variableName, " = ", expression, ";");
+            code.writeLine("if (", variableName, " == null) {");
+            code.beginIndent();
+            code.writeLine("gen.writeNull();");
+            code.endIndent();
+            code.writeLine("} else {");
+            code.beginIndent();
+            code.writeLine("gen.writeStartArray();");
+            code.writeLine("for (var element : ", variableName, ") {");
+            code.beginIndent();
+            code.writeLine("if (element == null) {");
+            code.beginIndent();
+            code.writeLine("gen.writeNull();");
+            code.endIndent();
+            code.writeLine("} else {");
+            code.beginIndent();
+            code.writeLine(classNames.get(elementClass), "Serializer.INSTANCE.serialize(element, gen, provider);");
+            code.endIndent();
+            code.writeLine("}");
+            code.endIndent();
+            code.writeLine("}");
+            code.writeLine("gen.writeEndArray();");
+            code.endIndent();
+            code.writeLine("}");
+        } else {
+            code.writeLine("provider.defaultSerializeValue(", expression, ", gen);");
+        }
+    }
+
+    private CodeWriter getDeserializer(TypescriptGenerator.TsInterface tsInterface) {
+        var javaClass = tsInterface.getJavaClass();
+        String className = classNames.get(javaClass) + "Deserializer";
+        String typeName = toSourceName(javaClass);
+        var components = javaClass.getRecordComponents();
+        var properties = tsInterface.getProperties();
+        var complexComponents = Arrays.stream(components)
+            .filter(v -> !SIMPLE_TYPES.containsKey(v.getGenericType()))
+            .toList();
+
+        var code = new CodeWriter();
+        code.writeLine("static final class ", className, " extends StdDeserializer<", typeName, "> implements ResolvableDeserializer {");
+        code.beginIndent();
+        for (RecordComponent component : complexComponents) {
+            code.writeLine("private JsonDeserializer<Object> ", component.getName(), "Deserializer;");
+        }
+        if (!complexComponents.isEmpty()) {
+            code.writeLine();
+        }
+        code.writeLine(className, "() {");
+        code.beginIndent();
+        code.writeLine("super(", typeName, ".class);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+
+        code.writeLine("@Override");
+        code.writeLine("public void resolve(DeserializationContext context) throws JsonMappingException {");
+        code.beginIndent();
+        for (RecordComponent component : complexComponents) {
+            String javaType = component.getGenericType() instanceof Class<?>
+                ? "context.constructType(" + toSourceName(component.getType()) + ".class)"
+                : "context.getTypeFactory().constructType(new TypeReference<" + toSourceName(component.getGenericType()) + ">() {})";
+            code.writeLine(component.getName(), "Deserializer = context.findRootValueDeserializer(", javaType, ");");
+        }
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+
+        code.writeLine("@Override");
+        if (complexComponents.stream()
+            .anyMatch(v -> !(v.getGenericType() instanceof Class<?>))) {
+            code.writeLine("@SuppressWarnings(\"unchecked\")");
+        }
+        code.writeLine("public ", typeName, " deserialize(JsonParser p, DeserializationContext context) throws IOException {");
+        code.beginIndent();
+        for (RecordComponent component : components) {
+            var simpleType = SIMPLE_TYPES.get(component.getGenericType());
+            code.writeLine(toSourceName(component.getGenericType()), " ", component.getName(), "Value = ", simpleType == null ? "null" : simpleType.nullValue(), ";");
+        }
+        code.writeLine("var token = p.currentToken();");
+        code.writeLine("if (token == JsonToken.START_OBJECT) {");
+        code.beginIndent();
+        code.writeLine("token = p.nextToken();");
+        code.endIndent();
+        code.writeLine("} else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {");
+        code.beginIndent();
+        code.writeLine("// Fails like Jackson does, unless a DeserializationProblemHandler knows what to make of it");
+        code.writeLine("return (", typeName, ") context.handleUnexpectedToken(", typeName, ".class, p);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {");
+        code.beginIndent();
+        code.writeLine("String fieldName = p.currentName();");
+        code.writeLine("token = p.nextToken();");
+        code.writeLine("switch (fieldName) {");
+        code.beginIndent();
+        for (int i = 0; i < components.length; i++) {
+            var component = components[i];
+            String variableName = component.getName() + "Value";
+            String caseLabel = "case " + StringUtils.toJsonString(properties.get(i)
+                .getName()) + " -> ";
+            var simpleType = SIMPLE_TYPES.get(component.getGenericType());
+            if (simpleType != null) {
+                // Anything unusual, like a number in a string, is parsed the same way as Jackson would
+                String slowRead = "context.readValue(p, " + toSourceName(component.getType()) + ".class)";
+                code.writeLine(caseLabel, variableName, " = ", simpleType.isFast(), " ? ", simpleType.read(),
+                    " : token == JsonToken.VALUE_NULL ? ", simpleType.nullValue(), " : ", slowRead, ";");
+            } else {
+                String cast = component.getGenericType() instanceof Class<?> ? "(" + toSourceName(component.getType()) + ") " : "(" + toSourceName(component.getGenericType()) + ") ";
+                code.writeLine(caseLabel, variableName, " = token == JsonToken.VALUE_NULL ? null : ", cast, component.getName(), "Deserializer.deserialize(p, context);");
+            }
+        }
+        // Skips it, or fails if FAIL_ON_UNKNOWN_PROPERTIES is enabled
+        code.writeLine("default -> context.handleUnknownProperty(p, this, ", typeName, ".class, fieldName);");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return new ", typeName, "(", Arrays.stream(components)
+            .map(v -> v.getName() + "Value")
+            .collect(Collectors.joining(", ")), ");");
+        code.endIndent();
+        code.writeLine("}");
+
+        code.endIndent();
+        code.writeLine("}");
+        return code;
+    }
+
+    private static String getConstantName(RecordComponent component) {
+        return "FIELD_" + StringUtils.camelCaseToSnakeCase(component.getName())
+            .replace('-', '_')
+            .toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets how a type is written in Java source code, like "java.util.List<at.ac.tuwien.TicketDto>".
+     */
+    private static String toSourceName(Type type) {
+        if (type instanceof Class<?> typeClass) {
+            return typeClass.isArray() ? toSourceName(typeClass.getComponentType()) + "[]" : typeClass.getCanonicalName();
+        } else if (type instanceof ParameterizedType parameterizedType) {
+            return toSourceName(parameterizedType.getRawType()) + "<" + Arrays.stream(parameterizedType.getActualTypeArguments())
+                .map(JacksonModuleGenerator::toSourceName)
+                .collect(Collectors.joining(", ")) + ">";
+        } else if (type instanceof GenericArrayType genericArrayType) {
+            return toSourceName(genericArrayType.getGenericComponentType()) + "[]";
+        } else if (type instanceof WildcardType wildcardType) {
+            var upperBounds = wildcardType.getUpperBounds();
+            return upperBounds.length == 0 || upperBounds[0] == Object.class ? "?" : "? extends " + toSourceName(upperBounds[0]);
+        } else if (type instanceof TypeVariable<?> typeVariable) {
+            return typeVariable.getName();
+        }
+        return type.getTypeName();
+    }
+}
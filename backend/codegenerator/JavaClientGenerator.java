@@ -0,0 +1,954 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.StreamingResponse;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a typed Java client for every endpoint, for internal tools and integration tests.
+ *
+ * <p>The clients send the same requests as the generated Typescript services: path variables, flattened query
+ * parameters from {@link QueryParameters}, JSON bodies and files are mapped the same way. They are built on the
+ * {@link java.net.http.HttpClient} of the generated ApiClient, and every method has a blocking variant and an
+ * ...Async variant that returns a CompletableFuture.</p>
+ *
+ * <p>The resumable uploads are sent in one request, which the endpoints accept just as well. Parameters that Spring
+ * fills in by itself, like the Authentication, are left out.</p>
+ */
+public class JavaClientGenerator {
+    /**
+     * Package of the generated clients, they are meant to be used from outside the backend.
+     */
+    public static final String PACKAGE_NAME = "at.ac.tuwien.sepm.groupphase.backend.client.generated";
+
+    /**
+     * Name of the class that sends the requests of all clients.
+     */
+    public static final String API_CLIENT_NAME = "ApiClient";
+
+    private final EndpointCatalog catalog;
+    private final TypescriptGenerator gen = new TypescriptGenerator("at.ac.tuwien", List.of("at.ac.tuwien.sepm.groupphase.backend.endpoint.dto"));
+
+    /**
+     * Creates a new {@link JavaClientGenerator}.
+     *
+     * @param catalog all endpoints.
+     */
+    public JavaClientGenerator(EndpointCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Gets the name of the generated client of an endpoint, like "EventClient".
+     */
+    public static String getClientName(Class<?> endpointClass) {
+        return TypescriptGenerator.withoutSuffix(endpointClass.getSimpleName(), "Endpoint") + "Client";
+    }
+
+    /**
+     * Generates the Java code of the client of one endpoint.
+     */
+    public CodeWriter getClientCode(Class<?> endpointClass) {
+        var imports = new JavaImports(PACKAGE_NAME);
+        String clientName = getClientName(endpointClass);
+        var usedNames = new HashSet<String>();
+        var fields = new CodeWriter();
+        var constructor = new CodeWriter();
+        var methods = new CodeWriter();
+        for (EndpointCatalog.Route route : catalog.getRoutes()) {
+            if (route.endpointClass() == endpointClass) {
+                writeMethods(route, getUniqueName(route.method()
+                    .getName(), usedNames), imports, fields, constructor, methods);
+            }
+        }
+
+        var code = new CodeWriter();
+        code.writeLine("package ", PACKAGE_NAME, ";");
+        code.writeLine();
+        imports.writeTo(code);
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Calls the ", endpointClass.getSimpleName(), ", see ", API_CLIENT_NAME, ".");
+        code.writeLine(" */");
+        code.writeLine("public class ", clientName, " {");
+        code.beginIndent();
+        code.writeLine("private final ", API_CLIENT_NAME, " client;");
+        code.writeLines(fields);
+        code.writeLine();
+        code.writeLine("public ", clientName, "(", API_CLIENT_NAME, " client) {");
+        code.beginIndent();
+        code.writeLine("this.client = client;");
+        code.writeLines(constructor);
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLines(methods);
+        code.endIndent();
+        code.writeLine("}");
+        return code;
+    }
+
+    /**
+     * Writes the blocking method, the ...Async method and the method that builds the request of one route.
+     *
+     * @param name        the name of the blocking method, unique within the client.
+     * @param imports     the types that the code uses get added to this.
+     * @param fields      where the declaration of the response reader gets written to.
+     * @param constructor where the creation of the response reader gets written to.
+     * @param methods     where the methods get written to.
+     */
+    private void writeMethods(EndpointCatalog.Route route, String name, JavaImports imports, CodeWriter fields,
+                              CodeWriter constructor, CodeWriter methods) {
+        var method = route.method();
+        var endpointParameters = EndpointGenerator.getEndpointParameters(method, gen);
+
+        var signature = new ArrayList<String>();
+        var arguments = new ArrayList<String>();
+        var queryParameters = new QueryParameters();
+        var multipartFields = new CodeWriter();
+        String body = null;
+        String contentType = null;
+        for (EndpointGenerator.EndpointParameter endpointParameter : endpointParameters) {
+            var parameter = endpointParameter.parameter();
+            String parameterName = endpointParameter.name();
+            var binaryParameter = endpointParameter.binary();
+            String javaType = switch (endpointParameter.kind()) {
+                case MULTIPART -> {
+                    String filePart = API_CLIENT_NAME + ".FilePart";
+                    multipartFields.writeLine("multipart.add(", StringUtils.toJsonString(EndpointGenerator.getMultipartName(parameter, parameterName)), ", ", parameterName, ");");
+                    yield binaryParameter.isArray() ? imports.add("java.util.List") + "<" + filePart + ">" : filePart;
+                }
+                case BODY -> {
+                    body = binaryParameter != null ? "HttpRequest.BodyPublishers.ofByteArray(" + parameterName + ")" : "client.toJsonBody(" + parameterName + ")";
+                    contentType = binaryParameter != null ? "application/octet-stream" : "application/json";
+                    yield binaryParameter != null ? "byte[]" : imports.toSource(parameter.getParameterizedType());
+                }
+                case PATH -> imports.toSource(parameter.getParameterizedType());
+                case QUERY -> {
+                    queryParameters.add(parameterName, gen.addValue(parameter.getParameterizedType()));
+                    yield imports.toSource(parameter.getParameterizedType());
+                }
+            };
+            signature.add(javaType + " " + parameterName);
+            arguments.add(parameterName);
+        }
+        if (!multipartFields.isEmpty()) {
+            body = "multipart.toBodyPublisher()";
+            contentType = null;
+        }
+
+        // The request is built in its own method, so that the async variant builds it on the caller's thread
+        String requestName = name + "Request";
+        var request = new CodeWriter();
+        request.writeLine();
+        request.writeLine("private HttpRequest ", requestName, "(", String.join(", ", signature), ") {");
+        request.beginIndent();
+        String path = toPathExpression(route.path(), EndpointGenerator.getPathVariables(endpointParameters));
+        if (!queryParameters.isEmpty()) {
+            request.writeLine("var query = new ", API_CLIENT_NAME, ".Query();");
+            for (QueryParameters.QueryParameter queryParameter : queryParameters.getSorted()) {
+                request.writeLine("query.add(", StringUtils.toJsonString(queryParameter.key()), ", ", toJavaAccessor(queryParameter.accessPath()), ");");
+            }
+            path += " + query";
+        }
+        if (!multipartFields.isEmpty()) {
+            request.writeLine("var multipart = new ", API_CLIENT_NAME, ".MultipartBody();");
+            request.writeLines(multipartFields);
+        }
+        request.writeLine("return client.newRequest(", path, ")");
+        request.beginIndent();
+        var streamingResponse = EndpointGenerator.getStreamingResponse(method);
+        if (streamingResponse != null) {
+            String mediaType = streamingResponse.format() == StreamingResponse.Format.SSE ? "text/event-stream" : "application/x-ndjson";
+            request.writeLine(".setHeader(\"Accept\", \"", mediaType, "\")");
+        }
+        if (!multipartFields.isEmpty()) {
+            request.writeLine(".header(\"Content-Type\", multipart.getContentType())");
+        } else if (contentType != null) {
+            request.writeLine(".header(\"Content-Type\", \"", contentType, "\")");
+        }
+        String httpMethod = route.type()
+            .name();
+        if (body == null && (route.type() == EndpointCatalog.RequestMappingType.MappingType.GET
+            || route.type() == EndpointCatalog.RequestMappingType.MappingType.DELETE)) {
+            request.writeLine(".", httpMethod, "()");
+        } else {
+            request.writeLine(".method(\"", httpMethod, "\", ", body != null ? body : "HttpRequest.BodyPublishers.noBody()", ")");
+        }
+        request.writeLine(".build();");
+        request.endIndent();
+        request.endIndent();
+        request.writeLine("}");
+
+        // How the response is read
+        String resultType;
+        String send;
+        String reader = null;
+        String readerName = name + "Reader";
+        if (streamingResponse != null) {
+            resultType = imports.add("java.util.stream.Stream") + "<" + imports.toBoxedSource(streamingResponse.elementType()) + ">";
+            reader = getReader(streamingResponse.elementType(), imports);
+            send = "sendForStream";
+        } else if (EndpointGenerator.isBinaryType(method.getReturnType())) {
+            resultType = "byte[]";
+            send = "sendForBytes";
+        } else if (method.getReturnType() == void.class || method.getReturnType() == Void.class) {
+            resultType = "Void";
+            send = "sendForNothing";
+        } else {
+            var returnType = withoutResponseEntity(method.getGenericReturnType());
+            resultType = imports.toBoxedSource(returnType);
+            reader = getReader(returnType, imports);
+            send = "send";
+        }
+        String readerArguments = "";
+        if (reader != null) {
+            imports.add("com.fasterxml.jackson.databind.ObjectReader");
+            fields.writeLine("private final ObjectReader ", readerName, ";");
+            constructor.writeLine("this.", readerName, " = ", reader, ";");
+            readerArguments = ", " + readerName + (streamingResponse != null ? ", " + (streamingResponse.format() == StreamingResponse.Format.SSE) : "");
+        }
+        imports.add("java.io.IOException");
+        imports.add("java.net.http.HttpRequest");
+        imports.add("java.util.concurrent.CompletableFuture");
+
+        String description = "{@code " + route.type()
+            .name() + " /" + String.join("/", getSegments(route.path())) + "}";
+        String callArguments = String.join(", ", arguments);
+        methods.writeLine();
+        methods.writeLine("/**");
+        methods.writeLine(" * ", description, (streamingResponse != null ? ", the stream has to be closed." : ""));
+        methods.writeLine(" */");
+        methods.writeLine("public ", resultType.equals("Void") ? "void" : resultType, " ", name, "(", String.join(", ", signature), ") throws IOException, InterruptedException {");
+        methods.beginIndent();
+        methods.writeLine(resultType.equals("Void") ? "" : "return ", "client.", send, "(", requestName, "(", callArguments, ")", readerArguments, ");");
+        methods.endIndent();
+        methods.writeLine("}");
+        methods.writeLine();
+        methods.writeLine("/**");
+        methods.writeLine(" * ", description, ", without blocking.");
+        methods.writeLine(" */");
+        methods.writeLine("public CompletableFuture<", resultType, "> ", name, "Async(", String.join(", ", signature), ") {");
+        methods.beginIndent();
+        methods.writeLine("return client.", send, "Async(() -> ", requestName, "(", callArguments, ")", readerArguments, ");");
+        methods.endIndent();
+        methods.writeLine("}");
+        methods.writeLines(request);
+    }
+
+    private static String getUniqueName(String name, Set<String> usedNames) {
+        String uniqueName = name;
+        for (int i = 2; !usedNames.add(uniqueName); i++) {
+            // Overloaded endpoint methods
+            uniqueName = name + i;
+        }
+        return uniqueName;
+    }
+
+    /**
+     * Gets the code that creates the response reader of a type.
+     */
+    private static String getReader(Type type, JavaImports imports) {
+        if (type instanceof Class<?> typeClass) {
+            return "client.readerFor(" + imports.toBoxedSource(typeClass) + ".class)";
+        }
+        // Keeps the type arguments, which a Class would lose
+        return "client.readerFor(new " + imports.add("com.fasterxml.jackson.core.type.TypeReference") + "<" + imports.toSource(type) + ">() {})";
+    }
+
+    /**
+     * A ResponseEntity only wraps the body, the client returns the body.
+     */
+    private static Type withoutResponseEntity(Type type) {
+        if (type instanceof ParameterizedType parameterizedType
+            && parameterizedType.getRawType() instanceof Class<?> rawClass
+            && rawClass.getName()
+            .equals("org.springframework.http.ResponseEntity")) {
+            return parameterizedType.getActualTypeArguments()[0];
+        }
+        return type;
+    }
+
+    private static List<String> getSegments(String path) {
+        return Arrays.stream(StringUtils.split(path, "/"))
+            .filter(v -> !v.isEmpty())
+            .toList();
+    }
+
+    /**
+     * Gets the Java expression of a path, like {@code "api/v1/events/" + ApiClient.encodePathSegment(id)}.
+     *
+     * @param pathVariables the parameter name of every path variable.
+     */
+    private static String toPathExpression(String path, Map<String, String> pathVariables) {
+        var parts = new ArrayList<String>();
+        var literal = new StringBuilder();
+        var segments = getSegments(path);
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            if (i > 0) {
+                literal.append('/');
+            }
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                // Spring also supports {name:regex}
+                int regexStart = segment.indexOf(':');
+                String pathVariable = segment.substring(1, regexStart == -1 ? segment.length() - 1 : regexStart);
+                if (!pathVariables.containsKey(pathVariable)) {
+                    throw new IllegalArgumentException("Expected a @PathVariable for {" + pathVariable + "} in " + path);
+                }
+                parts.add(StringUtils.toJsonString(literal.toString()));
+                literal.setLength(0);
+                parts.add(API_CLIENT_NAME + ".encodePathSegment(" + pathVariables.get(pathVariable) + ")");
+            } else {
+                literal.append(segment);
+            }
+        }
+        if (literal.length() > 0 || parts.isEmpty()) {
+            parts.add(StringUtils.toJsonString(literal.toString()));
+        }
+        return parts.stream()
+            .filter(v -> !v.equals("\"\""))
+            .collect(Collectors.joining(" + "));
+    }
+
+    /**
+     * Gets the Java code to read a query parameter. Nested DTOs could be missing, so those are checked for null.
+     */
+    static String toJavaAccessor(List<String> accessPath) {
+        var accessor = new StringBuilder(accessPath.get(0));
+        var nullChecks = new ArrayList<String>();
+        for (int i = 1; i < accessPath.size(); i++) {
+            nullChecks.add(accessor + " == null");
+            // DTOs are records
+            accessor.append('.')
+                .append(accessPath.get(i))
+                .append("()");
+        }
+        return nullChecks.isEmpty() ? accessor.toString() : String.join(" || ", nullChecks) + " ? null : " + accessor;
+    }
+
+    /**
+     * Generates the Java code of the class that sends the requests of all clients.
+     */
+    public static CodeWriter getApiClientCode() {
+        var code = new CodeWriter();
+        code.writeLine("package ", PACKAGE_NAME, ";");
+        code.writeLine();
+        code.writeLine("import com.fasterxml.jackson.core.type.TypeReference;");
+        code.writeLine("import com.fasterxml.jackson.databind.ObjectMapper;");
+        code.writeLine("import com.fasterxml.jackson.databind.ObjectReader;");
+        code.writeLine();
+        code.writeLine("import java.io.ByteArrayOutputStream;");
+        code.writeLine("import java.io.IOException;");
+        code.writeLine("import java.io.UncheckedIOException;");
+        code.writeLine("import java.lang.reflect.Array;");
+        code.writeLine("import java.net.URI;");
+        code.writeLine("import java.net.URLEncoder;");
+        code.writeLine("import java.net.http.HttpClient;");
+        code.writeLine("import java.net.http.HttpRequest;");
+        code.writeLine("import java.net.http.HttpResponse;");
+        code.writeLine("import java.nio.charset.StandardCharsets;");
+        code.writeLine("import java.time.Duration;");
+        code.writeLine("import java.util.ArrayList;");
+        code.writeLine("import java.util.Iterator;");
+        code.writeLine("import java.util.NoSuchElementException;");
+        code.writeLine("import java.util.Spliterator;");
+        code.writeLine("import java.util.Spliterators;");
+        code.writeLine("import java.util.UUID;");
+        code.writeLine("import java.util.concurrent.CompletableFuture;");
+        code.writeLine("import java.util.function.Function;");
+        code.writeLine("import java.util.function.Supplier;");
+        code.writeLine("import java.util.stream.Stream;");
+        code.writeLine("import java.util.stream.StreamSupport;");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Sends the requests of the generated clients, like service.ts does for the generated services.");
+        code.writeLine(" *");
+        code.writeLine(" * <p>One {@link HttpClient} is shared by all clients, so the connections are reused, and over HTTP/2 all requests");
+        code.writeLine(" * share one connection. Every client method has a blocking variant, which is cheap on a virtual thread, and an");
+        code.writeLine(" * ...Async variant that returns a {@link CompletableFuture}. The response readers are created once per method,");
+        code.writeLine(" * so Jackson only looks up the deserializers once.</p>");
+        code.writeLine(" */");
+        code.writeLine("public class ", API_CLIENT_NAME, " {");
+        code.beginIndent();
+        code.writeLine("private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);");
+        code.writeLine("private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);");
+        code.writeLine();
+        code.writeLine("private final HttpClient httpClient;");
+        code.writeLine("private final String baseUrl;");
+        code.writeLine("private final ObjectMapper objectMapper;");
+        code.writeLine("private final Supplier<String> tokenSupplier;");
+        code.writeLine("private final Duration timeout;");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Creates a new {@link ApiClient} with its own {@link HttpClient}.");
+        code.writeLine(" *");
+        code.writeLine(" * @param baseUrl       where the backend runs, like \"http://localhost:8080\".");
+        code.writeLine(" * @param objectMapper  should be the one of Spring, so that dates and the DTO module work the same.");
+        code.writeLine(" * @param tokenSupplier gets the JWT for every request, or returns null to send no token.");
+        code.writeLine(" */");
+        code.writeLine("public ApiClient(String baseUrl, ObjectMapper objectMapper, Supplier<String> tokenSupplier) {");
+        code.beginIndent();
+        code.writeLine("this(HttpClient.newBuilder()");
+        code.beginIndent();
+        code.writeLine(".version(HttpClient.Version.HTTP_2)");
+        code.writeLine(".connectTimeout(CONNECT_TIMEOUT)");
+        code.writeLine(".build(), baseUrl, objectMapper, tokenSupplier, DEFAULT_TIMEOUT);");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Creates a new {@link ApiClient}.");
+        code.writeLine(" *");
+        code.writeLine(" * @param httpClient    sends the requests, for example with an executor of virtual threads.");
+        code.writeLine(" * @param baseUrl       where the backend runs, like \"http://localhost:8080\".");
+        code.writeLine(" * @param objectMapper  should be the one of Spring, so that dates and the DTO module work the same.");
+        code.writeLine(" * @param tokenSupplier gets the JWT for every request, or returns null to send no token.");
+        code.writeLine(" * @param timeout       how long a request can take until the response headers arrive.");
+        code.writeLine(" */");
+        code.writeLine("public ApiClient(HttpClient httpClient, String baseUrl, ObjectMapper objectMapper, Supplier<String> tokenSupplier, Duration timeout) {");
+        code.beginIndent();
+        code.writeLine("this.httpClient = httpClient;");
+        code.writeLine("this.baseUrl = baseUrl.endsWith(\"/\") ? baseUrl : baseUrl + \"/\";");
+        code.writeLine("this.objectMapper = objectMapper;");
+        code.writeLine("this.tokenSupplier = tokenSupplier;");
+        code.writeLine("this.timeout = timeout;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * A file of a multipart request.");
+        code.writeLine(" *");
+        code.writeLine(" * @param fileName    the name of the file, like \"image.png\".");
+        code.writeLine(" * @param contentType like \"image/png\".");
+        code.writeLine(" * @param content     the bytes of the file.");
+        code.writeLine(" */");
+        code.writeLine("public record FilePart(String fileName, String contentType, byte[] content) {");
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * A response with an error status. The message is the response body.");
+        code.writeLine(" */");
+        code.writeLine("public static class ApiException extends RuntimeException {");
+        code.beginIndent();
+        code.writeLine("private final int statusCode;");
+        code.writeLine();
+        code.writeLine("public ApiException(int statusCode, String body) {");
+        code.beginIndent();
+        code.writeLine("super(statusCode + \": \" + body);");
+        code.writeLine("this.statusCode = statusCode;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("public int getStatusCode() {");
+        code.beginIndent();
+        code.writeLine("return statusCode;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Builds a query string. Null values and empty strings are skipped, like in the generated services, and lists");
+        code.writeLine(" * add the key once per element.");
+        code.writeLine(" */");
+        code.writeLine("public static class Query {");
+        code.beginIndent();
+        code.writeLine("private final StringBuilder query = new StringBuilder();");
+        code.writeLine();
+        code.writeLine("public Query add(String key, Object value) {");
+        code.beginIndent();
+        code.writeLine("if (value instanceof Iterable<?> iterable) {");
+        code.beginIndent();
+        code.writeLine("iterable.forEach(v -> add(key, v));");
+        code.endIndent();
+        code.writeLine("} else if (value != null && value.getClass()");
+        code.beginIndent();
+        code.writeLine(".isArray()) {");
+        code.writeLine("for (int i = 0; i < Array.getLength(value); i++) {");
+        code.beginIndent();
+        code.writeLine("add(key, Array.get(value, i));");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("} else if (value != null && !value.equals(\"\")) {");
+        code.beginIndent();
+        code.writeLine("query.append(query.length() == 0 ? '?' : '&')");
+        code.beginIndent();
+        code.writeLine(".append(URLEncoder.encode(key, StandardCharsets.UTF_8))");
+        code.writeLine(".append('=')");
+        code.writeLine(".append(URLEncoder.encode(value instanceof Enum<?> enumValue ? enumValue.name() : value.toString(), StandardCharsets.UTF_8));");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return this;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public String toString() {");
+        code.beginIndent();
+        code.writeLine("return query.toString();");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Builds a multipart/form-data body.");
+        code.writeLine(" */");
+        code.writeLine("public static class MultipartBody {");
+        code.beginIndent();
+        code.writeLine("private final String boundary = UUID.randomUUID()");
+        code.beginIndent();
+        code.writeLine(".toString();");
+        code.endIndent();
+        code.writeLine("private final ByteArrayOutputStream body = new ByteArrayOutputStream();");
+        code.writeLine();
+        code.writeLine("public MultipartBody add(String name, FilePart file) {");
+        code.beginIndent();
+        code.writeLine("if (file == null) {");
+        code.beginIndent();
+        code.writeLine("return this;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("write(\"--\" + boundary + \"\\r\\n\"");
+        code.beginIndent();
+        code.writeLine("+ \"Content-Disposition: form-data; name=\\\"\" + escape(name) + \"\\\"; filename=\\\"\" + escape(file.fileName()) + \"\\\"\\r\\n\"");
+        code.writeLine("+ \"Content-Type: \" + (file.contentType() != null ? file.contentType() : \"application/octet-stream\") + \"\\r\\n\\r\\n\");");
+        code.endIndent();
+        code.writeLine("body.writeBytes(file.content());");
+        code.writeLine("write(\"\\r\\n\");");
+        code.writeLine("return this;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("public MultipartBody add(String name, Iterable<FilePart> files) {");
+        code.beginIndent();
+        code.writeLine("if (files != null) {");
+        code.beginIndent();
+        code.writeLine("files.forEach(v -> add(name, v));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return this;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("public String getContentType() {");
+        code.beginIndent();
+        code.writeLine("return \"multipart/form-data; boundary=\" + boundary;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("public HttpRequest.BodyPublisher toBodyPublisher() {");
+        code.beginIndent();
+        code.writeLine("write(\"--\" + boundary + \"--\\r\\n\");");
+        code.writeLine("return HttpRequest.BodyPublishers.ofByteArray(body.toByteArray());");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private void write(String text) {");
+        code.beginIndent();
+        code.writeLine("body.writeBytes(text.getBytes(StandardCharsets.UTF_8));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private static String escape(String value) {");
+        code.beginIndent();
+        code.writeLine("return value.replace(\"\\\"\", \"%22\")");
+        code.beginIndent();
+        code.writeLine(".replace(\"\\r\", \"%0D\")");
+        code.writeLine(".replace(\"\\n\", \"%0A\");");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Creates the reader of a response type, the generated clients keep it for all their requests.");
+        code.writeLine(" */");
+        code.writeLine("public ObjectReader readerFor(Class<?> type) {");
+        code.beginIndent();
+        code.writeLine("return objectMapper.readerFor(type);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("public ObjectReader readerFor(TypeReference<?> type) {");
+        code.beginIndent();
+        code.writeLine("return objectMapper.readerFor(type);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Encodes a path variable, so that a \"/\" in it stays part of the value.");
+        code.writeLine(" */");
+        code.writeLine("public static String encodePathSegment(Object value) {");
+        code.beginIndent();
+        code.writeLine("if (value == null) {");
+        code.beginIndent();
+        code.writeLine("throw new IllegalArgumentException(\"Expected a value for every path variable\");");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return URLEncoder.encode(value instanceof Enum<?> enumValue ? enumValue.name() : value.toString(), StandardCharsets.UTF_8)");
+        code.beginIndent();
+        code.writeLine(".replace(\"+\", \"%20\");");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Starts a request to a path of the backend, with the token and the timeout.");
+        code.writeLine(" *");
+        code.writeLine(" * @param path like \"api/v1/events/1?page=0\".");
+        code.writeLine(" */");
+        code.writeLine("public HttpRequest.Builder newRequest(String path) {");
+        code.beginIndent();
+        code.writeLine("var builder = HttpRequest.newBuilder(URI.create(baseUrl + path))");
+        code.beginIndent();
+        code.writeLine(".timeout(timeout)");
+        code.writeLine(".header(\"Accept\", \"application/json\");");
+        code.endIndent();
+        code.writeLine("String token = tokenSupplier.get();");
+        code.writeLine("if (token != null) {");
+        code.beginIndent();
+        code.writeLine("builder.header(\"Authorization\", \"Bearer \" + token);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return builder;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Serializes a request body.");
+        code.writeLine(" */");
+        code.writeLine("public HttpRequest.BodyPublisher toJsonBody(Object value) {");
+        code.beginIndent();
+        code.writeLine("try {");
+        code.beginIndent();
+        code.writeLine("return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(value));");
+        code.endIndent();
+        code.writeLine("} catch (IOException e) {");
+        code.beginIndent();
+        code.writeLine("throw new UncheckedIOException(e);");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Sends a request and parses the JSON response, or returns null for an empty response.");
+        code.writeLine(" */");
+        code.writeLine("public <T> T send(HttpRequest request, ObjectReader reader) throws IOException, InterruptedException {");
+        code.beginIndent();
+        code.writeLine("return readJson(checkStatus(httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray())), reader);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("public <T> CompletableFuture<T> sendAsync(Supplier<HttpRequest> request, ObjectReader reader) {");
+        code.beginIndent();
+        code.writeLine("return sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {");
+        code.beginIndent();
+        code.writeLine("try {");
+        code.beginIndent();
+        code.writeLine("return readJson(checkStatus(response), reader);");
+        code.endIndent();
+        code.writeLine("} catch (IOException e) {");
+        code.beginIndent();
+        code.writeLine("throw new UncheckedIOException(e);");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("});");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Sends a request and returns the response body as it is, like a file.");
+        code.writeLine(" */");
+        code.writeLine("public byte[] sendForBytes(HttpRequest request) throws IOException, InterruptedException {");
+        code.beginIndent();
+        code.writeLine("return checkStatus(httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray())).body();");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("public CompletableFuture<byte[]> sendForBytesAsync(Supplier<HttpRequest> request) {");
+        code.beginIndent();
+        code.writeLine("return sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> checkStatus(response).body());");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Sends a request and ignores the response body.");
+        code.writeLine(" */");
+        code.writeLine("public void sendForNothing(HttpRequest request) throws IOException, InterruptedException {");
+        code.beginIndent();
+        code.writeLine("checkStatus(httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray()));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("public CompletableFuture<Void> sendForNothingAsync(Supplier<HttpRequest> request) {");
+        code.beginIndent();
+        code.writeLine("return sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenAccept(ApiClient::checkStatus);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Sends a request and parses every line of the response as soon as it arrives. The stream has to be closed.");
+        code.writeLine(" *");
+        code.writeLine(" * @param isServerSentEvents true for a text/event-stream, false for newline delimited JSON.");
+        code.writeLine(" */");
+        code.writeLine("public <T> Stream<T> sendForStream(HttpRequest request, ObjectReader reader, boolean isServerSentEvents) throws IOException, InterruptedException {");
+        code.beginIndent();
+        code.writeLine("return toElements(httpClient.send(request, HttpResponse.BodyHandlers.ofLines()), reader, isServerSentEvents);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("public <T> CompletableFuture<Stream<T>> sendForStreamAsync(Supplier<HttpRequest> request, ObjectReader reader, boolean isServerSentEvents) {");
+        code.beginIndent();
+        code.writeLine("return sendAsync(request, HttpResponse.BodyHandlers.ofLines()).thenApply(response -> toElements(response, reader, isServerSentEvents));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private <T> CompletableFuture<HttpResponse<T>> sendAsync(Supplier<HttpRequest> request, HttpResponse.BodyHandler<T> bodyHandler) {");
+        code.beginIndent();
+        code.writeLine("try {");
+        code.beginIndent();
+        code.writeLine("return httpClient.sendAsync(request.get(), bodyHandler);");
+        code.endIndent();
+        code.writeLine("} catch (RuntimeException e) {");
+        code.beginIndent();
+        code.writeLine("// Like a failed request, instead of throwing before there is a future");
+        code.writeLine("return CompletableFuture.failedFuture(e);");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private static HttpResponse<byte[]> checkStatus(HttpResponse<byte[]> response) {");
+        code.beginIndent();
+        code.writeLine("if (response.statusCode() >= 400) {");
+        code.beginIndent();
+        code.writeLine("throw new ApiException(response.statusCode(), new String(response.body(), StandardCharsets.UTF_8));");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return response;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private static <T> T readJson(HttpResponse<byte[]> response, ObjectReader reader) throws IOException {");
+        code.beginIndent();
+        code.writeLine("if (response.body().length == 0) {");
+        code.beginIndent();
+        code.writeLine("return null;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("return reader.readValue(response.body());");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("private static <T> Stream<T> toElements(HttpResponse<Stream<String>> response, ObjectReader reader, boolean isServerSentEvents) {");
+        code.beginIndent();
+        code.writeLine("var lines = response.body();");
+        code.writeLine("if (response.statusCode() >= 400) {");
+        code.beginIndent();
+        code.writeLine("String body;");
+        code.writeLine("try (lines) {");
+        code.beginIndent();
+        code.writeLine("body = String.join(\"\\n\", lines.toList());");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("throw new ApiException(response.statusCode(), body);");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("Stream<String> elements = isServerSentEvents ? toEventData(lines) : lines.filter(v -> !v.isBlank());");
+        code.writeLine("Function<String, T> parse = v -> {");
+        code.beginIndent();
+        code.writeLine("try {");
+        code.beginIndent();
+        code.writeLine("return reader.readValue(v);");
+        code.endIndent();
+        code.writeLine("} catch (IOException e) {");
+        code.beginIndent();
+        code.writeLine("throw new UncheckedIOException(e);");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("};");
+        code.writeLine("return elements.map(parse)");
+        code.beginIndent();
+        code.writeLine(".onClose(lines::close);");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("/**");
+        code.writeLine(" * Gets the data of every server-sent event, the data lines of one event are joined.");
+        code.writeLine(" */");
+        code.writeLine("private static Stream<String> toEventData(Stream<String> lines) {");
+        code.beginIndent();
+        code.writeLine("var lineIterator = lines.iterator();");
+        code.writeLine("var events = new Iterator<String>() {");
+        code.beginIndent();
+        code.writeLine("private String next;");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public boolean hasNext() {");
+        code.beginIndent();
+        code.writeLine("if (next != null) {");
+        code.beginIndent();
+        code.writeLine("return true;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("var data = new ArrayList<String>();");
+        code.writeLine("while (lineIterator.hasNext()) {");
+        code.beginIndent();
+        code.writeLine("String line = lineIterator.next();");
+        code.writeLine("if (line.isEmpty()) {");
+        code.beginIndent();
+        code.writeLine("// An empty line ends the event");
+        code.writeLine("if (!data.isEmpty()) {");
+        code.beginIndent();
+        code.writeLine("break;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("} else if (line.startsWith(\"data:\")) {");
+        code.beginIndent();
+        code.writeLine("data.add(line.substring(\"data:\".length())");
+        code.beginIndent();
+        code.writeLine(".replaceFirst(\"^ \", \"\"));");
+        code.endIndent();
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("// Comments, event names and ids are ignored");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("next = data.isEmpty() ? null : String.join(\"\\n\", data);");
+        code.writeLine("return next != null;");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine();
+        code.writeLine("@Override");
+        code.writeLine("public String next() {");
+        code.beginIndent();
+        code.writeLine("if (!hasNext()) {");
+        code.beginIndent();
+        code.writeLine("throw new NoSuchElementException();");
+        code.endIndent();
+        code.writeLine("}");
+        code.writeLine("String event = next;");
+        code.writeLine("next = null;");
+        code.writeLine("return event;");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("};");
+        code.writeLine("return StreamSupport.stream(Spliterators.spliteratorUnknownSize(events, Spliterator.ORDERED), false);");
+        code.endIndent();
+        code.writeLine("}");
+        code.endIndent();
+        code.writeLine("}");
+
+        return code;
+    }
+
+    /**
+     * The imports of a generated Java file. Types are written with their simple name, unless another type already
+     * has that name.
+     */
+    private static class JavaImports {
+        private static final Map<Class<?>, Class<?>> BOXED_TYPES = Map.of(
+            boolean.class, Boolean.class, byte.class, Byte.class, char.class, Character.class, short.class, Short.class,
+            int.class, Integer.class, long.class, Long.class, float.class, Float.class, double.class, Double.class
+        );
+        private final String packageName;
+        private final Map<String, String> simpleNames = new HashMap<>();
+        private final Set<String> imports = new TreeSet<>();
+
+        private JavaImports(String packageName) {
+            this.packageName = packageName;
+        }
+
+        /**
+         * Imports a class.
+         *
+         * @param canonicalName like "java.util.List".
+         * @return the name that the code can use.
+         */
+        String add(String canonicalName) {
+            String simpleName = canonicalName.substring(canonicalName.lastIndexOf('.') + 1);
+            String existing = simpleNames.putIfAbsent(simpleName, canonicalName);
+            if (existing != null && !existing.equals(canonicalName)) {
+                return canonicalName;
+            }
+            String importPackage = canonicalName.substring(0, Math.max(0, canonicalName.lastIndexOf('.')));
+            if (!importPackage.equals("java.lang") && !importPackage.equals(packageName)) {
+                imports.add(canonicalName);
+            }
+            return simpleName;
+        }
+
+        /**
+         * Gets the Java code of a type, and imports what it needs.
+         */
+        String toSource(Type type) {
+            if (type instanceof Class<?> typeClass) {
+                if (typeClass.isArray()) {
+                    return toSource(typeClass.getComponentType()) + "[]";
+                }
+                return typeClass.isPrimitive() ? typeClass.getName() : add(typeClass.getCanonicalName());
+            } else if (type instanceof ParameterizedType parameterizedType) {
+                return toSource(parameterizedType.getRawType()) + "<" + Arrays.stream(parameterizedType.getActualTypeArguments())
+                    .map(this::toSource)
+                    .collect(Collectors.joining(", ")) + ">";
+            } else if (type instanceof GenericArrayType genericArrayType) {
+                return toSource(genericArrayType.getGenericComponentType()) + "[]";
+            } else if (type instanceof WildcardType wildcardType) {
+                if (wildcardType.getLowerBounds().length > 0) {
+                    return "? super " + toSource(wildcardType.getLowerBounds()[0]);
+                }
+                var upperBound = wildcardType.getUpperBounds()[0];
+                return upperBound == Object.class ? "?" : "? extends " + toSource(upperBound);
+            }
+            // Type variables of the endpoint methods can't be known by the client
+            return "Object";
+        }
+
+        /**
+         * Like {@link #toSource(Type)}, but primitives are boxed, for type arguments.
+         */
+        String toBoxedSource(Type type) {
+            return toSource(type instanceof Class<?> typeClass && typeClass.isPrimitive() ? BOXED_TYPES.get(typeClass) : type);
+        }
+
+        /**
+         * Writes the import statements, the ones of the JDK last.
+         */
+        void writeTo(CodeWriter code) {
+            var otherImports = imports.stream()
+                .filter(v -> !v.startsWith("java."))
+                .toList();
+            var jdkImports = imports.stream()
+                .filter(v -> v.startsWith("java."))
+                .toList();
+            otherImports.forEach(v -> code.writeLine("import ", v, ";"));
+            if (!otherImports.isEmpty() && !jdkImports.isEmpty()) {
+                code.writeLine();
+            }
+            jdkImports.forEach(v -> code.writeLine("import ", v, ";"));
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.StreamingResponse;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends synthetic requests to every endpoint and reports the latency percentiles and the throughput of each route.
+ * The parameters and bodies are made up from the same Typescript types that the frontend gets, see {@link SampleValues}.
+ *
+ * <p>Usage: {@code LoadTester [backendUrl] [requestsPerRoute] [concurrency] [--mutations]}. Only GET routes are
+ * tested, unless {@code --mutations} is passed, since the other ones change the data of the backend.
+ * Set the {@code LOAD_TEST_TOKEN} environment variable to send the requests as a logged-in user.
+ * Without a backend, start the {@link StubServer} first.</p>
+ *
+ * <p>Requests are sent asynchronously, so a few threads can keep hundreds of requests in flight. The routes take
+ * turns, so that every route is measured under the same load.</p>
+ */
+public class LoadTester {
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private final String backendUrl;
+    private final String token;
+
+    /**
+     * One request that is sent over and over again.
+     *
+     * @param route        the route that gets tested.
+     * @param pathAndQuery the path with made up path variables and query parameters, like "/api/v1/events/1?page=1".
+     * @param body         the JSON body, or null.
+     */
+    public record SampleRequest(EndpointCatalog.Route route, String pathAndQuery, String body) {
+    }
+
+    /**
+     * The measurements of one route.
+     *
+     * @param latencies the latency of every successful request in nanoseconds, sorted.
+     * @param errors    how many requests failed or got an error status.
+     */
+    public record RouteResult(SampleRequest request, long[] latencies, int errors) {
+        /**
+         * Gets a percentile of the latencies in milliseconds, like 0.99 for the p99.
+         */
+        public double getPercentile(double percentile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Creates a new {@link LoadTester}.
+     *
+     * @param backendUrl where the backend runs, like "http://localhost:8080".
+     * @param token      a JWT that gets sent along, or null.
+     */
+    public LoadTester(String backendUrl, String token) {
+        this.backendUrl = backendUrl.endsWith("/") ? backendUrl.substring(0, backendUrl.length() - 1) : backendUrl;
+        this.token = token;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        boolean includeMutations = Arrays.asList(args)
+            .contains("--mutations");
+        var positionalArgs = Arrays.stream(args)
+            .filter(v -> !v.startsWith("--"))
+            .toList();
+        String backendUrl = positionalArgs.size() > 0 ? positionalArgs.get(0) : "http://localhost:8080";
+        int requestsPerRoute = positionalArgs.size() > 1 ? Integer.parseInt(positionalArgs.get(1)) : 200;
+        int concurrency = positionalArgs.size() > 2 ? Integer.parseInt(positionalArgs.get(2)) : 32;
+
+        var requests = getSampleRequests(EndpointGenerator.getEndpointCatalog(), new SampleValues(3))
+            .stream()
+            .filter(v -> includeMutations || v.route()
+                .isQuery())
+            .toList();
+        System.out.println("Testing " + requests.size() + " routes with " + requestsPerRoute + " requests each, " + concurrency + " at a time");
+
+        var loadTester = new LoadTester(backendUrl, System.getenv("LOAD_TEST_TOKEN"));
+        // The first requests only warm up the backend and the connection pool
+        loadTester.run(requests, Math.max(1, requestsPerRoute / 10), concurrency);
+        long start = System.nanoTime();
+        var results = loadTester.run(requests, requestsPerRoute, concurrency);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        printReport(results, seconds);
+    }
+
+    /**
+     * Makes up a request for every route. Routes that upload files or send server-sent events are skipped,
+     * the first need real files and the second never end.
+     */
+    public static List<SampleRequest> getSampleRequests(EndpointCatalog catalog, SampleValues samples) {
+        var gen = new TypescriptGenerator("at.ac.tuwien", List.of("at.ac.tuwien.sepm.groupphase.backend.endpoint.dto"));
+        var requests = new ArrayList<SampleRequest>();
+        for (EndpointCatalog.Route route : catalog.getRoutes()) {
+            var method = route.method();
+            var streamingResponse = EndpointGenerator.getStreamingResponse(method);
+            if (streamingResponse != null && streamingResponse.format() == StreamingResponse.Format.SSE) {
+                continue;
+            }
+            var endpointParameters = EndpointGenerator.getEndpointParameters(method, gen);
+            if (endpointParameters.stream()
+                .anyMatch(v -> v.binary() != null)) {
+                continue;
+            }
+
+            String path = "/" + route.path();
+            String body = null;
+            var queryParameters = new QueryParameters();
+            for (EndpointGenerator.EndpointParameter endpointParameter : endpointParameters) {
+                var value = gen.addValue(endpointParameter.parameter()
+                    .getParameterizedType());
+                switch (endpointParameter.kind()) {
+                    case BODY -> body = samples.toJson(value);
+                    case PATH -> path = replacePathVariable(path, endpointParameter.pathVariable(), samples.toParameter(value));
+                    default -> {
+                        // Like a BigDecimal, Spring parses a number for it, even though it is an "any" in Typescript
+                        boolean isNumber = Number.class.isAssignableFrom(endpointParameter.parameter()
+                            .getType());
+                        queryParameters.add(endpointParameter.name(), isNumber ? new TypescriptGenerator.TsPrimitive("number") : value);
+                    }
+                }
+            }
+
+            var query = new StringBuilder();
+            for (QueryParameters.QueryParameter queryParameter : queryParameters.getSorted()) {
+                if (queryParameter.value()
+                    .getName()
+                    .equals("any")) {
+                    // A value of an unknown type, like a Map, has no sample value
+                    continue;
+                }
+                query.append(query.length() == 0 ? '?' : '&')
+                    .append(URLEncoder.encode(queryParameter.key(), StandardCharsets.UTF_8))
+                    .append('=')
+                    .append(URLEncoder.encode(samples.toParameter(queryParameter.value()), StandardCharsets.UTF_8));
+            }
+            requests.add(new SampleRequest(route, path + query, body));
+        }
+        return requests;
+    }
+
+    /**
+     * Replaces a path variable, like "{id}" or "{id:[0-9]+}", with a value.
+     */
+    private static String replacePathVariable(String path, String name, String value) {
+        var segments = StringUtils.split(path, "/");
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].equals("{" + name + "}") || segments[i].startsWith("{" + name + ":")) {
+                segments[i] = URLEncoder.encode(value, StandardCharsets.UTF_8);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    /**
+     * Sends every request a number of times, and waits until all responses are there.
+     *
+     * @param requests         the requests, one per route.
+     * @param requestsPerRoute how often each request is sent.
+     * @param concurrency      how many requests can be in flight at the same time.
+     * @return the measurements of every route, in the same order as the requests.
+     */
+    public List<RouteResult> run(List<SampleRequest> requests, int requestsPerRoute, int concurrency) throws InterruptedException {
+        var latencies = new long[requests.size()][requestsPerRoute];
+        var counts = new AtomicInteger[requests.size()];
+        var errors = new AtomicInteger[requests.size()];
+        var httpRequests = new ArrayList<HttpRequest>();
+        for (int i = 0; i < requests.size(); i++) {
+            counts[i] = new AtomicInteger();
+            errors[i] = new AtomicInteger();
+            httpRequests.add(toHttpRequest(requests.get(i)));
+        }
+
+        var inFlight = new Semaphore(concurrency);
+        for (int round = 0; round < requestsPerRoute; round++) {
+            for (int i = 0; i < requests.size(); i++) {
+                inFlight.acquire();
+                final int routeIndex = i;
+                long start = System.nanoTime();
+                httpClient.sendAsync(httpRequests.get(i), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, exception) -> {
+                        long latency = System.nanoTime() - start;
+                        if (exception != null || response.statusCode() >= 400) {
+                            errors[routeIndex].incrementAndGet();
+                        } else {
+                            latencies[routeIndex][counts[routeIndex].getAndIncrement()] = latency;
+                        }
+                        inFlight.release();
+                    });
+            }
+        }
+        // Waits for the last responses
+        inFlight.acquire(concurrency);
+        inFlight.release(concurrency);
+
+        var results = new ArrayList<RouteResult>();
+        for (int i = 0; i < requests.size(); i++) {
+            var routeLatencies = Arrays.copyOf(latencies[i], counts[i].get());
+            Arrays.sort(routeLatencies);
+            results.add(new RouteResult(requests.get(i), routeLatencies, errors[i].get()));
+        }
+        return results;
+    }
+
+    private HttpRequest toHttpRequest(SampleRequest request) {
+        var builder = HttpRequest.newBuilder(URI.create(backendUrl + request.pathAndQuery()))
+            .timeout(Duration.ofSeconds(30))
+            .header("Accept", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        var bodyPublisher = HttpRequest.BodyPublishers.noBody();
+        if (request.body() != null) {
+            builder.header("Content-Type", "application/json");
+            bodyPublisher = HttpRequest.BodyPublishers.ofString(request.body(), StandardCharsets.UTF_8);
+        }
+        return builder.method(request.route()
+                .type()
+                .name(), bodyPublisher)
+            .build();
+    }
+
+    /**
+     * Prints a table with one line per route.
+     *
+     * @param seconds how long all requests took together.
+     */
+    public static void printReport(List<RouteResult> results, double seconds) {
+        System.out.println(String.format(Locale.ROOT, "%-7s %-50s %8s %8s %8s %8s %8s %8s %8s",
+            "Method", "Path", "Requests", "Errors", "p50 ms", "p90 ms", "p99 ms", "Max ms", "Req/s"));
+        int total = 0;
+        for (RouteResult result : results) {
+            total += result.latencies().length;
+            System.out.println(String.format(Locale.ROOT, "%-7s %-50s %8d %8d %8.2f %8.2f %8.2f %8.2f %8.1f",
+                result.request()
+                    .route()
+                    .type(),
+                result.request()
+                    .pathAndQuery(),
+                result.latencies().length,
+                result.errors(),
+                result.getPercentile(0.5),
+                result.getPercentile(0.9),
+                result.getPercentile(0.99),
+                result.getPercentile(1),
+                result.latencies().length / seconds));
+        }
+        System.out.println(String.format(Locale.ROOT, "%d successful requests in %.2f s, %.1f requests per second", total, seconds, total / seconds));
+    }
+}
@@ -0,0 +1,76 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns Java names into Typescript file names and paths.
+ *
+ * <p>The same class names and packages show up in almost every import line, so the results are cached and interned.</p>
+ */
+public class NamingUtils {
+    private static final Map<String, String> snakeCaseNames = new ConcurrentHashMap<>();
+    private static final Map<List<String>, String> filePaths = new ConcurrentHashMap<>();
+
+    private NamingUtils() {
+    }
+
+    /**
+     * Turns a camelCase or PascalCase String into a snake-case String.
+     *
+     * @param name the camelCase or PascalCase String.
+     * @return a snake-case String.
+     */
+    public static String toSnakeCase(String name) {
+        return snakeCaseNames.computeIfAbsent(name, v -> StringUtils.camelCaseToSnakeCase(v)
+            .intern());
+    }
+
+    /**
+     * Takes a camelCase or PascalCase Java file name and outputs a corresponding snake-case
+     * Typescript file name.
+     *
+     * <p>Regarding the ".ts" extension, sadly Typescript doesn't support imports with a
+     * proper file extension. Hence, this function has an option to exclude the file extension.
+     * </p>
+     *
+     * @param name             the Java file name.
+     * @param includeExtension whether the ".ts" extension should be included or not.
+     * @return the Typescript file name.
+     */
+    public static String toTsFileName(String name, boolean includeExtension) {
+        String fileName = toSnakeCase(name);
+        return includeExtension ? fileName + ".ts" : fileName;
+    }
+
+    /**
+     * Takes a path and joins it with "/"s, including a trailing "/".
+     */
+    public static String toTsFilePath(List<String> path) {
+        if (path.isEmpty()) {
+            return "";
+        }
+        String cachedFilePath = filePaths.get(path);
+        if (cachedFilePath != null) {
+            return cachedFilePath;
+        }
+        var result = new StringBuilder();
+        for (String part : path) {
+            result.append(part)
+                .append('/');
+        }
+        String filePath = result.toString()
+            .intern();
+        // The key gets copied, since the caller might still modify its list
+        filePaths.put(List.copyOf(path), filePath);
+        return filePath;
+    }
+
+    /**
+     * Gets the import path of a Typescript value, like "@/dtos/event/event-detail".
+     */
+    public static String toDtoImportPath(List<String> path, String name) {
+        return "@/dtos/" + toTsFilePath(path) + toTsFileName(name, false);
+    }
+}
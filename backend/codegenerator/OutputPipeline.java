@@ -0,0 +1,200 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stages generated files on disk while the next ones are still being rendered, and only writes them once all of them
+ * rendered.
+ *
+ * <p>The files are rendered on a background thread and handed over through a small queue. When the queue is full,
+ * rendering waits until a file has been staged, so only a few rendered files are ever in memory, no matter how many
+ * endpoints and DTOs there are. If rendering fails, the staged files are thrown away and the output stays as it was,
+ * instead of ending up half old and half new. Writing stays on the calling thread, since the
+ * {@link InteractiveFileUpdater} might ask the user.</p>
+ *
+ * <p>Every target gets checked before the first file is written, so that a manually modified file stops the run
+ * before anything changed, and not halfway through writing.</p>
+ */
+public class OutputPipeline {
+    private static final RenderedFile END = new RenderedFile(null, null);
+    private final int capacity;
+
+    /**
+     * Renders all files and passes each one to the sink as soon as it is done.
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        void render(FileSink sink);
+    }
+
+    @FunctionalInterface
+    public interface FileSink {
+        /**
+         * Hands over a rendered file, and waits if the writer is too far behind.
+         */
+        void accept(Path path, String contents);
+    }
+
+    @FunctionalInterface
+    public interface FileChecker {
+        /**
+         * Checks whether a file may be written, and throws if it must not be.
+         */
+        void check(Path path) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface FileWriter {
+        /**
+         * Writes one file.
+         *
+         * @return false if the file was left as it is, for example because it already has these contents.
+         */
+        boolean write(Path path, String contents) throws IOException;
+    }
+
+    private record RenderedFile(Path path, String contents) {
+    }
+
+    private record StagedFile(Path path, Path stagedPath) {
+    }
+
+    /**
+     * Creates a new {@link OutputPipeline}.
+     *
+     * @param capacity how many rendered files can wait to be written.
+     */
+    public OutputPipeline(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Expected a capacity of at least 1, but got " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Renders and stages all files, and then writes them.
+     *
+     * @param renderer renders the files, on another thread.
+     * @param writer   writes one file, on this thread, after every file has been rendered.
+     * @return how many files were written.
+     * @throws IOException if staging or writing a file failed, rendering stops then.
+     */
+    public int run(Renderer renderer, FileWriter writer) throws IOException {
+        return run(renderer, path -> {
+        }, writer);
+    }
+
+    /**
+     * Renders and stages all files, checks all of them, and then writes them.
+     *
+     * @param renderer renders the files, on another thread.
+     * @param checker  checks one file, on this thread, before any file is written.
+     * @param writer   writes one file, on this thread, after every file has been rendered and checked.
+     * @return how many files were written.
+     * @throws IOException if staging, checking or writing a file failed, rendering stops then.
+     */
+    public int run(Renderer renderer, FileChecker checker, FileWriter writer) throws IOException {
+        var stagingDirectory = Files.createTempDirectory("codegenerator-");
+        try {
+            var stagedFiles = stage(renderer, stagingDirectory);
+            for (var file : stagedFiles) {
+                checker.check(file.path());
+            }
+            int writtenFiles = 0;
+            for (var file : stagedFiles) {
+                if (writer.write(file.path(), Files.readString(file.stagedPath(), StandardCharsets.UTF_8))) {
+                    writtenFiles++;
+                }
+            }
+            return writtenFiles;
+        } finally {
+            deleteRecursively(stagingDirectory);
+        }
+    }
+
+    private List<StagedFile> stage(Renderer renderer, Path stagingDirectory) throws IOException {
+        var queue = new ArrayBlockingQueue<RenderedFile>(capacity);
+        var renderFailure = new AtomicReference<Throwable>();
+        var renderThread = new Thread(() -> {
+            try {
+                renderer.render((path, contents) -> put(queue, new RenderedFile(path, contents)));
+            } catch (Throwable e) {
+                renderFailure.set(e);
+            } finally {
+                try {
+                    put(queue, END);
+                } catch (CancellationException e) {
+                    // Nobody is waiting for the files anymore
+                }
+            }
+        }, "codegenerator-renderer");
+        // A failed staging write stops waiting for the renderer, which must not keep the JVM alive
+        renderThread.setDaemon(true);
+        renderThread.start();
+
+        var stagedFiles = new ArrayList<StagedFile>();
+        try {
+            while (true) {
+                var file = queue.take();
+                if (file == END) {
+                    break;
+                }
+                // Numbered, since the paths of the files might not be valid file names on their own
+                var stagedPath = stagingDirectory.resolve(stagedFiles.size() + ".generated");
+                Files.writeString(stagedPath, file.contents(), StandardCharsets.UTF_8);
+                stagedFiles.add(new StagedFile(file.path(), stagedPath));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+            throw new InterruptedIOException("Interrupted while staging the generated files");
+        } finally {
+            // Stops a renderer that is still waiting for space in the queue
+            renderThread.interrupt();
+        }
+
+        var failure = renderFailure.get();
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        } else if (failure instanceof Error error) {
+            throw error;
+        } else if (failure != null) {
+            throw new IllegalStateException("Failed to render the generated files", failure);
+        }
+        return stagedFiles;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            // Children before their parents
+            for (var path : paths.sorted(Comparator.reverseOrder())
+                .toList()) {
+                Files.delete(path);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void put(BlockingQueue<RenderedFile> queue, RenderedFile file) {
+        try {
+            queue.put(file);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+            throw new CancellationException("The generated files are not written anymore");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimates how big the JSON response of every GET gets, from the same Typescript types that the frontend gets, and
+ * points out what makes a response needlessly big.
+ *
+ * <p>The estimate assumes a fixed number of elements in every array and a typical size for every primitive, like
+ * {@link SampleValues} does for the made up values. It is meant for comparing the routes with each other, not for
+ * predicting the exact number of bytes.</p>
+ *
+ * <p>It flags lists that are returned as they are, instead of in a paged DTO, responses that are nested deeper than a
+ * limit, and DTOs that are embedded more than once in the same response, which serializes all their fields again.</p>
+ */
+public class PayloadAnalyzer {
+    private final int arraySize;
+    private final int maxDepth;
+    private final TypescriptGenerator gen = new TypescriptGenerator("at.ac.tuwien", List.of("at.ac.tuwien.sepm.groupphase.backend.endpoint.dto"));
+
+    /**
+     * The estimated response of one route.
+     *
+     * @param estimatedSize the estimated size of the JSON in bytes.
+     * @param depth         how many DTOs are nested in each other, 0 for a primitive.
+     * @param findings      what makes the response bigger than it has to be.
+     */
+    public record RouteCost(EndpointCatalog.Route route, long estimatedSize, int depth, List<String> findings) {
+    }
+
+    /**
+     * Creates a new {@link PayloadAnalyzer}.
+     *
+     * @param arraySize how many elements every array is assumed to have.
+     * @param maxDepth  responses with more nested DTOs get flagged.
+     */
+    public PayloadAnalyzer(int arraySize, int maxDepth) {
+        this.arraySize = arraySize;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Estimates the response of every GET route. Streams and file downloads are skipped, their size is not limited
+     * by their type.
+     *
+     * @return the routes, the biggest response first.
+     */
+    public List<RouteCost> analyze(EndpointCatalog catalog) {
+        var costs = new ArrayList<RouteCost>();
+        for (EndpointCatalog.Route route : catalog.getRoutes()) {
+            var method = route.method();
+            if (!route.isQuery() || EndpointGenerator.getStreamingResponse(method) != null || EndpointGenerator.isBinaryType(method.getReturnType())) {
+                continue;
+            }
+            var returnType = gen.addValue(method.getGenericReturnType());
+            if (returnType.getName()
+                .equals("void")) {
+                continue;
+            }
+
+            var walk = new Walk();
+            long estimatedSize = estimate(returnType, Map.of(), "", 0, walk);
+
+            var findings = new ArrayList<String>();
+            if (returnType instanceof TypescriptGenerator.TsArray) {
+                findings.add("unbounded list, not paged");
+            }
+            if (walk.depth > maxDepth) {
+                findings.add(walk.depth + " nested DTOs deep");
+            }
+            walk.embeddings.forEach((tsInterface, paths) -> {
+                if (paths.size() > 1) {
+                    findings.add(tsInterface.getName() + " embedded " + paths.size() + " times (" + String.join(", ", paths) + ")");
+                }
+            });
+            costs.add(new RouteCost(route, estimatedSize, walk.depth, findings));
+        }
+        costs.sort(Comparator.comparingLong(RouteCost::estimatedSize)
+            .reversed());
+        return costs;
+    }
+
+    /**
+     * What one route's response has been found to contain so far.
+     */
+    private static class Walk {
+        int depth = 0;
+        /**
+         * The paths of every DTO in the response, like "show.event" and "event".
+         */
+        final Map<TypescriptGenerator.TsInterface, Set<String>> embeddings = new LinkedHashMap<>();
+        final Set<TypescriptGenerator.TsInterface> visiting = new HashSet<>();
+    }
+
+    /**
+     * @param generics the actual types of the generic type parameters that are in scope.
+     * @param path     where the value is in the response, like "show.event".
+     * @param depth    how many DTOs the value is nested in.
+     * @return the estimated size of the value as JSON.
+     */
+    private long estimate(TypescriptGenerator.TsValue value, Map<String, TypescriptGenerator.TsValue> generics, String path, int depth, Walk walk) {
+        if (value instanceof TypescriptGenerator.TsArray array) {
+            long elementSize = estimate(array.getValue(), generics, path + "[]", depth, walk);
+            // Brackets and a comma between the elements
+            return 2 + arraySize * elementSize + Math.max(0, arraySize - 1);
+        } else if (value instanceof TypescriptGenerator.TsInterfaceInstance instance) {
+            var actualGenerics = new HashMap<String, TypescriptGenerator.TsValue>();
+            var interfaceGenerics = instance.getInterface()
+                .getGenerics();
+            for (int i = 0; i < interfaceGenerics.size() && i < instance.getActualTypes()
+                .size(); i++) {
+                var actualType = instance.getActualTypes()
+                    .get(i);
+                actualGenerics.put(interfaceGenerics.get(i)
+                    .getName(), generics.getOrDefault(actualType.getName(), actualType));
+            }
+            return estimate(instance.getInterface(), actualGenerics, path, depth, walk);
+        } else if (value instanceof TypescriptGenerator.TsInterface tsInterface) {
+            if (!walk.visiting.add(tsInterface)) {
+                // Cyclic DTOs are not supported by the generator, this just avoids an endless loop
+                return 0;
+            }
+            walk.depth = Math.max(walk.depth, depth + 1);
+            walk.embeddings.computeIfAbsent(tsInterface, v -> new LinkedHashSet<>())
+                .add(path.isEmpty() ? "(root)" : path);
+            var properties = tsInterface.getProperties();
+            long size = 2 + Math.max(0, properties.size() - 1);
+            for (TypescriptGenerator.TsProperty property : properties) {
+                String propertyPath = path.isEmpty() ? property.getName() : path + "." + property.getName();
+                // The quoted name and the colon
+                size += property.getName()
+                    .length() + 3;
+                size += estimate(property.getValue(), generics, propertyPath, depth + 1, walk);
+            }
+            walk.visiting.remove(tsInterface);
+            return size;
+        } else if (value instanceof TypescriptGenerator.TsType tsType) {
+            return estimateType(tsType);
+        } else if (generics.containsKey(value.getName())) {
+            return estimate(generics.get(value.getName()), Map.of(), path, depth, walk);
+        }
+        return switch (value.getName()) {
+            case "number" -> 6;
+            case "string" -> 24;
+            case "boolean", "boolean | null" -> 5;
+            default -> 4;
+        };
+    }
+
+    private static long estimateType(TypescriptGenerator.TsType tsType) {
+        return switch (tsType.getName()) {
+            case "IsoDateString" -> 12;
+            case "IsoDateTimeString" -> 21;
+            default -> {
+                String type = tsType.getType();
+                if (type.startsWith("\"")) {
+                    // Enums are a union of their names, like "CONCERT" | "MOVIE"
+                    var names = type.split(" \\| ");
+                    yield Math.round(Arrays.stream(names)
+                        .mapToInt(String::length)
+                        .average()
+                        .orElse(0));
+                }
+                yield type.equals("number") ? 6 : 24;
+            }
+        };
+    }
+
+    /**
+     * Prints the routes with their estimated size, depth and findings, the biggest response first.
+     */
+    public static void printReport(List<RouteCost> costs) {
+        System.out.println(String.format(Locale.ROOT, "%-50s %10s %6s  %s", "Path", "Est. bytes", "Depth", "Findings"));
+        for (RouteCost cost : costs) {
+            System.out.println(String.format(Locale.ROOT, "%-50s %10d %6d  %s",
+                "/" + cost.route()
+                    .path(),
+                cost.estimatedSize(),
+                cost.depth(),
+                String.join("; ", cost.findings())));
+        }
+    }
+}
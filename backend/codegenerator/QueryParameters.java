@@ -0,0 +1,136 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Flattens endpoint method parameters into query parameters, the same way Spring binds them.
+ *
+ * <p>A DTO parameter gets "destructured" into its properties, nested DTOs use the dot notation like
+ * {@code location.city}. The result is sorted by key, so that the same request always leads to the same URL.</p>
+ */
+public class QueryParameters {
+    private final List<QueryParameter> parameters = new ArrayList<>();
+
+    /**
+     * Adds a method parameter, and flattens it if it is a DTO.
+     *
+     * @param parameterName the name of the method parameter.
+     * @param value         the type of the method parameter.
+     */
+    public void add(String parameterName, TypescriptGenerator.TsValue value) {
+        if (value instanceof TypescriptGenerator.TsInterface tsInterface) {
+            // The properties of a top level DTO are directly used as query parameters
+            addProperties("", List.of(parameterName), tsInterface, new HashSet<>());
+        } else if (value instanceof TypescriptGenerator.TsInterfaceInstance tsInterfaceInstance) {
+            addProperties("", List.of(parameterName), tsInterfaceInstance.getInterface(), new HashSet<>());
+        } else {
+            addParameter(parameterName, List.of(parameterName), value);
+        }
+    }
+
+    private void addProperties(String keyPrefix, List<String> accessPath, TypescriptGenerator.TsInterface tsInterface,
+                               Set<TypescriptGenerator.TsInterface> visited) {
+        if (!visited.add(tsInterface)) {
+            // A DTO that (indirectly) contains itself cannot be sent as query parameters
+            return;
+        }
+        for (TypescriptGenerator.TsProperty property : tsInterface.getProperties()) {
+            String key = keyPrefix + property.getName();
+            var propertyAccessPath = new ArrayList<>(accessPath);
+            propertyAccessPath.add(property.getName());
+
+            var value = property.getValue();
+            if (value instanceof TypescriptGenerator.TsInterface nestedInterface) {
+                addProperties(key + ".", propertyAccessPath, nestedInterface, visited);
+            } else if (value instanceof TypescriptGenerator.TsInterfaceInstance nestedInstance) {
+                addProperties(key + ".", propertyAccessPath, nestedInstance.getInterface(), visited);
+            } else {
+                addParameter(key, propertyAccessPath, value);
+            }
+        }
+        visited.remove(tsInterface);
+    }
+
+    private void addParameter(String key, List<String> accessPath, TypescriptGenerator.TsValue value) {
+        if (value instanceof TypescriptGenerator.TsArray tsArray && (tsArray.getValue() instanceof TypescriptGenerator.TsInterface
+            || tsArray.getValue() instanceof TypescriptGenerator.TsInterfaceInstance)) {
+            // Spring would want indexed keys like items[0].name, and String() of a DTO is only "[object Object]"
+            throw new IllegalArgumentException("Expected query parameter " + key + " to not be a list of DTOs, it has to be sent in a request body");
+        }
+        parameters.add(new QueryParameter(key, List.copyOf(accessPath), value));
+    }
+
+    public boolean isEmpty() {
+        return parameters.isEmpty();
+    }
+
+    /**
+     * Gets all query parameters in their canonical order.
+     */
+    public List<QueryParameter> getSorted() {
+        return parameters.stream()
+            .sorted(Comparator.comparing(QueryParameter::key))
+            .toList();
+    }
+
+    /**
+     * Writes Typescript code that builds a URLSearchParams object, skipping null, undefined and empty values.
+     *
+     * @param writer       where the code gets written to.
+     * @param variableName the name of the URLSearchParams variable, it must not be the name of a method parameter.
+     */
+    public void writeTsBuilder(CodeWriter writer, String variableName) {
+        writer.writeLine("const ", variableName, " = new URLSearchParams();");
+        for (QueryParameter parameter : getSorted()) {
+            String accessor = parameter.toTsAccessor();
+            String append = variableName + ".append('" + parameter.key() + "', String(";
+            if (parameter.value() instanceof TypescriptGenerator.TsArray) {
+                String elementName = EndpointGenerator.getLocalName("value", List.of(parameter.accessPath()
+                    .get(0), variableName));
+                writer.writeLine("for (const ", elementName, " of ", accessor, " ?? []) ", append, elementName, "));");
+            } else if (canBeEmptyString(parameter.value())) {
+                writer.writeLine("if (", accessor, " != null && ", accessor, " !== '') ", append, accessor, "));");
+            } else {
+                writer.writeLine("if (", accessor, " != null) ", append, accessor, "));");
+            }
+        }
+    }
+
+    /**
+     * Empty strings are also skipped. Sadly, Typescript complains when a number gets compared to a string.
+     */
+    private static boolean canBeEmptyString(TypescriptGenerator.TsValue value) {
+        if (value instanceof TypescriptGenerator.TsType tsType) {
+            return tsType.getType()
+                .equals("string");
+        }
+        return value.getName()
+            .equals("string") || value.getName()
+            .equals("any");
+    }
+
+    /**
+     * One flattened query parameter.
+     *
+     * @param key        the key in the query string, like {@code location.city}.
+     * @param accessPath the method parameter name, followed by the property names to get to the value.
+     * @param value      the type of the value.
+     */
+    public record QueryParameter(String key, List<String> accessPath, TypescriptGenerator.TsValue value) {
+        /**
+         * Gets the Typescript code to read the value. Nested DTOs could be missing, so those are accessed with "?.".
+         */
+        public String toTsAccessor() {
+            var accessor = new StringBuilder(accessPath.get(0));
+            for (int i = 1; i < accessPath.size(); i++) {
+                accessor.append(i == 1 ? "." : "?.")
+                    .append(accessPath.get(i));
+            }
+            return accessor.toString();
+        }
+    }
+}
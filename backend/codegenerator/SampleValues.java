@@ -0,0 +1,111 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Makes up plausible JSON values for Typescript types, like {@code 1} for a number or {@code "2024-01-01"} for an
+ * IsoDateString. The {@link LoadTester} sends them as parameters and bodies, and the {@link StubServer} answers with them.
+ *
+ * <p>The same type always results in the same value, so that load tests can be compared with each other.</p>
+ */
+public class SampleValues {
+    private final int arraySize;
+
+    /**
+     * Creates a new {@link SampleValues}.
+     *
+     * @param arraySize how many elements every array gets.
+     */
+    public SampleValues(int arraySize) {
+        this.arraySize = arraySize;
+    }
+
+    public int getArraySize() {
+        return arraySize;
+    }
+
+    /**
+     * Makes up a value and writes it as JSON.
+     */
+    public String toJson(TypescriptGenerator.TsValue value) {
+        var json = new StringBuilder();
+        writeJson(json, value, Map.of(), 0);
+        return json.toString();
+    }
+
+    /**
+     * Makes up a value for a query parameter or path variable, like {@code 1} or {@code sample}.
+     */
+    public String toParameter(TypescriptGenerator.TsValue value) {
+        var element = value instanceof TypescriptGenerator.TsArray array ? array.getValue() : value;
+        var json = new StringBuilder();
+        writeJson(json, element, Map.of(), 0);
+        // Strings are the only values with quotes, and the samples have nothing that needs escaping
+        return json.charAt(0) == '"' ? json.substring(1, json.length() - 1) : json.toString();
+    }
+
+    private void writeJson(StringBuilder json, TypescriptGenerator.TsValue value, Map<String, TypescriptGenerator.TsValue> generics, int depth) {
+        if (value instanceof TypescriptGenerator.TsArray array) {
+            json.append('[');
+            // Nested arrays would grow exponentially
+            int size = depth == 0 ? arraySize : Math.min(arraySize, 2);
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                writeJson(json, array.getValue(), generics, depth + 1);
+            }
+            json.append(']');
+        } else if (value instanceof TypescriptGenerator.TsInterfaceInstance instance) {
+            var actualGenerics = new HashMap<String, TypescriptGenerator.TsValue>();
+            var interfaceGenerics = instance.getInterface()
+                .getGenerics();
+            for (int i = 0; i < interfaceGenerics.size(); i++) {
+                actualGenerics.put(interfaceGenerics.get(i)
+                    .getName(), instance.getActualTypes()
+                    .get(i));
+            }
+            writeJson(json, instance.getInterface(), actualGenerics, depth);
+        } else if (value instanceof TypescriptGenerator.TsInterface tsInterface) {
+            json.append('{');
+            boolean isFirst = true;
+            for (TypescriptGenerator.TsProperty property : tsInterface.getProperties()) {
+                if (!isFirst) {
+                    json.append(',');
+                }
+                isFirst = false;
+                json.append(StringUtils.toJsonString(property.getName()))
+                    .append(':');
+                writeJson(json, property.getValue(), generics, depth + 1);
+            }
+            json.append('}');
+        } else if (value instanceof TypescriptGenerator.TsType tsType) {
+            json.append(getTypeSample(tsType));
+        } else if (generics.containsKey(value.getName())) {
+            writeJson(json, generics.get(value.getName()), Map.of(), depth);
+        } else {
+            json.append(switch (value.getName()) {
+                case "number" -> "1";
+                case "string" -> "\"sample\"";
+                case "boolean", "boolean | null" -> "true";
+                default -> "null";
+            });
+        }
+    }
+
+    private static String getTypeSample(TypescriptGenerator.TsType tsType) {
+        return switch (tsType.getName()) {
+            case "IsoDateString" -> "\"2024-01-01\"";
+            case "IsoDateTimeString" -> "\"2024-01-01T12:00:00\"";
+            default -> {
+                // Enums are a union of their names, like "CONCERT" | "MOVIE"
+                String type = tsType.getType();
+                if (type.startsWith("\"")) {
+                    yield type.substring(0, type.indexOf('"', 1) + 1);
+                }
+                yield type.equals("number") ? "1" : "\"sample\"";
+            }
+        };
+    }
+}
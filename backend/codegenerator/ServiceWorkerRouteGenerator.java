@@ -0,0 +1,139 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.ServiceWorkerCache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates the route table of the service worker, with the caching strategy of every GET path.
+ *
+ * <p>The strategies come from {@link ServiceWorkerCache} annotations, see there for the defaults. Every GET route is
+ * in the table, also the network only ones, so that a path like "api/v1/events/top" is never answered with the
+ * strategy of "api/v1/events/*". Paths with fewer path variables come first, and the service worker uses the first
+ * one that matches.</p>
+ *
+ * <p>The file also has a version, which is a hash of the route table and all DTOs. The service worker keeps its
+ * responses in a cache of that version, so an API change starts with an empty cache.</p>
+ */
+public class ServiceWorkerRouteGenerator {
+    /**
+     * The generated route table, relative to the output directory.
+     */
+    public static final String FILE_NAME = "services/service-worker-routes.ts";
+
+    private record TableEntry(String path, ServiceWorkerCache.Strategy strategy, int maxAge) {
+        /**
+         * Gets the entry as a ServiceWorkerRoute in service-worker.ts
+         */
+        String toTsObject() {
+            return "{ path: '" + path + "', strategy: '" + strategy.name()
+                .toLowerCase(Locale.ROOT)
+                .replace('_', '-') + "', maxAge: " + maxAge + " }";
+        }
+    }
+
+    /**
+     * Gets the caching strategy of a route, from its annotation or the default.
+     *
+     * @throws IllegalArgumentException if a route that must never be cached has an annotation.
+     */
+    public static ServiceWorkerCache.Strategy getStrategy(EndpointCatalog.Route route) {
+        var annotation = route.method()
+            .getAnnotation(ServiceWorkerCache.class);
+        if (annotation == null || annotation.value() == ServiceWorkerCache.Strategy.NETWORK_ONLY) {
+            return ServiceWorkerCache.Strategy.NETWORK_ONLY;
+        }
+        if (!route.isQuery() || EndpointGenerator.getStreamingResponse(route.method()) != null || CachePolicyGenerator.isAuthRoute(route)) {
+            throw new IllegalArgumentException("Expected method with @ServiceWorkerCache to be a GET that is not streamed or about authentication: " + route.method());
+        }
+        // Otherwise the next user on the same browser would get the responses of the previous one
+        if (!CachePolicyGenerator.getPolicy(route)
+            .cacheControl()
+            .startsWith("public")) {
+            throw new IllegalArgumentException("Expected method with @ServiceWorkerCache to have a @CachePolicy(shared = true): " + route.method());
+        }
+        return annotation.value();
+    }
+
+    /**
+     * Generates the Typescript code of the route table.
+     *
+     * @param catalog all endpoints.
+     * @param gen     knows all DTOs, it has to be frozen.
+     */
+    public static CodeWriter getCode(EndpointCatalog catalog, TypescriptGenerator gen) {
+        var entries = new LinkedHashMap<String, TableEntry>();
+        for (EndpointCatalog.Route route : catalog.getRoutes()) {
+            if (!route.isQuery()) {
+                continue;
+            }
+            var strategy = getStrategy(route);
+            var annotation = route.method()
+                .getAnnotation(ServiceWorkerCache.class);
+            int maxAge = strategy == ServiceWorkerCache.Strategy.CACHE_FIRST ? annotation.maxAge() : 0;
+            // Like the paths of invalidateCache in service.ts
+            String path = Arrays.stream(StringUtils.split(route.path(), "/"))
+                .map(v -> v.startsWith("{") && v.endsWith("}") ? "*" : v)
+                .collect(Collectors.joining("/"));
+
+            var entry = new TableEntry(path, strategy, maxAge);
+            var previousEntry = entries.putIfAbsent(path, entry);
+            if (previousEntry != null && !previousEntry.equals(entry)) {
+                throw new IllegalArgumentException("Expected every GET of /" + path + " to have the same @ServiceWorkerCache: " + route.method());
+            }
+        }
+
+        var table = new CodeWriter();
+        table.writeLine("export const serviceWorkerRoutes: ServiceWorkerRoute[] = [");
+        table.beginIndent();
+        entries.values()
+            .stream()
+            .sorted(Comparator.comparingLong((TableEntry v) -> v.path()
+                    .chars()
+                    .filter(c -> c == '*')
+                    .count())
+                .thenComparing(TableEntry::path))
+            .forEach(v -> table.writeLine(v.toTsObject(), ","));
+        table.endIndent();
+        table.writeLine("];");
+
+        var code = new CodeWriter();
+        code.writeLine("import type { ServiceWorkerRoute } from '../service-worker';");
+        code.writeLine();
+        code.writeLine("/** Changes whenever the routes or the DTOs change, see CACHE_NAME in service-worker.ts */");
+        code.writeLine("export const serviceWorkerCacheVersion = '", getVersion(table, gen), "';");
+        code.writeLine();
+        code.writeLines(table);
+        return code;
+    }
+
+    private static String getVersion(CodeWriter table, TypescriptGenerator gen) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        digest.update(table.toCode(0)
+            .getBytes(StandardCharsets.UTF_8));
+        Stream.concat(gen.getInterfaces()
+                    .stream(),
+                gen.getTypes()
+                    .stream())
+            .forEach(v -> digest.update(v.getCode()
+                .toCode(0)
+                .getBytes(StandardCharsets.UTF_8)));
+        // Short enough for a cache name, and still never the same by accident
+        return HexFormat.of()
+            .formatHex(digest.digest(), 0, 8);
+    }
+}
@@ -0,0 +1,189 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records the GET responses of a running backend into a snapshot, which the frontend can use instead of a backend.
+ * This replaces copying the kyCache out of the browser console.
+ *
+ * <p>The snapshot consists of two files. {@code data.bin} has every response as its own gzip member, so that one
+ * response can be read without reading the others. {@code index.json} maps every request identifier to the
+ * offset and length of its response in {@code data.bin}. The frontend only downloads the small index at startup,
+ * and fetches single responses with range requests.</p>
+ *
+ * <p>Usage: {@code SnapshotRecorder [backendUrl] [pathsFile]}. All GET routes without path variables get recorded.
+ * The optional paths file lists more paths, one per line, like {@code /api/v1/events/5}. Set the
+ * {@code SNAPSHOT_TOKEN} environment variable to record the responses that a logged-in user gets.</p>
+ */
+public class SnapshotRecorder {
+    /**
+     * Where the snapshot ends up, it gets served as a static file.
+     */
+    public static final Path outputPath = Path.of("../frontend/public/ky-snapshot");
+
+    /**
+     * Bumped whenever the format changes, see tryLoadKySnapshot in service.ts
+     */
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private final String backendUrl;
+    private final String token;
+
+    /**
+     * Creates a new {@link SnapshotRecorder}.
+     *
+     * @param backendUrl where the backend runs, like "http://localhost:8080".
+     * @param token      a JWT that gets sent along, or null to record the responses of an anonymous user.
+     */
+    public SnapshotRecorder(String backendUrl, String token) {
+        this.backendUrl = backendUrl.endsWith("/") ? backendUrl.substring(0, backendUrl.length() - 1) : backendUrl;
+        this.token = token;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String backendUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        var paths = new TreeSet<>(getRecordablePaths(EndpointGenerator.getEndpointCatalog()));
+        if (args.length > 1) {
+            Files.readAllLines(Path.of(args[1]), StandardCharsets.UTF_8)
+                .stream()
+                .map(String::strip)
+                .filter(v -> !v.isEmpty() && !v.startsWith("#"))
+                .forEach(paths::add);
+        }
+
+        var recorder = new SnapshotRecorder(backendUrl, System.getenv("SNAPSHOT_TOKEN"));
+        var responses = new TreeMap<String, String>();
+        for (String path : paths) {
+            var response = recorder.record(path);
+            if (response != null) {
+                responses.put(recorder.getRequestIdentifier(path), response);
+            }
+        }
+
+        System.out.println("Recorded " + responses.size() + " of " + paths.size() + " responses");
+        writeSnapshot(outputPath, responses);
+        System.out.println("Done!");
+    }
+
+    /**
+     * Gets the paths of all GET routes that can be called without knowing any ids. Streaming routes are skipped,
+     * since they might never end.
+     *
+     * @return paths the same way that ky requests them, like "/api/v1/news/".
+     */
+    public static List<String> getRecordablePaths(EndpointCatalog catalog) {
+        return catalog.getRoutes()
+            .stream()
+            .filter(EndpointCatalog.Route::isQuery)
+            .filter(v -> v.getPathVariables()
+                .isEmpty())
+            .filter(v -> EndpointGenerator.getStreamingResponse(v.method()) == null)
+            .map(v -> {
+                // ky always puts a "/" between the prefixUrl (the base path of the service) and the path
+                String basePath = EndpointCatalog.getBasePath(v.endpointClass());
+                String path = EndpointCatalog.getMappingType(v.method())
+                    .getPath();
+                return "/" + (basePath.endsWith("/") ? basePath : basePath + "/") + StringUtils.withoutLeading(path, '/');
+            })
+            .toList();
+    }
+
+    /**
+     * Sends a GET request to the backend.
+     *
+     * @param path the path and query string, like "/api/v1/news/?pageIndex=0".
+     * @return the response in the format of the kyCache, or null if the request failed.
+     */
+    public String record(String path) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(backendUrl + path))
+            .timeout(Duration.ofSeconds(30))
+            .header("Accept", "application/json");
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+
+        var response = httpClient.send(request.GET()
+            .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            System.out.println("Skipping " + path + ", got status " + response.statusCode());
+            return null;
+        }
+        String contentType = response.headers()
+            .firstValue("Content-Type")
+            .map(StringUtils::toJsonString)
+            .orElse("null");
+        return "{\"status\":" + response.statusCode() + ",\"contentType\":" + contentType + ",\"body\":" + StringUtils.toJsonString(response.body()) + "}";
+    }
+
+    /**
+     * Gets the key of a request in the kyCache, see getRequestIdentifier in service.ts
+     */
+    public String getRequestIdentifier(String path) {
+        return "[\"GET\"," + StringUtils.toJsonString(path) + "," + (token != null) + "]";
+    }
+
+    /**
+     * Writes the index and the data file. Identical responses are only stored once.
+     *
+     * @param directory where the snapshot files end up.
+     * @param responses the responses in the format of the kyCache, by their request identifier.
+     */
+    public static void writeSnapshot(Path directory, Map<String, String> responses) throws IOException {
+        Files.createDirectories(directory);
+        var data = new ByteArrayOutputStream();
+        var ranges = new HashMap<String, String>();
+        var index = new StringBuilder();
+        index.append("{\"version\":")
+            .append(SNAPSHOT_VERSION)
+            .append(",\"entries\":{");
+
+        // Sorted, so that recording the same data twice leads to the same files
+        boolean isFirst = true;
+        for (var entry : new TreeMap<>(responses).entrySet()) {
+            String range = ranges.get(entry.getValue());
+            if (range == null) {
+                byte[] compressed = gzip(entry.getValue());
+                range = "[" + data.size() + "," + compressed.length + "]";
+                data.write(compressed);
+                ranges.put(entry.getValue(), range);
+            }
+            if (!isFirst) {
+                index.append(',');
+            }
+            isFirst = false;
+            index.append(StringUtils.toJsonString(entry.getKey()))
+                .append(':')
+                .append(range);
+        }
+        index.append("}}");
+
+        Files.write(directory.resolve("data.bin"), data.toByteArray());
+        Files.writeString(directory.resolve("index.json"), index, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(String value) throws IOException {
+        var output = new ByteArrayOutputStream();
+        try (var gzipOutput = new GZIPOutputStream(output)) {
+            gzipOutput.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return output.toByteArray();
+    }
+}
@@ -1,7 +1,6 @@
 package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Locale;
 
 /**
  * A little helper class to work with strings.
@@ -10,23 +9,115 @@ public class StringUtils {
 
     /**
      * Java's built-in String.split() method has a few undesirable edge cases, which this method fixes.
+     *
+     * <p>An empty input yields an empty array, every other input yields one more part than it has delimiters.
+     * Leading, trailing and consecutive delimiters result in empty parts.</p>
+     *
+     * @throws IllegalArgumentException if the delimiter is empty.
      */
     public static String[] split(String input, String delimiter) {
+        if (delimiter.isEmpty()) {
+            throw new IllegalArgumentException("Expected a non-empty delimiter");
+        }
         if (input.isEmpty()) {
             return new String[0];
         }
-        List<String> parts = new ArrayList<>();
+        // First count the parts, so that we can directly fill a correctly sized array
+        int partCount = 1;
+        for (int end = input.indexOf(delimiter); end != -1; end = input.indexOf(delimiter, end + delimiter.length())) {
+            partCount += 1;
+        }
+
+        String[] parts = new String[partCount];
         int start = 0;
-        // invariant: we have at least one more part to add to the list
-        while (true) {
+        for (int i = 0; i < partCount - 1; i++) {
             int end = input.indexOf(delimiter, start);
-            if (end == -1) {
-                parts.add(input.substring(start));
-                return parts.toArray(new String[0]);
-            } else {
-                parts.add(input.substring(start, end));
-                start = end + delimiter.length();
+            parts[i] = input.substring(start, end);
+            start = end + delimiter.length();
+        }
+        parts[partCount - 1] = input.substring(start);
+        return parts;
+    }
+
+    /**
+     * Turns a camelCase or PascalCase String into a snake-case String in a single pass.
+     * Equivalent to {@code name.replaceAll("([a-z])([A-Z])", "$1-$2").toLowerCase(Locale.ROOT)}.
+     */
+    public static String camelCaseToSnakeCase(String name) {
+        var result = new StringBuilder(name.length() + 4);
+        boolean isAscii = true;
+        char previous = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean isUpper = c >= 'A' && c <= 'Z';
+            if (isUpper && previous >= 'a' && previous <= 'z') {
+                result.append('-');
+            }
+            if (c >= 0x80) {
+                isAscii = false;
+            }
+            result.append(isUpper ? (char) (c + ('a' - 'A')) : c);
+            previous = c;
+        }
+        // Non-ASCII characters can have surprising lowercase forms, let Java deal with those
+        return isAscii ? result.toString() : result.toString()
+            .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Removes one leading character from a String, if it is there.
+     * Equivalent to {@code input.replaceAll("^/", "")} for a slash.
+     */
+    public static String withoutLeading(String input, char leading) {
+        return !input.isEmpty() && input.charAt(0) == leading ? input.substring(1) : input;
+    }
+
+    /**
+     * Turns a Spring path like "/{id}/info" into the body of a Javascript template string like "${id}/info".
+     * Equivalent to {@code path.replaceAll("^/", "").replaceAll("\\{", "\\${")}.
+     */
+    public static String toTemplatePath(String path) {
+        String withoutSlash = withoutLeading(path, '/');
+        if (withoutSlash.indexOf('{') == -1) {
+            return withoutSlash;
+        }
+        var result = new StringBuilder(withoutSlash.length() + 4);
+        for (int i = 0; i < withoutSlash.length(); i++) {
+            char c = withoutSlash.charAt(i);
+            if (c == '{') {
+                result.append('$');
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Turns a String into a JSON string literal, with the quotes. Escapes the same characters as JSON.stringify.
+     */
+    public static String toJsonString(String value) {
+        var result = new StringBuilder(value.length() + 2);
+        result.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> result.append("\\\"");
+                case '\\' -> result.append("\\\\");
+                case '\n' -> result.append("\\n");
+                case '\r' -> result.append("\\r");
+                case '\t' -> result.append("\\t");
+                case '\b' -> result.append("\\b");
+                case '\f' -> result.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        result.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        result.append(c);
+                    }
+                }
             }
         }
+        return result.append('"')
+            .toString();
     }
 }
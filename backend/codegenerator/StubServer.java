@@ -0,0 +1,161 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.StreamingResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * A local server that answers every endpoint with a canned response, so that the {@link LoadTester} and the
+ * generated services can be benchmarked without the real backend and its database.
+ *
+ * <p>Usage: {@code StubServer [port] [latencyMillis]}. The responses are made up from the return types of the
+ * endpoint methods, see {@link SampleValues}, and are computed once at startup. The optional latency is added
+ * to every response, to pretend that there is a database behind the server.</p>
+ */
+public class StubServer {
+    private final List<StubRoute> routes;
+    private final int latencyMillis;
+
+    /**
+     * The canned response of one route.
+     *
+     * @param method      the HTTP method, like "GET".
+     * @param pattern     matches the paths of the route.
+     * @param status      the status code, from a @ResponseStatus or 200.
+     * @param contentType the Content-Type header, or null if there is no body.
+     * @param body        the response body.
+     */
+    private record StubRoute(String method, Pattern pattern, int status, String contentType, byte[] body) {
+    }
+
+    /**
+     * Creates a new {@link StubServer}.
+     *
+     * @param catalog       all endpoints.
+     * @param samples       makes up the response bodies.
+     * @param latencyMillis how long every response is delayed.
+     */
+    public StubServer(EndpointCatalog catalog, SampleValues samples, int latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        var gen = new TypescriptGenerator("at.ac.tuwien", List.of("at.ac.tuwien.sepm.groupphase.backend.endpoint.dto"));
+        var stubRoutes = new ArrayList<StubRoute>();
+        // Like Spring, routes with fewer path variables win, so "/events/search" is not taken for "/events/{id}"
+        for (EndpointCatalog.Route route : catalog.getRoutes()
+            .stream()
+            .sorted(Comparator.comparingInt((EndpointCatalog.Route v) -> v.getPathVariables()
+                .size()))
+            .toList()) {
+            stubRoutes.add(toStubRoute(route, gen, samples));
+        }
+        this.routes = List.copyOf(stubRoutes);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int latencyMillis = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        var stubServer = new StubServer(EndpointGenerator.getEndpointCatalog(), new SampleValues(20), latencyMillis);
+        stubServer.start(port);
+        System.out.println("Answering " + stubServer.routes.size() + " routes at http://localhost:" + port);
+    }
+
+    /**
+     * Starts the server in the background.
+     */
+    public HttpServer start(int port) throws IOException {
+        // Otherwise Nagle's algorithm holds back the body, which adds 40 ms to every response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        var server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        // The threads mostly wait, for the latency or for slow clients
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private static StubRoute toStubRoute(EndpointCatalog.Route route, TypescriptGenerator gen, SampleValues samples) {
+        var method = route.method();
+        int status = 200;
+        var responseStatus = method.getAnnotation(ResponseStatus.class);
+        if (responseStatus != null) {
+            // code and value are aliases, which only Spring's annotation utilities resolve
+            status = (responseStatus.code() != HttpStatus.INTERNAL_SERVER_ERROR ? responseStatus.code() : responseStatus.value()).value();
+        }
+
+        String contentType;
+        String body;
+        var streamingResponse = EndpointGenerator.getStreamingResponse(method);
+        if (streamingResponse != null) {
+            String element = samples.toJson(gen.addValue(streamingResponse.elementType()));
+            boolean isSse = streamingResponse.format() == StreamingResponse.Format.SSE;
+            contentType = isSse ? "text/event-stream" : "application/x-ndjson";
+            body = (isSse ? "data: " + element + "\n\n" : element + "\n").repeat(samples.getArraySize());
+        } else if (EndpointGenerator.isBinaryType(method.getReturnType())) {
+            contentType = "application/octet-stream";
+            body = "0".repeat(1024);
+        } else if (method.getReturnType() == void.class) {
+            contentType = null;
+            body = "";
+        } else {
+            contentType = "application/json";
+            body = samples.toJson(gen.addValue(method.getGenericReturnType()));
+        }
+        return new StubRoute(route.type()
+            .name(), Pattern.compile(route.getPathPattern()), status, contentType, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            var headers = exchange.getResponseHeaders();
+            // The frontend runs on another port
+            headers.set("Access-Control-Allow-Origin", "*");
+            String method = exchange.getRequestMethod();
+            if (method.equals("OPTIONS")) {
+                headers.set("Access-Control-Allow-Methods", "GET, POST, PUT, PATCH, DELETE");
+                headers.set("Access-Control-Allow-Headers", "*");
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+
+            // The request body is not needed, but it has to be read for the connection to be reused
+            exchange.getRequestBody()
+                .transferTo(OutputStream.nullOutputStream());
+            String path = exchange.getRequestURI()
+                .getPath();
+            var route = routes.stream()
+                .filter(v -> v.method()
+                    .equals(method) && v.pattern()
+                    .matcher(path)
+                    .matches())
+                .findFirst()
+                .orElse(null);
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (route == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (route.contentType() != null) {
+                headers.set("Content-Type", route.contentType());
+            }
+            exchange.sendResponseHeaders(route.status(), route.body().length == 0 ? -1 : route.body().length);
+            exchange.getResponseBody()
+                .write(route.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
 
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.EntityKey;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.RecordComponent;
@@ -12,7 +13,6 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -25,6 +25,11 @@ import java.util.stream.Stream;
 public class TypescriptGenerator {
     private final Map<String, TsInterface> definedInterfaces = new HashMap<>();
     private final Map<String, TsType> definedTypes = new HashMap<>();
+    private final Map<String, List<String>> packagePaths = new HashMap<>();
+    private final Map<String, TsPrimitive> primitives = new HashMap<>();
+    private final Map<TsValue, TsArray> arrays = new HashMap<>();
+    private final Map<List<TsValue>, TsInterfaceInstance> interfaceInstances = new HashMap<>();
+    private boolean isFrozen = false;
     private final String codePackage;
     private final List<String> topLevelPackages;
 
@@ -46,8 +51,7 @@ public class TypescriptGenerator {
      * @return a snake-case String.
      */
     public static String camelCaseToSnakeCase(String name) {
-        return name.replaceAll("([a-z])([A-Z])", "$1-$2")
-            .toLowerCase(Locale.ROOT);
+        return NamingUtils.toSnakeCase(name);
     }
 
     /**
@@ -66,30 +70,33 @@ public class TypescriptGenerator {
         return s.substring(0, suffixIndex);
     }
 
+    /**
+     * Turns a Java type into a Typescript value. The same Java type always results in the same Typescript value.
+     */
     public TsValue addValue(Type typeClass) {
         if (typeClass == Long.class || typeClass == Integer.class || typeClass == Double.class) {
             // Maybe add an "or null"
-            return new TsPrimitive("number");
+            return addPrimitive("number");
         } else if (typeClass == long.class || typeClass == int.class || typeClass == double.class) {
-            return new TsPrimitive("number");
+            return addPrimitive("number");
         } else if (typeClass == LocalDate.class) {
             return addType("IsoDateString", "string");
         } else if (typeClass == LocalDateTime.class) {
             return addType("IsoDateTimeString", "string");
         } else if (typeClass == String.class) {
-            return new TsPrimitive("string");
+            return addPrimitive("string");
         } else if (typeClass == Boolean.class) {
-            return new TsPrimitive("boolean | null");
+            return addPrimitive("boolean | null");
         } else if (typeClass == boolean.class) {
-            return new TsPrimitive("boolean");
+            return addPrimitive("boolean");
         } else if (typeClass == void.class) {
-            return new TsPrimitive("void");
+            return addPrimitive("void");
         } else if (typeClass == UUID.class) {
-            return new TsPrimitive("string");
+            return addPrimitive("string");
         } else if (typeClass instanceof ParameterizedType paramClass) {
             if (paramClass.getRawType() instanceof Class<?> paramRawClass) {
                 if ((List.class).isAssignableFrom(paramRawClass) || (Set.class).isAssignableFrom(paramRawClass)) {
-                    return new TsArray(addValue(paramClass.getActualTypeArguments()[0]));
+                    return addArray(addValue(paramClass.getActualTypeArguments()[0]));
                 } else if (isInPackage(paramRawClass)) {
                     var tsInterface = addDto(paramRawClass);
 
@@ -98,7 +105,7 @@ public class TypescriptGenerator {
                         .map(this::addValue)
                         .toList();
 
-                    return new TsInterfaceInstance(tsInterface, actualTypes);
+                    return addInterfaceInstance(tsInterface, actualTypes);
                 }
             }
         } else if (typeClass instanceof Class<?> classClass) {
@@ -114,10 +121,10 @@ public class TypescriptGenerator {
             }
         } else if (typeClass instanceof TypeVariable<?> typeVariable) {
             // Not quite as bulletproof as it could be, it basically trusts that the source code is sane.
-            return new TsPrimitive(typeVariable.getName());
+            return addPrimitive(typeVariable.getName());
         }
 
-        return new TsPrimitive("any");
+        return addPrimitive("any");
     }
 
     public <T> TsInterface addDto(Class<T> typeClass) {
@@ -126,6 +133,9 @@ public class TypescriptGenerator {
         if (definedInterfaces.containsKey(key)) {
             return definedInterfaces.get(key);
         } else {
+            if (isFrozen) {
+                throw new IllegalStateException("Cannot add the DTO " + key + " after the generator has been frozen");
+            }
             var tsInterface = TsInterface.from(typeClass, this);
             definedInterfaces.put(key, tsInterface);
             return tsInterface;
@@ -133,13 +143,105 @@ public class TypescriptGenerator {
     }
 
     private TsType addType(String name, String type) {
-        return definedTypes.computeIfAbsent(name, (v) -> new TsType(name, type));
+        return definedTypes.computeIfAbsent(name, (v) -> {
+            if (isFrozen) {
+                throw new IllegalStateException("Cannot add the type " + name + " after the generator has been frozen");
+            }
+            return new TsType(name, type);
+        });
+    }
+
+    private TsPrimitive addPrimitive(String name) {
+        return primitives.computeIfAbsent(name, TsPrimitive::new);
+    }
+
+    private TsArray addArray(TsValue value) {
+        return arrays.computeIfAbsent(value, TsArray::new);
+    }
+
+    private TsInterfaceInstance addInterfaceInstance(TsInterface tsInterface, List<TsValue> actualTypes) {
+        var key = new ArrayList<TsValue>(actualTypes.size() + 1);
+        key.add(tsInterface);
+        key.addAll(actualTypes);
+        return interfaceInstances.computeIfAbsent(List.copyOf(key), v -> new TsInterfaceInstance(tsInterface, actualTypes));
+    }
+
+    /**
+     * Finishes building the model. Afterwards, no new DTOs or types can be added.
+     * All interfaces compute their imports and code once, and then share them with every caller.
+     */
+    public void freeze() {
+        isFrozen = true;
+        deduplicateShapes();
+        definedInterfaces.values()
+            .forEach(TsInterface::freeze);
+    }
+
+    /**
+     * Turns interfaces with the same shape into type aliases of one of them, since Typescript only compares the shapes anyway.
+     * Every interface is a separate type that tsc has to check, while an alias costs next to nothing.
+     *
+     * <p>Two interfaces have the same shape if they have the same property names, optionality and types, in any order.
+     * Properties whose interfaces have the same shape count as the same type, so this repeats until nothing changes.
+     * Generic interfaces are left alone.</p>
+     */
+    private void deduplicateShapes() {
+        var candidates = getInterfaces().stream()
+            .filter(v -> v.getGenerics()
+                .isEmpty())
+            .toList();
+        var canonical = new HashMap<TsInterface, TsInterface>();
+        boolean hasChanged = true;
+        while (hasChanged) {
+            hasChanged = false;
+            // Sorted by name, so the first interface of a shape is the one that stays
+            var firstOfShape = new HashMap<String, TsInterface>();
+            for (TsInterface tsInterface : candidates) {
+                var first = firstOfShape.computeIfAbsent(getShape(tsInterface, canonical), v -> tsInterface);
+                if (canonical.getOrDefault(tsInterface, tsInterface) != first) {
+                    canonical.put(tsInterface, first);
+                    hasChanged = true;
+                }
+            }
+        }
+        canonical.forEach((tsInterface, first) -> {
+            if (tsInterface != first) {
+                tsInterface.aliasOf = first;
+            }
+        });
+    }
+
+    private static String getShape(TsInterface tsInterface, Map<TsInterface, TsInterface> canonical) {
+        return tsInterface.getProperties()
+            .stream()
+            .map(v -> v.getName() + (v.isOptional() ? "?" : "") + ":" + getShapeName(v.getValue(), canonical))
+            .sorted()
+            .collect(Collectors.joining(";"));
+    }
+
+    private static String getShapeName(TsValue value, Map<TsInterface, TsInterface> canonical) {
+        if (value instanceof TsArray array) {
+            return getShapeName(array.getValue(), canonical) + "[]";
+        } else if (value instanceof TsInterface tsInterface) {
+            return canonical.getOrDefault(tsInterface, tsInterface)
+                .getName();
+        } else if (value instanceof TsInterfaceInstance instance) {
+            return instance.getInterface()
+                .getName() + "<" + instance.getActualTypes()
+                .stream()
+                .map(v -> getShapeName(v, canonical))
+                .collect(Collectors.joining(",")) + ">";
+        }
+        return value.getName();
     }
 
     public List<TsInterface> getInterfaces() {
+        // DTOs in different packages can have the same name, the HashMap must not decide which one comes first
         return definedInterfaces.values()
             .stream()
-            .sorted(Comparator.comparing(TsInterface::getName))
+            .sorted(Comparator.comparing(TsInterface::getName)
+                .thenComparing(v -> v.getJavaClass()
+                    .getName()))
             .toList();
     }
 
@@ -164,6 +266,16 @@ public class TypescriptGenerator {
         return trimmedPackageName.substring(trimmedPackageName.startsWith(".") ? 1 : 0);
     }
 
+    /**
+     * Gets the 'path' of a package without the top level packages.
+     * e.g. "at.ac.example.Example" yields ["example", "Example"]
+     */
+    public List<String> getPackagePath(String packageName) {
+        return packagePaths.computeIfAbsent(packageName, v -> Arrays.stream(StringUtils.split(withoutTopLevelPackages(v), "."))
+            .map(String::intern)
+            .toList());
+    }
+
     public boolean isInPackage(Class<?> typeClass) {
         return typeClass.getPackageName()
             .startsWith(codePackage);
@@ -193,15 +305,70 @@ public class TypescriptGenerator {
 
         /**
          * Code that defines the Typescript thing.
+         * Once the generator is frozen, the code can be shared, so it must not be modified.
          */
         public abstract CodeWriter getCode();
     }
 
     public static class TsArray extends TsValue {
         private final TsValue value;
+        private final String name;
 
         public TsArray(TsValue value) {
             this.value = value;
+            this.name = value.getName() + "[]";
+        }
+
+        /**
+         * The type of the array elements.
+         */
+        public TsValue getValue() {
+            return value;
+        }
+
+        @Override
+        public List<TsValue> getRequiredImports() {
+            return value.getRequiredImports();
+        }
+
+        @Override
+        public List<TsValue> getCodeImports() {
+            return List.of();
+        }
+
+        @Override
+        public List<String> getPath() {
+            return List.of();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public CodeWriter getCode() {
+            return new CodeWriter();
+        }
+    }
+
+    /**
+     * A stream of values, which can be consumed with a "for await" loop.
+     */
+    public static class TsAsyncIterable extends TsValue {
+        private final TsValue value;
+        private final String name;
+
+        public TsAsyncIterable(TsValue value) {
+            this.value = value;
+            this.name = "AsyncIterable<" + value.getName() + ">";
+        }
+
+        /**
+         * The type of each streamed value.
+         */
+        public TsValue getValue() {
+            return value;
         }
 
         @Override
@@ -216,12 +383,12 @@ public class TypescriptGenerator {
 
         @Override
         public List<String> getPath() {
-            return new ArrayList<>();
+            return List.of();
         }
 
         @Override
         public String getName() {
-            return value.getName() + "[]";
+            return name;
         }
 
         @Override
@@ -233,15 +400,26 @@ public class TypescriptGenerator {
     public static class TsType extends TsValue {
         private final String name;
         private final String type;
+        private final List<TsValue> requiredImports;
+        private final CodeWriter code = new CodeWriter();
 
         public TsType(String name, String type) {
             this.name = name;
             this.type = type;
+            this.requiredImports = List.of(this);
+            this.code.writeLine("type " + name + " = " + type + ";");
+        }
+
+        /**
+         * The Typescript type that this type is an alias for.
+         */
+        public String getType() {
+            return type;
         }
 
         @Override
         public List<TsValue> getRequiredImports() {
-            return List.of(this);
+            return requiredImports;
         }
 
         @Override
@@ -251,7 +429,7 @@ public class TypescriptGenerator {
 
         @Override
         public List<String> getPath() {
-            return new ArrayList<>();
+            return List.of();
         }
 
         @Override
@@ -261,9 +439,7 @@ public class TypescriptGenerator {
 
         @Override
         public CodeWriter getCode() {
-            var codeWriter = new CodeWriter();
-            codeWriter.writeLine("type " + name + " = " + type + ";");
-            return codeWriter;
+            return code;
         }
 
     }
@@ -287,7 +463,7 @@ public class TypescriptGenerator {
 
         @Override
         public List<String> getPath() {
-            return new ArrayList<>();
+            return List.of();
         }
 
         @Override
@@ -301,17 +477,29 @@ public class TypescriptGenerator {
         }
     }
 
+    /**
+     * An interface gets built step by step. After {@link #freeze()}, it cannot be modified anymore, and
+     * its imports and code are only computed once.
+     */
     public static class TsInterface extends TsValue {
         private String name;
-        private final List<TsProperty> properties = new ArrayList<>();
-        private final List<TsGeneric> generics = new ArrayList<>();
-        private final List<String> path = new ArrayList<>();
+        private Class<?> javaClass;
+        private List<TsProperty> properties = new ArrayList<>();
+        private List<TsGeneric> generics = new ArrayList<>();
+        private List<String> path = new ArrayList<>();
+        private TsProperty keyProperty;
+        private TsInterface aliasOf;
+        private List<TsValue> requiredImports;
+        private boolean isFrozen = false;
+        private List<TsValue> codeImports;
+        private CodeWriter code;
 
         public static <T> TsInterface from(Class<T> typeClass, TypescriptGenerator gen) {
             var value = new TsInterface();
             value.name = TypescriptGenerator.withoutSuffix(typeClass.getSimpleName(), "Dto");
-            String packageName = gen.withoutTopLevelPackages(typeClass.getPackageName());
-            value.path.addAll(List.of(StringUtils.split(packageName, ".")));
+            value.javaClass = typeClass;
+            value.requiredImports = List.of(value);
+            value.path.addAll(gen.getPackagePath(typeClass.getPackageName()));
 
 
             var genericTypeParameters = typeClass.getTypeParameters();
@@ -341,7 +529,15 @@ public class TypescriptGenerator {
                         throw new UnsupportedOperationException("TODO: Implement interfaces with a generic type directly being used");
                         // e.g. interface MyInterface<T> { T value; }
                     }
-                    value.properties.add(new TsProperty(field.getName(), gen.addValue(fieldType), isOptional));
+                    var property = new TsProperty(field.getName(), gen.addValue(fieldType), isOptional);
+                    value.properties.add(property);
+
+                    boolean isKey = field.isAnnotationPresent(EntityKey.class)
+                        || (value.keyProperty == null && field.getName()
+                        .equals("id") && !isOptional && isKeyType(property.getValue()));
+                    if (isKey) {
+                        value.keyProperty = property;
+                    }
                 }
             } else {
                 var x = typeClass.getDeclaredFields();
@@ -350,6 +546,52 @@ public class TypescriptGenerator {
             return value;
         }
 
+        /**
+         * Makes the interface immutable, and computes everything that the output needs.
+         */
+        public void freeze() {
+            if (isFrozen) {
+                return;
+            }
+            properties = List.copyOf(properties);
+            generics = List.copyOf(generics);
+            path = List.copyOf(path);
+            codeImports = computeCodeImports();
+            code = computeCode();
+            isFrozen = true;
+        }
+
+        private static boolean isKeyType(TsValue value) {
+            return value.getName()
+                .equals("number") || value.getName()
+                .equals("string");
+        }
+
+        /**
+         * The property that identifies an entity, usually the {@code id}.
+         *
+         * @return the key property, or null if the interface is not an entity.
+         */
+        public TsProperty getKeyProperty() {
+            return keyProperty;
+        }
+
+        /**
+         * The interface with the same shape that this one is a type alias of, see {@link TypescriptGenerator#freeze()}.
+         *
+         * @return the other interface, or null if this interface is generated as an interface.
+         */
+        public TsInterface getAliasOf() {
+            return aliasOf;
+        }
+
+        /**
+         * The DTO class that the interface was made from.
+         */
+        public Class<?> getJavaClass() {
+            return javaClass;
+        }
+
         /**
          * List of generics which the interface has.
          */
@@ -359,11 +601,18 @@ public class TypescriptGenerator {
 
         @Override
         public List<TsValue> getRequiredImports() {
-            return List.of(this);
+            return requiredImports;
         }
 
         @Override
         public List<TsValue> getCodeImports() {
+            return isFrozen ? codeImports : computeCodeImports();
+        }
+
+        private List<TsValue> computeCodeImports() {
+            if (aliasOf != null) {
+                return List.of(aliasOf);
+            }
             return properties.stream()
                 .map(TsProperty::getValue)
                 .flatMap(v -> v.getRequiredImports()
@@ -374,8 +623,7 @@ public class TypescriptGenerator {
 
         @Override
         public List<String> getPath() {
-            return this.path.stream()
-                .toList();
+            return isFrozen ? this.path : List.copyOf(this.path);
         }
 
         @Override
@@ -389,7 +637,15 @@ public class TypescriptGenerator {
 
         @Override
         public CodeWriter getCode() {
+            return isFrozen ? code : computeCode();
+        }
+
+        private CodeWriter computeCode() {
             var codeWriter = new CodeWriter();
+            if (aliasOf != null) {
+                codeWriter.writeLine("type " + this.name + " = " + aliasOf.getName() + ";");
+                return codeWriter;
+            }
             String interfaceName = this.name;
             if (!this.generics.isEmpty()) {
                 interfaceName += "<";
@@ -410,22 +666,42 @@ public class TypescriptGenerator {
     public static class TsInterfaceInstance extends TsValue {
         private final TsInterface value;
         private final List<TsValue> actualTypes;
+        private final String name;
+        private final List<TsValue> requiredImports;
 
         public TsInterfaceInstance(TsInterface value, List<TsValue> actualTypes) {
             this.value = value;
-            this.actualTypes = actualTypes;
+            this.actualTypes = List.copyOf(actualTypes);
             if (this.value.getGenerics()
                 .size() != actualTypes.size()) {
                 throw new IllegalArgumentException("The number of generics does not match the number of actual types");
             }
+            this.name = value.getName() + "<" + this.actualTypes.stream()
+                .map(TsValue::getName)
+                .collect(Collectors.joining(",")) + ">";
+            this.requiredImports = Stream.concat(value.getRequiredImports()
+                    .stream(), this.actualTypes.stream())
+                .distinct()
+                .toList();
+        }
+
+        /**
+         * The interface which gets instantiated with the actual types.
+         */
+        public TsInterface getInterface() {
+            return value;
+        }
+
+        /**
+         * The actual types, in the same order as the generics of the interface.
+         */
+        public List<TsValue> getActualTypes() {
+            return actualTypes;
         }
 
         @Override
         public List<TsValue> getRequiredImports() {
-            return Stream.concat(value.getRequiredImports()
-                    .stream(), actualTypes.stream())
-                .distinct()
-                .collect(Collectors.toList());
+            return requiredImports;
         }
 
         @Override
@@ -441,9 +717,7 @@ public class TypescriptGenerator {
 
         @Override
         public String getName() {
-            return value.getName() + "<" + this.actualTypes.stream()
-                .map(TsValue::getName)
-                .collect(Collectors.joining(",")) + ">";
+            return name;
         }
 
         @Override
@@ -464,12 +738,33 @@ public class TypescriptGenerator {
 
         private final CodeWriter body;
 
+        private final String metricsName;
+
         public TsMethod(boolean isAsync, String name, List<TsProperty> parameters, TsValue returnType, CodeWriter body) {
+            this(isAsync, name, parameters, returnType, body, null);
+        }
+
+        /**
+         * Creates a method that records the latency, status and size of its requests, see endpoint-metrics.ts
+         * The recording is compiled out of builds without endpoint metrics.
+         *
+         * @param metricsName the name of the endpoint in the metrics, like "TicketEndpoint.reserveTickets".
+         *                    The last parameter has to be the RequestOptions, since the recording is passed along with them.
+         */
+        public TsMethod(boolean isAsync, String name, List<TsProperty> parameters, TsValue returnType, CodeWriter body, String metricsName) {
             this.isAsync = isAsync;
             this.name = name;
             this.parameters = parameters;
             this.returnType = returnType;
             this.body = body;
+            this.metricsName = metricsName;
+        }
+
+        /**
+         * Checks if the method records endpoint metrics, and thus needs the imports from endpoint-metrics.ts
+         */
+        public boolean hasMetrics() {
+            return metricsName != null;
         }
 
         @Override
@@ -484,7 +779,7 @@ public class TypescriptGenerator {
 
         @Override
         public List<String> getPath() {
-            return new ArrayList<>();
+            return List.of();
         }
 
         @Override
@@ -506,6 +801,11 @@ public class TypescriptGenerator {
                 ": " + (isAsync ? "Promise<" : "") + returnType.getName() + (isAsync ? ">" : ""),
                 " {");
             codeWriter.beginIndent();
+            if (metricsName != null) {
+                String optionsName = parameters.get(parameters.size() - 1)
+                    .getName();
+                codeWriter.writeLine("if (endpointMetricsEnabled) ", optionsName, " = measureCall('", metricsName, "', ", optionsName, ");");
+            }
             codeWriter.writeLines(body);
             codeWriter.endIndent();
             codeWriter.writeLine("}");
@@ -538,6 +838,10 @@ public class TypescriptGenerator {
         public String getName() {
             return this.name;
         }
+
+        public boolean isOptional() {
+            return isOptional;
+        }
     }
 
     /**
@@ -0,0 +1,42 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * How browsers and proxies may cache the responses of an endpoint method. The generated CachePolicyConfig
+ * applies it as {@code Cache-Control}, {@code ETag} and {@code Vary} headers.
+ *
+ * <p>Without this annotation, GET methods get {@code private, no-cache} with an ETag, so that a repeated read
+ * can be answered with a 304. Mutations, streams and authentication routes get {@code no-store}.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CachePolicy {
+    /**
+     * Seconds that a response can be used without asking the backend again. 0 means that it has to be revalidated.
+     */
+    int maxAge() default 0;
+
+    /**
+     * Whether shared caches, like a reverse proxy, may store the response. Only for responses that are the same for every user.
+     */
+    boolean shared() default false;
+
+    /**
+     * Whether the response must never be stored, this wins over everything else.
+     */
+    boolean noStore() default false;
+
+    /**
+     * Whether an ETag gets computed from the response body.
+     */
+    boolean etag() default true;
+
+    /**
+     * Request headers that change the response. Responses that are not shared always vary by {@code Authorization}.
+     */
+    String[] vary() default {};
+}
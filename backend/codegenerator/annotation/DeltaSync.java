@@ -0,0 +1,27 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a collection GET that can answer with only the changes since a cursor, for collections that get polled, like
+ * the reservations of a seating plan.
+ *
+ * <p>The method returns a DTO with the components {@code cursor}, the cursor for the next request, {@code changed},
+ * the inserted and updated entities, {@code deleted}, the keys of the deleted entities, and {@code reset}, which is
+ * true when the changes are the whole collection. That is the answer without a cursor, or when the cursor is too old.
+ * The entities need an {@code id} or an {@link EntityKey}.</p>
+ *
+ * <p>The generated service gets a ...Sync variant, which keeps a local copy of the collection and merges the changes
+ * into it on every sync.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface DeltaSync {
+    /**
+     * Name of the query parameter with the cursor, it is missing in the first request.
+     */
+    String cursor() default "cursor";
+}
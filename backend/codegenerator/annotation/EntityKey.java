@@ -0,0 +1,16 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the record component that identifies a DTO, for DTOs where that is not the {@code id}.
+ *
+ * <p>DTOs with a key get a client-side entity store, so that the same entity is only kept in memory once.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.RECORD_COMPONENT)
+public @interface EntityKey {
+}
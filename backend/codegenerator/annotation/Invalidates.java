@@ -0,0 +1,23 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lists the GET routes of other endpoints that an endpoint method changes.
+ *
+ * <p>A mutation always invalidates the GET routes of its own endpoint. This annotation adds more,
+ * for example reserving a ticket also changes the cart. A path like {@code "/api/v1/carts"} covers that route and
+ * every route below it. Their path variables match anything, since an "{id}" of another endpoint is not the one
+ * of the mutation.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Invalidates {
+    /**
+     * Paths of the invalidated GET routes, including the base path of their endpoint.
+     */
+    String[] value();
+}
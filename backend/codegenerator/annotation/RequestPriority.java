@@ -0,0 +1,36 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * How urgent the requests of an endpoint method are. The generated services send at most a few requests to the
+ * backend at the same time, and whenever one finishes, the most urgent waiting request goes next.
+ *
+ * <p>Without this annotation, mutations are {@link Level#HIGH}, file downloads are {@link Level#LOW} and every other
+ * GET is {@link Level#NORMAL}. Streams and resumable uploads keep their connection for a long time and are not
+ * scheduled at all.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RequestPriority {
+    Level value();
+
+    enum Level {
+        /**
+         * Something the user waits for right now, like buying the tickets in the cart.
+         */
+        CRITICAL,
+        /**
+         * Also one slot is always kept free for these.
+         */
+        HIGH,
+        NORMAL,
+        /**
+         * Things that can wait, like images or prefetching. A request that waits for long enough still gets its turn.
+         */
+        LOW
+    }
+}
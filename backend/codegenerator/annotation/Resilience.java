@@ -0,0 +1,43 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * How the generated service retries and hedges the requests of an endpoint method.
+ *
+ * <p>Retries wait a random time between 0 and {@code baseDelay * 2^attempt} milliseconds, so that many clients do not
+ * retry at the same moment. Hedging sends a second request when the first one takes longer than most recent ones,
+ * and uses whichever answers first. That cuts the slow tail that a single stuck backend instance causes.</p>
+ *
+ * <p>GET methods get the defaults of this annotation without hedging, even if they are not annotated.
+ * A PUT method is only retried when it has this annotation, which states that sending it twice is harmless.
+ * Other methods, like a POST that reserves tickets, must never be sent twice and cannot have this annotation.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Resilience {
+    /**
+     * How often a failed request is sent again. Only network errors, timeouts and 408, 429, 500, 502, 503 and 504
+     * responses are retried.
+     */
+    int retries() default 2;
+
+    /**
+     * Milliseconds that the first retry waits at most, every further retry waits up to twice as long.
+     */
+    int baseDelay() default 100;
+
+    /**
+     * Milliseconds that a retry waits at most.
+     */
+    int maxDelay() default 2000;
+
+    /**
+     * Sends a second request when the first one is slower than this percentile of the recent requests, like 0.95.
+     * 0 turns hedging off. Every hedge is an additional request to the backend, so the percentile should be high.
+     */
+    double hedgePercentile() default 0;
+}
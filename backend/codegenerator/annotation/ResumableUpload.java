@@ -0,0 +1,29 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an upload endpoint method that also accepts its file in chunks. The generated service then gets
+ * a "...Resumable" method, which reports its progress and continues where it stopped when the network drops.
+ *
+ * <p>Every chunk is sent to the same route, with the raw bytes as the body and these headers:</p>
+ * <ul>
+ *     <li>{@code Upload-Id}: the same random id for all chunks of one file</li>
+ *     <li>{@code Content-Range}: like {@code bytes 0-1048575/5000000}, or {@code bytes *}{@code /5000000} with
+ *     an empty body to ask how far the upload got</li>
+ * </ul>
+ *
+ * <p>As long as the file is incomplete, the endpoint answers with {@code 202 Accepted} and an {@code Upload-Offset}
+ * header with the number of bytes it has. Once it has the whole file, it answers like it would to a normal upload.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ResumableUpload {
+    /**
+     * Size of one chunk in bytes.
+     */
+    int chunkSize() default 1024 * 1024;
+}
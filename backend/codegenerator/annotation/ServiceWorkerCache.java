@@ -0,0 +1,38 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * How the service worker of the frontend caches the responses of a GET method, so that pages like the event catalog
+ * load on a repeated visit without waiting for the network.
+ *
+ * <p>Without this annotation, a route is {@link Strategy#NETWORK_ONLY}. Only responses that are the same for every
+ * user, with a {@code @CachePolicy(shared = true)}, can be cached. Mutations, streams and authentication routes are
+ * always network only.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ServiceWorkerCache {
+    Strategy value();
+
+    /**
+     * Seconds that a {@link Strategy#CACHE_FIRST} response is used without asking the backend again.
+     * 0 means until a mutation invalidates it, or until the next version of the frontend.
+     */
+    int maxAge() default 24 * 60 * 60;
+
+    enum Strategy {
+        /**
+         * Answers from the cache, and only asks the backend when nothing is cached, or the cached response is too old.
+         */
+        CACHE_FIRST,
+        /**
+         * Answers from the cache, and updates the cache in the background for the next time.
+         */
+        STALE_WHILE_REVALIDATE,
+        NETWORK_ONLY
+    }
+}
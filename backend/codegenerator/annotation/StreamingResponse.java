@@ -0,0 +1,37 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an endpoint method that streams its response, one element after the other.
+ *
+ * <p>Return types like {@code SseEmitter} or {@code StreamingResponseBody} do not say what they are streaming,
+ * so this annotation names the element type. For a {@code Flux<T>} it is optional.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface StreamingResponse {
+    /**
+     * The type of each streamed element, usually a DTO.
+     */
+    Class<?> value();
+
+    /**
+     * How the elements are written to the response.
+     */
+    Format format() default Format.NDJSON;
+
+    enum Format {
+        /**
+         * Newline delimited JSON, "application/x-ndjson".
+         */
+        NDJSON,
+        /**
+         * Server-sent events with JSON data, "text/event-stream".
+         */
+        SSE
+    }
+}
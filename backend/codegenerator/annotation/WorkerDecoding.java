@@ -0,0 +1,27 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an endpoint method with large JSON responses, like a whole seating plan. The generated service parses
+ * them in a Web Worker, so that parsing does not block rendering on the main thread.
+ *
+ * <p>The parsed result comes back as a structured clone. Small bodies are still parsed right away, since sending them
+ * to the worker and back would take longer than parsing them.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface WorkerDecoding {
+    /**
+     * Bodies with fewer bytes are parsed on the main thread.
+     */
+    int minSize() default DEFAULT_MIN_SIZE;
+
+    /**
+     * Same as {@code DEFAULT_WORKER_MIN_SIZE} in the json-decoder.ts.
+     */
+    int DEFAULT_MIN_SIZE = 64 * 1024;
+}
@@ -0,0 +1,48 @@
+#!/usr/bin/env bash
+# Starts the code generator with an AppCDS archive, so that a cold start is fast enough to run it on every save.
+#
+# Usage: CODEGEN_CLASSPATH=<runtime classpath of the backend> ./generate.sh [EndpointGenerator arguments]
+#
+# The first run records every class that the generator loads into an archive. Later runs map that archive
+# instead of loading, parsing and verifying the same classes again.
+# AppCDS only archives classes from jar files, so the class directories (build/classes/...) get packed into jars first.
+set -euo pipefail
+
+classpath=${CODEGEN_CLASSPATH:?"Set CODEGEN_CLASSPATH to the runtime classpath of the backend"}
+cache_dir=${CODEGEN_CACHE_DIR:-"$(cd "$(dirname "$0")" && pwd)/.cds"}
+mkdir -p "$cache_dir"
+
+launch_classpath=()
+classes_changed=false
+IFS=':' read -ra classpath_entries <<< "$classpath"
+for entry in "${classpath_entries[@]}"; do
+  if [ -d "$entry" ]; then
+    jar_file="$cache_dir/classes-$(printf '%s' "$entry" | sha256sum | cut -c1-16).jar"
+    # Anything newer than the jar, including a directory that had a file removed, means that the jar is outdated
+    if [ ! -f "$jar_file" ] || [ -n "$(find "$entry" -newer "$jar_file" -print -quit)" ]; then
+      rm -f "$jar_file"
+      jar cf "$jar_file" -C "$entry" .
+      classes_changed=true
+    fi
+    launch_classpath+=("$jar_file")
+  elif [ -n "$entry" ]; then
+    launch_classpath+=("$entry")
+  fi
+done
+launch_classpath=$(IFS=':'; printf '%s' "${launch_classpath[*]}")
+
+# The JVM refuses archives from a different classpath, so every classpath gets its own archive
+archive="$cache_dir/codegenerator-$(printf '%s' "$launch_classpath" | sha256sum | cut -c1-16).jsa"
+if [ "$classes_changed" = true ]; then
+  rm -f "$archive"
+fi
+
+# The generator runs for a moment, so the JIT would not pay off
+jvm_options=(-XX:TieredStopAtLevel=1 -XX:+UseSerialGC)
+if [ -f "$archive" ]; then
+  jvm_options+=(-XX:SharedArchiveFile="$archive")
+else
+  jvm_options+=(-XX:ArchiveClassesAtExit="$archive")
+fi
+
+exec java "${jvm_options[@]}" -cp "$launch_classpath" at.ac.tuwien.sepm.groupphase.backend.codegenerator.EndpointGenerator "$@"
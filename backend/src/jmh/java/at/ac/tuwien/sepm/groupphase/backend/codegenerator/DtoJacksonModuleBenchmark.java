@@ -0,0 +1,112 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import at.ac.tuwien.sepm.groupphase.backend.config.generated.DtoJacksonModule;
+import at.ac.tuwien.sepm.groupphase.backend.endpoint.dto.invoice.InvoiceDetailDto;
+import at.ac.tuwien.sepm.groupphase.backend.endpoint.dto.ticket.TicketSeatingDto;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the generated {@link DtoJacksonModule} with Jackson's own serializers and deserializers, for the two
+ * responses that got slow: the seats of a seating plan and an invoice.
+ *
+ * <p>The ObjectMapper is configured like the one of Spring Boot. The payloads are JSON, so that the benchmark
+ * does not depend on the constructors of the DTOs.</p>
+ *
+ * <p>The module only exists after running the {@link EndpointGenerator} with {@code --jackson-module}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DtoJacksonModuleBenchmark {
+    private static final int SEAT_COUNT = 500;
+    private static final int INVOICE_ITEM_COUNT = 20;
+
+    @Param({"jackson", "generated"})
+    public String serializers;
+
+    private ObjectReader seatingReader;
+    private ObjectWriter seatingWriter;
+    private ObjectReader invoiceReader;
+    private ObjectWriter invoiceWriter;
+    private String seatingJson;
+    private String invoiceJson;
+    private List<TicketSeatingDto> seating;
+    private InvoiceDetailDto invoice;
+
+    @Setup
+    public void setUp() throws IOException {
+        var mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        if (serializers.equals("generated")) {
+            mapper.registerModule(new DtoJacksonModule());
+        }
+        var seatingType = new TypeReference<List<TicketSeatingDto>>() {
+        };
+        seatingReader = mapper.readerFor(seatingType);
+        seatingWriter = mapper.writerFor(seatingType);
+        invoiceReader = mapper.readerFor(InvoiceDetailDto.class);
+        invoiceWriter = mapper.writerFor(InvoiceDetailDto.class);
+
+        seatingJson = IntStream.range(0, SEAT_COUNT)
+            .mapToObj(i -> "{\"id\":" + (1000 + i) + ",\"placeId\":" + (20000 + i) + ",\"placeType\":\""
+                + (i % 4 == 0 ? "STANDING" : "SITTING") + "\",\"ticketState\":\"" + (i % 3 == 0 ? "BOUGHT" : "RESERVED") + "\"}")
+            .collect(Collectors.joining(",", "[", "]"));
+        invoiceJson = "{\"id\":17,\"customer\":{\"name\":\"Maria\",\"lastName\":\"Huber\",\"address\":\"Karlsplatz 13, 1040 Wien\"},"
+            + "\"items\":" + IntStream.range(0, INVOICE_ITEM_COUNT)
+            .mapToObj(i -> "{\"id\":" + i + ",\"name\":\"Ticket " + i + "\",\"price\":" + (19.9 + i) + ",\"points\":" + (10 * i)
+                + ",\"usePoints\":" + (i % 2 == 0 ? "false" : "null") + ",\"quantity\":" + (1 + i % 3) + ",\"VAT\":0.2}")
+            .collect(Collectors.joining(",", "[", "]"))
+            + ",\"paymentType\":\"VISA\",\"invoiceDate\":\"2022-06-20T12:30:00\",\"deliveryDate\":\"2022-06-21T09:00:00\","
+            + "\"invoiceNumber\":20220017,\"invoiceType\":\"NORMAL\"}";
+        seating = seatingReader.readValue(seatingJson);
+        invoice = invoiceReader.readValue(invoiceJson);
+    }
+
+    @Benchmark
+    public String writeTicketSeating() throws IOException {
+        return seatingWriter.writeValueAsString(seating);
+    }
+
+    @Benchmark
+    public List<TicketSeatingDto> readTicketSeating() throws IOException {
+        return seatingReader.readValue(seatingJson);
+    }
+
+    @Benchmark
+    public String writeInvoiceDetail() throws IOException {
+        return invoiceWriter.writeValueAsString(invoice);
+    }
+
+    @Benchmark
+    public InvoiceDetailDto readInvoiceDetail() throws IOException {
+        return invoiceReader.readValue(invoiceJson);
+    }
+}
@@ -0,0 +1,68 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.math.BigDecimal;
+import java.security.Principal;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@link EndpointGenerator#getEndpointParameters} reads the parameters the way Spring binds them, since the
+ * Typescript services, the Java clients and the load tester all send their requests based on it.
+ */
+public class EndpointParametersTest {
+    private final TypescriptGenerator gen = new TypescriptGenerator("at.ac.tuwien", List.of("at.ac.tuwien.sepm.groupphase.backend.endpoint.dto"));
+
+    @SuppressWarnings("unused")
+    private static class NoteEndpoint {
+        public void addNote(@PathVariable("id") Long ticketId, @RequestParam String note, @RequestBody String text, Principal principal) {
+        }
+
+        public void search(@RequestParam BigDecimal maxPrice, @RequestParam Map<String, String> filters, Locale locale) {
+        }
+    }
+
+    @Test
+    public void readsTheNameOfPathVariablesAndSkipsWhatSpringFillsIn() throws Exception {
+        var method = NoteEndpoint.class.getMethod("addNote", Long.class, String.class, String.class, Principal.class);
+        var parameters = EndpointGenerator.getEndpointParameters(method, gen);
+
+        assertEquals(List.of("ticketId", "note", "text"), parameters.stream()
+            .map(EndpointGenerator.EndpointParameter::name)
+            .toList());
+        assertEquals(List.of(EndpointGenerator.EndpointParameter.Kind.PATH, EndpointGenerator.EndpointParameter.Kind.QUERY,
+            EndpointGenerator.EndpointParameter.Kind.BODY), parameters.stream()
+            .map(EndpointGenerator.EndpointParameter::kind)
+            .toList());
+        assertEquals(Map.of("id", "ticketId"), EndpointGenerator.getPathVariables(parameters));
+    }
+
+    @Test
+    public void keepsQueryParametersOfUnknownTypes() throws Exception {
+        var method = NoteEndpoint.class.getMethod("search", BigDecimal.class, Map.class, Locale.class);
+        var parameters = EndpointGenerator.getEndpointParameters(method, gen);
+
+        assertEquals(List.of("maxPrice", "filters"), parameters.stream()
+            .map(EndpointGenerator.EndpointParameter::name)
+            .toList());
+        assertEquals(List.of(EndpointGenerator.EndpointParameter.Kind.QUERY, EndpointGenerator.EndpointParameter.Kind.QUERY), parameters.stream()
+            .map(EndpointGenerator.EndpointParameter::kind)
+            .toList());
+    }
+
+    @Test
+    public void renamesPathVariablesToTheirParameters() {
+        assertEquals("api/v1/tickets/{ticketId}/note",
+            EndpointGenerator.toParameterPath("api/v1/tickets/{id:[0-9]+}/note", Map.of("id", "ticketId")));
+        assertEquals("/{ticketId}", EndpointGenerator.toParameterPath("/{id}", Map.of("id", "ticketId")));
+        assertThrows(IllegalArgumentException.class, () -> EndpointGenerator.toParameterPath("tickets/{id}", Map.of()));
+    }
+}
@@ -0,0 +1,74 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import at.ac.tuwien.sepm.groupphase.backend.codegenerator.annotation.Invalidates;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks which cached GET routes and entities a mutation outdates, see {@link InvalidationGraph}.
+ */
+public class InvalidationGraphTest {
+    public record ArtistDto(Long id, String name) {
+    }
+
+    public record EventDto(Long id, String title) {
+    }
+
+    @RestController
+    @RequestMapping("/api/v1/artists")
+    private static class ArtistEndpoint {
+        @GetMapping("/{id}")
+        public ArtistDto findById(@PathVariable Long id) {
+            return null;
+        }
+    }
+
+    @RestController
+    @RequestMapping("/api/v1/events")
+    private static class EventEndpoint {
+        @GetMapping("/{id}")
+        public EventDto findById(@PathVariable Long id) {
+            return null;
+        }
+
+        @PutMapping("/{id}")
+        @Invalidates("/api/v1/artists")
+        public EventDto update(@PathVariable Long id) {
+            return null;
+        }
+    }
+
+    private final EndpointCatalog catalog = new EndpointCatalog(List.of(ArtistEndpoint.class, EventEndpoint.class));
+
+    @Test
+    public void fillsInPathVariablesOnlyForTheRoutesOfTheSameEndpoint() throws Exception {
+        var graph = new InvalidationGraph(catalog);
+
+        assertEquals(List.of("api/v1/artists/*", "api/v1/events/{id}"),
+            graph.getInvalidatedPaths(EventEndpoint.class.getMethod("update", Long.class)));
+    }
+
+    @Test
+    public void clearsTheStoreOfAnotherEndpoint() {
+        var gen = new TypescriptGenerator("at.ac.tuwien", List.of("at.ac.tuwien.sepm.groupphase.backend.codegenerator"));
+        var service = EndpointGenerator.generateForEndpoint(EventEndpoint.class, Path.of("."), gen, new EntityStoreGenerator(),
+                new InvalidationGraph(catalog))
+            .get(0)
+            .getContents();
+
+        // The id of the event is not the id of an artist
+        assertTrue(service.contains("invalidateCache([`api/v1/artists/*`, `api/v1/events/${id}`]);"), service);
+        assertTrue(service.contains("artistStore.clear();"), service);
+        assertTrue(service.contains("eventStore.delete(id);"), service);
+    }
+}
@@ -0,0 +1,101 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the {@link OutputPipeline} hands over every rendered file, and none if rendering fails or if one of
+ * the files must not be overwritten.
+ */
+public class OutputPipelineTest {
+    @TempDir
+    Path outputDirectory;
+
+    @Test
+    public void writesAllFilesInOrder() throws Exception {
+        var written = new ArrayList<String>();
+        int writtenFiles = new OutputPipeline(1).run(sink -> {
+            for (int i = 0; i < 10; i++) {
+                sink.accept(Path.of("file" + i + ".ts"), "contents " + i + " äß");
+            }
+        }, (path, contents) -> written.add(path + ": " + contents));
+
+        assertEquals(10, writtenFiles);
+        assertEquals(10, written.size());
+        assertEquals("file0.ts: contents 0 äß", written.get(0));
+        assertEquals("file9.ts: contents 9 äß", written.get(9));
+    }
+
+    @Test
+    public void writesNothingIfRenderingFails() {
+        var written = new ArrayList<Path>();
+        var exception = assertThrows(IllegalArgumentException.class, () -> new OutputPipeline(1).run(sink -> {
+            sink.accept(Path.of("first.ts"), "first");
+            sink.accept(Path.of("second.ts"), "second");
+            throw new IllegalArgumentException("Unsupported DTO");
+        }, (path, contents) -> written.add(path)));
+
+        assertEquals("Unsupported DTO", exception.getMessage());
+        assertTrue(written.isEmpty(), "Expected no written files, but got " + written);
+    }
+
+    @Test
+    public void writesNothingForNoFiles() throws Exception {
+        var written = new ArrayList<Path>();
+        assertEquals(0, new OutputPipeline(4).run(sink -> {
+        }, (path, contents) -> written.add(path)));
+        assertEquals(List.of(), written);
+    }
+
+    @Test
+    public void writesNothingIfAFileWasModifiedManually() throws Exception {
+        var first = outputDirectory.resolve("first.ts");
+        var second = outputDirectory.resolve("second.ts");
+        writeGenerated(first, "old first");
+        writeGenerated(second, "old second");
+        Files.writeString(second, Files.readString(second) + "// manually added\n");
+        String oldFirst = Files.readString(first);
+
+        var fileUpdater = new InteractiveFileUpdater(outputDirectory, ".ts", false);
+        fileUpdater.findFilesToUpdate();
+        assertThrows(IOException.class, () -> new OutputPipeline(1).run(sink -> {
+            sink.accept(first, "new first");
+            sink.accept(second, "new second");
+        }, fileUpdater::checkFile, fileUpdater::interactiveUpdateFile));
+
+        assertEquals(oldFirst, Files.readString(first));
+    }
+
+    @Test
+    public void leavesUnchangedFilesAsTheyAre() throws Exception {
+        var file = outputDirectory.resolve("file.ts");
+        writeGenerated(file, "contents");
+        var lastModified = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(file, lastModified);
+
+        var fileUpdater = new InteractiveFileUpdater(outputDirectory, ".ts", false);
+        fileUpdater.findFilesToUpdate();
+        int writtenFiles = new OutputPipeline(1).run(sink -> sink.accept(file, "contents"), fileUpdater::checkFile,
+            fileUpdater::interactiveUpdateFile);
+
+        assertEquals(0, writtenFiles);
+        assertEquals(lastModified, Files.getLastModifiedTime(file));
+    }
+
+    private void writeGenerated(Path file, String contents) throws IOException {
+        var fileUpdater = new InteractiveFileUpdater(outputDirectory, ".ts", false);
+        fileUpdater.findFilesToUpdate();
+        assertTrue(fileUpdater.interactiveUpdateFile(file, contents));
+    }
+}
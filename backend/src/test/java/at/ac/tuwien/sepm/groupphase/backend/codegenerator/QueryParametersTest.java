@@ -0,0 +1,57 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the query strings that the generated services build, see {@link QueryParameters}.
+ */
+public class QueryParametersTest {
+    private final TypescriptGenerator gen = new TypescriptGenerator("at.ac.tuwien", List.of("at.ac.tuwien.sepm.groupphase.backend.codegenerator"));
+
+    public record SeatDto(Long row, Long number) {
+    }
+
+    public record SeatSearchDto(String sector, List<SeatDto> seats) {
+    }
+
+    @RestController
+    @RequestMapping("/api/v1/seats")
+    private static class SeatEndpoint {
+        @GetMapping
+        public List<SeatDto> search(@RequestParam String searchParams, @RequestParam List<Long> value) {
+            return null;
+        }
+    }
+
+    @Test
+    public void rejectsListsOfDtos() {
+        var queryParameters = new QueryParameters();
+
+        var seatsType = SeatSearchDto.class.getRecordComponents()[1].getGenericType();
+        assertThrows(IllegalArgumentException.class, () -> queryParameters.add("seats", gen.addValue(seatsType)));
+        assertThrows(IllegalArgumentException.class, () -> queryParameters.add("search", gen.addValue(SeatSearchDto.class)));
+    }
+
+    @Test
+    public void doesNotRedeclareTheParameters() {
+        var service = EndpointGenerator.generateForEndpoint(SeatEndpoint.class, Path.of("."), gen, new EntityStoreGenerator(),
+                new InvalidationGraph(new EndpointCatalog(List.of(SeatEndpoint.class))))
+            .get(0)
+            .getContents();
+
+        assertTrue(service.contains("const searchParams_ = new URLSearchParams();"), service);
+        assertTrue(service.contains("if (searchParams != null && searchParams !== '') searchParams_.append('searchParams', String(searchParams));"), service);
+        assertTrue(service.contains("for (const value_ of value ?? []) searchParams_.append('value', String(value_));"), service);
+        assertTrue(service.contains("searchParams: searchParams_"), service);
+    }
+}
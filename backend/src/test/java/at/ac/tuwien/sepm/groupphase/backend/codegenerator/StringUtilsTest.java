@@ -0,0 +1,139 @@
+package at.ac.tuwien.sepm.groupphase.backend.codegenerator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compares the single-pass naming helpers with the regex and list based implementations they replaced.
+ *
+ * <p>The old implementations are kept here as oracles. Random inputs are built from the characters that matter, like
+ * delimiters, upper and lower case letters, braces and non-ASCII letters, so that the edge cases come up often.
+ * The seed is fixed, so that a failure can be reproduced.</p>
+ */
+public class StringUtilsTest {
+    private static final int RUNS = 20_000;
+    private static final String NAME_CHARACTERS = "aBzZ09_-$äÄİıßΣ";
+    private static final String PATH_CHARACTERS = "/{}a1.-";
+
+    @Test
+    public void splitHasTheDocumentedEdgeCases() {
+        // Unlike String.split(), nothing is a regex and no empty part gets dropped
+        assertArrayEquals(new String[0], StringUtils.split("", "/"));
+        assertArrayEquals(new String[] {"a"}, StringUtils.split("a", "/"));
+        assertArrayEquals(new String[] {"", ""}, StringUtils.split("/", "/"));
+        assertArrayEquals(new String[] {"", "a"}, StringUtils.split("/a", "/"));
+        assertArrayEquals(new String[] {"a", ""}, StringUtils.split("a/", "/"));
+        assertArrayEquals(new String[] {"a", "", "b"}, StringUtils.split("a//b", "/"));
+        assertArrayEquals(new String[] {"at", "ac", "tuwien"}, StringUtils.split("at.ac.tuwien", "."));
+        assertArrayEquals(new String[] {"a", "b|c"}, StringUtils.split("a||b|c", "||"));
+        assertArrayEquals(new String[] {"", "a"}, StringUtils.split("aaa", "aa"));
+    }
+
+    @Test
+    public void splitRejectsAnEmptyDelimiter() {
+        // The old implementation never returned for an empty delimiter
+        assertThrows(IllegalArgumentException.class, () -> StringUtils.split("abc", ""));
+    }
+
+    @Test
+    public void splitMatchesTheOldImplementation() {
+        var random = new Random(26);
+        var delimiters = List.of("/", ".", "||", "ab", "\\");
+        for (int i = 0; i < RUNS; i++) {
+            String delimiter = delimiters.get(random.nextInt(delimiters.size()));
+            String input = randomString(random, "/.|ab\\x", 12);
+            assertArrayEquals(oldSplit(input, delimiter), StringUtils.split(input, delimiter), () -> "split(\"" + input + "\", \"" + delimiter + "\")");
+        }
+    }
+
+    @Test
+    public void camelCaseToSnakeCaseMatchesTheOldImplementation() {
+        var random = new Random(27);
+        assertEquals("event-detail-dto", StringUtils.camelCaseToSnakeCase("EventDetailDto"));
+        assertEquals("html-parser", StringUtils.camelCaseToSnakeCase("htmlParser"));
+        assertEquals("htmlparser", StringUtils.camelCaseToSnakeCase("HTMLParser"));
+        for (int i = 0; i < RUNS; i++) {
+            String input = randomString(random, NAME_CHARACTERS, 10);
+            assertEquals(oldCamelCaseToSnakeCase(input), StringUtils.camelCaseToSnakeCase(input), () -> "camelCaseToSnakeCase(\"" + input + "\")");
+            assertEquals(oldCamelCaseToSnakeCase(input), NamingUtils.toSnakeCase(input));
+        }
+    }
+
+    @Test
+    public void pathHelpersMatchTheOldImplementations() {
+        var random = new Random(28);
+        for (int i = 0; i < RUNS; i++) {
+            String path = randomString(random, PATH_CHARACTERS, 12);
+            assertEquals(path.replaceAll("^/", ""), StringUtils.withoutLeading(path, '/'), () -> "withoutLeading(\"" + path + "\")");
+            assertEquals(path.replaceAll("^/", "")
+                .replaceAll("\\{", "\\${"), StringUtils.toTemplatePath(path), () -> "toTemplatePath(\"" + path + "\")");
+        }
+    }
+
+    @Test
+    public void fileNamesMatchTheOldImplementations() {
+        var random = new Random(29);
+        for (int i = 0; i < RUNS; i++) {
+            var packagePath = new ArrayList<String>();
+            int depth = random.nextInt(4);
+            for (int j = 0; j < depth; j++) {
+                packagePath.add(randomString(random, "abc", 3));
+            }
+            String name = randomString(random, NAME_CHARACTERS, 10);
+            String oldFilePath = packagePath.stream()
+                .map(v -> v + "/")
+                .collect(Collectors.joining());
+            assertEquals(oldFilePath, NamingUtils.toTsFilePath(packagePath));
+            assertEquals(oldCamelCaseToSnakeCase(name) + ".ts", NamingUtils.toTsFileName(name, true));
+            assertEquals(oldCamelCaseToSnakeCase(name), NamingUtils.toTsFileName(name, false));
+            assertEquals("@/dtos/" + oldFilePath + oldCamelCaseToSnakeCase(name), NamingUtils.toDtoImportPath(packagePath, name));
+        }
+    }
+
+    private static String randomString(Random random, String characters, int maxLength) {
+        int length = random.nextInt(maxLength + 1);
+        var result = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            result.append(characters.charAt(random.nextInt(characters.length())));
+        }
+        return result.toString();
+    }
+
+    /**
+     * StringUtils.split before it counted the parts first.
+     */
+    private static String[] oldSplit(String input, String delimiter) {
+        if (input.isEmpty()) {
+            return new String[0];
+        }
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        while (true) {
+            int end = input.indexOf(delimiter, start);
+            if (end == -1) {
+                parts.add(input.substring(start));
+                return parts.toArray(new String[0]);
+            } else {
+                parts.add(input.substring(start, end));
+                start = end + delimiter.length();
+            }
+        }
+    }
+
+    /**
+     * TypescriptGenerator.camelCaseToSnakeCase before it was a single pass.
+     */
+    private static String oldCamelCaseToSnakeCase(String name) {
+        return name.replaceAll("([a-z])([A-Z])", "$1-$2")
+            .toLowerCase(Locale.ROOT);
+    }
+}
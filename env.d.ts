@@ -1 +1,6 @@
 /// <reference types="vite/client" />
+
+interface ImportMetaEnv {
+  /** "true" turns on the endpoint metrics, see src/services/endpoint-metrics.ts */
+  readonly VITE_ENDPOINT_METRICS?: string;
+}
@@ -28,3 +28,10 @@ app.config.errorHandler = async (err, instance, info) => {
 };
 
 app.mount('#app');
+
+// Caches the GETs of the catalog pages, see service-worker.ts. Only in builds, it would get in the way of hot reloading.
+if (import.meta.env.PROD && 'serviceWorker' in navigator) {
+  navigator.serviceWorker.register(import.meta.env.BASE_URL + 'service-worker.js').catch((e) => {
+    console.warn('Failed to register the service worker', e);
+  });
+}
@@ -0,0 +1,156 @@
+import { serviceWorkerCacheVersion, serviceWorkerRoutes } from './services/service-worker-routes';
+
+/**
+ * How the service worker answers the GETs of a path, see ServiceWorkerCache.java
+ */
+export type CachingStrategy = 'cache-first' | 'stale-while-revalidate' | 'network-only';
+
+/**
+ * One entry of the generated service-worker-routes.ts
+ */
+export type ServiceWorkerRoute = {
+  /** Like 'api/v1/events/*', where a '*' segment matches any one segment */
+  path: string;
+  strategy: CachingStrategy;
+  /** Seconds that a cache-first response is used without asking the backend, 0 for as long as it is cached */
+  maxAge: number;
+};
+
+/**
+ * Asks the service worker to forget the cached responses of some paths, see invalidateCache in service.ts
+ */
+export type InvalidateMessage = { type: 'invalidate'; pathPatterns: string[] };
+
+// The dom and the webworker lib can't be used in the same program, so the few service worker types are declared here
+type ExtendableEvent = Event & { waitUntil(promise: Promise<unknown>): void };
+type FetchEvent = ExtendableEvent & { request: Request; respondWith(response: Promise<Response>): void };
+type ExtendableMessageEvent = ExtendableEvent & { data: unknown };
+type ServiceWorkerScope = {
+  addEventListener(type: 'install' | 'activate', listener: (event: ExtendableEvent) => void): void;
+  addEventListener(type: 'fetch', listener: (event: FetchEvent) => void): void;
+  addEventListener(type: 'message', listener: (event: ExtendableMessageEvent) => void): void;
+  skipWaiting(): Promise<void>;
+  clients: { claim(): Promise<void> };
+};
+const serviceWorker = self as unknown as ServiceWorkerScope;
+
+/**
+ * The cached responses fit one version of the DTOs, a new version starts with an empty cache and deletes the old one
+ */
+const CACHE_NAME_PREFIX = 'api-responses-';
+const CACHE_NAME = CACHE_NAME_PREFIX + serviceWorkerCacheVersion;
+/** When a cached response was fetched, for the maxAge of cache-first routes */
+const FETCHED_AT_HEADER = 'sw-fetched-at';
+
+const routes = serviceWorkerRoutes.map((route) => ({ ...route, segments: splitPath(route.path) }));
+
+serviceWorker.addEventListener('install', (event) => {
+  event.waitUntil(serviceWorker.skipWaiting());
+});
+
+serviceWorker.addEventListener('activate', (event) => {
+  // The previous worker is gone now, nothing reads its caches anymore
+  event.waitUntil(Promise.all([deleteOtherCaches(), serviceWorker.clients.claim()]));
+});
+
+serviceWorker.addEventListener('fetch', (event) => {
+  const request = event.request;
+  if (request.method !== 'GET') return;
+  const route = findRoute(new URL(request.url));
+  if (!route || route.strategy === 'network-only' || request.cache === 'no-store') return;
+
+  if (request.cache === 'no-cache' || request.cache === 'reload') {
+    // The page wants fresh data, like after a mutation, see invalidateCache in service.ts
+    event.respondWith(caches.open(CACHE_NAME).then((cache) => fetchAndCache(event, cache)));
+  } else {
+    event.respondWith(route.strategy === 'cache-first' ? cacheFirst(event, route.maxAge) : staleWhileRevalidate(event));
+  }
+});
+
+serviceWorker.addEventListener('message', (event) => {
+  const message = event.data as InvalidateMessage;
+  if (message?.type === 'invalidate') {
+    event.waitUntil(invalidate(message.pathPatterns));
+  }
+});
+
+function splitPath(path: string) {
+  return path
+    .split('/')
+    .filter((v) => v !== '')
+    .map((v) => decodeURIComponent(v));
+}
+
+function matchesPath(pattern: string[], segments: string[]) {
+  return pattern.length === segments.length && pattern.every((v, i) => v === '*' || v === segments[i]);
+}
+
+function findRoute(url: URL) {
+  const segments = splitPath(url.pathname);
+  // The routes with fewer path variables come first, so "events/top" wins over "events/*"
+  return routes.find((route) => matchesPath(route.segments, segments));
+}
+
+async function cacheFirst(event: FetchEvent, maxAge: number) {
+  const cache = await caches.open(CACHE_NAME);
+  const cached = await cache.match(event.request);
+  const fetchedAt = Number(cached?.headers.get(FETCHED_AT_HEADER) ?? 0);
+  if (cached && (maxAge === 0 || Date.now() - fetchedAt < maxAge * 1000)) {
+    return cached;
+  }
+  try {
+    return await fetchAndCache(event, cache);
+  } catch (error) {
+    // Offline, an old response is better than none
+    if (cached) return cached;
+    throw error;
+  }
+}
+
+async function staleWhileRevalidate(event: FetchEvent) {
+  const cache = await caches.open(CACHE_NAME);
+  const cached = await cache.match(event.request);
+  const response = fetchAndCache(event, cache);
+  if (cached) {
+    // The fresh response is for the next time
+    event.waitUntil(response.catch(() => undefined));
+    return cached;
+  }
+  return response;
+}
+
+async function fetchAndCache(event: FetchEvent, cache: Cache) {
+  const response = await fetch(event.request);
+  // Partial responses can't be cached, and errors shouldn't be
+  if (response.status === 200) {
+    const copy = response.clone();
+    event.waitUntil(
+      (async () => {
+        const headers = new Headers(copy.headers);
+        headers.set(FETCHED_AT_HEADER, String(Date.now()));
+        const body = await copy.blob();
+        await cache.put(event.request, new Response(body, { status: copy.status, statusText: copy.statusText, headers }));
+      })().catch((error) => console.warn('Failed to cache the response', error))
+    );
+  }
+  return response;
+}
+
+/**
+ * Only deletes the older versions of the response cache, other caches of the origin are none of its business
+ */
+async function deleteOtherCaches() {
+  const cacheNames = await caches.keys();
+  await Promise.all(cacheNames.filter((v) => v.startsWith(CACHE_NAME_PREFIX) && v !== CACHE_NAME).map((v) => caches.delete(v)));
+}
+
+async function invalidate(pathPatterns: string[]) {
+  const cache = await caches.open(CACHE_NAME);
+  const patterns = pathPatterns.map((v) => splitPath(v));
+  for (const request of await cache.keys()) {
+    const segments = splitPath(new URL(request.url).pathname);
+    if (patterns.some((pattern) => matchesPath(pattern, segments))) {
+      await cache.delete(request);
+    }
+  }
+}
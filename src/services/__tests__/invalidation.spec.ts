@@ -0,0 +1,141 @@
+// @vitest-environment node
+// ky hands its AbortSignal to the Request of Node, which rejects the AbortSignal of jsdom
+import { beforeAll, beforeEach, describe, expect, it, vi } from 'vitest';
+import { createPinia, setActivePinia } from 'pinia';
+import { EntityStore } from '../entity-store';
+import type { RequestOptions } from '../service';
+
+type Ticket = { id: number; state: string };
+
+let service: typeof import('../service');
+let tickets: Map<number, Ticket>;
+let sentRequests: Request[];
+
+function getTicket(path: string) {
+  const ticket = path.match(/^\/?api\/v1\/tickets\/(\d+)$/);
+  return ticket ? tickets.get(Number(ticket[1])) : undefined;
+}
+
+const fetchMock = vi.fn(async (input: RequestInfo) => {
+  if (!(input instanceof Request)) {
+    // The snapshot files that service.ts looks for when it is loaded
+    return new Response('', { status: 404 });
+  }
+  sentRequests.push(input);
+  const path = new URL(input.url).pathname;
+  if (input.method === 'POST' && path === '/api/v1/batch') {
+    // Like the BatchController, one JSON line per request
+    const { requests } = (await input.json()) as { requests: { path: string }[] };
+    const lines = requests.map((request, index) => {
+      const ticket = getTicket(request.path);
+      return JSON.stringify({
+        index,
+        status: ticket ? 200 : 404,
+        contentType: 'application/json',
+        etag: null,
+        lastModified: null,
+        body: ticket ? JSON.stringify(ticket) : '',
+      });
+    });
+    return new Response(lines.join('\n') + '\n', { headers: { 'content-type': 'application/x-ndjson' } });
+  }
+  const cancelation = path.match(/^\/api\/v1\/tickets\/(\d+)\/cancelation$/);
+  if (input.method === 'PUT' && cancelation) {
+    tickets.set(Number(cancelation[1]), { id: Number(cancelation[1]), state: 'CANCELED' });
+    return new Response(null, { status: 204 });
+  }
+  const ticket = getTicket(path);
+  if (input.method === 'GET' && ticket) {
+    return new Response(JSON.stringify(ticket), { headers: { 'content-type': 'application/json' } });
+  }
+  return new Response('', { status: 404 });
+});
+
+const ticketStore = new EntityStore<number, Ticket>();
+
+/**
+ * Like a generated service, with a lookup and a mutation that invalidates it
+ */
+function useTicketService() {
+  const { api, batch } = service.useService('api/v1/tickets');
+
+  async function findById(id: number, options?: RequestOptions): Promise<Ticket> {
+    const ticket = await api.get(`${id}`, options).json<Ticket>();
+    return ticketStore.put(ticket.id, ticket);
+  }
+  async function findByIdBatched(id: number, options?: RequestOptions): Promise<Ticket> {
+    const ticket = await batch('normal', `${id}`, { ...options }).json<Ticket>();
+    return ticketStore.put(ticket.id, ticket);
+  }
+  async function findByIdCached(id: number, options?: RequestOptions): Promise<Ticket> {
+    return ticketStore.get(id) ?? findById(id, options);
+  }
+  async function cancelTicket(id: number, options?: RequestOptions): Promise<void> {
+    await api.put(`${id}/cancelation`, options);
+    service.invalidateCache([`api/v1/tickets/${id}`]);
+    ticketStore.delete(id);
+  }
+  return { findById, findByIdBatched, findByIdCached, cancelTicket };
+}
+
+function sentGets() {
+  return sentRequests.filter((request) => request.method === 'GET');
+}
+
+beforeAll(async () => {
+  // The node environment has neither, and service.ts already fetches while it is loaded
+  const storage = new Map<string, string>();
+  Object.assign(globalThis, {
+    localStorage: {
+      getItem: (key: string) => storage.get(key) ?? null,
+      setItem: (key: string, value: string) => storage.set(key, value),
+      removeItem: (key: string) => storage.delete(key),
+    },
+    fetch: fetchMock,
+  });
+  service = await import('../service');
+});
+
+beforeEach(() => {
+  setActivePinia(createPinia());
+  tickets = new Map([
+    [1, { id: 1, state: 'RESERVED' }],
+    [2, { id: 2, state: 'RESERVED' }],
+  ]);
+  sentRequests = [];
+  ticketStore.clear();
+});
+
+describe('invalidation after a mutation', () => {
+  it('fetches an entity from the backend again', async () => {
+    const ticketService = useTicketService();
+    expect(await ticketService.findByIdCached(1)).toEqual({ id: 1, state: 'RESERVED' });
+    expect(await ticketService.findByIdCached(1)).toEqual({ id: 1, state: 'RESERVED' });
+    expect(sentGets()).toHaveLength(1);
+
+    await ticketService.cancelTicket(1);
+
+    expect(await ticketService.findByIdCached(1)).toEqual({ id: 1, state: 'CANCELED' });
+    expect(sentGets()).toHaveLength(2);
+  });
+
+  it('skips the HTTP cache for the first GET of an invalidated path', async () => {
+    const ticketService = useTicketService();
+    await ticketService.findById(1);
+    await ticketService.cancelTicket(1);
+    await ticketService.findById(1);
+    await ticketService.findById(1);
+
+    expect(sentGets().map((request) => request.cache)).toEqual(['default', 'no-cache', 'default']);
+  });
+
+  it('counts a batched GET as fetched past the HTTP cache', async () => {
+    const ticketService = useTicketService();
+    await ticketService.cancelTicket(1);
+    // In the same tick, so both end up in one batch
+    await Promise.all([ticketService.findByIdBatched(1), ticketService.findByIdBatched(2)]);
+    await ticketService.findById(1);
+
+    expect(sentGets().map((request) => request.cache)).toEqual(['default']);
+  });
+});
@@ -0,0 +1,145 @@
+import type { Options } from 'ky';
+import type { RequestOptions } from './service';
+
+/**
+ * Whether the generated services record the latency of their requests.
+ * Turned on with `VITE_ENDPOINT_METRICS=true npm run build`. Vite replaces the variable with a constant, so
+ * in every other build the `if (endpointMetricsEnabled)` in the generated services and this whole module are removed.
+ */
+export const endpointMetricsEnabled = import.meta.env.VITE_ENDPOINT_METRICS === 'true';
+
+/**
+ * One request of a generated service method
+ */
+export type EndpointMetric = {
+  /** Like "TicketEndpoint.reserveTickets" */
+  endpoint: string;
+  /** Milliseconds from calling the method until the response headers arrived */
+  duration: number;
+  status: number;
+  /** Size of the response body on the network, 0 if it is unknown or came from a cache */
+  bytes: number;
+};
+export type EndpointMetricsSink = (metric: EndpointMetric) => void;
+
+/**
+ * Upper bounds of the histogram buckets in milliseconds, the last bucket has everything above
+ */
+const BUCKET_BOUNDS = [5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000];
+
+/**
+ * Latencies and sizes of one endpoint. The histogram has fixed buckets, so it never grows, no matter how
+ * long the page is open.
+ */
+export class EndpointHistogram {
+  readonly buckets = new Array<number>(BUCKET_BOUNDS.length + 1).fill(0);
+  count = 0;
+  errors = 0;
+  totalDuration = 0;
+  totalBytes = 0;
+
+  add(metric: EndpointMetric) {
+    const bucket = BUCKET_BOUNDS.findIndex((bound) => metric.duration <= bound);
+    this.buckets[bucket === -1 ? BUCKET_BOUNDS.length : bucket] += 1;
+    this.count += 1;
+    if (metric.status >= 400) this.errors += 1;
+    this.totalDuration += metric.duration;
+    this.totalBytes += metric.bytes;
+  }
+
+  /**
+   * Gets the upper bound of the bucket that contains a percentile, like 0.99 for the p99
+   */
+  percentile(percentile: number) {
+    const rank = Math.ceil(percentile * this.count);
+    let seen = 0;
+    for (let i = 0; i < this.buckets.length; i++) {
+      seen += this.buckets[i];
+      if (seen >= rank && seen > 0) return i < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[i] : Infinity;
+    }
+    return 0;
+  }
+}
+
+/**
+ * The histograms of all endpoints that were called so far. Try `console.table(getEndpointMetrics())`
+ */
+export const endpointHistograms = new Map<string, EndpointHistogram>();
+
+const sinks = new Set<EndpointMetricsSink>([
+  (metric) => {
+    let histogram = endpointHistograms.get(metric.endpoint);
+    if (!histogram) {
+      histogram = new EndpointHistogram();
+      endpointHistograms.set(metric.endpoint, histogram);
+    }
+    histogram.add(metric);
+  },
+]);
+
+/**
+ * Also sends every metric somewhere else, like to an analytics backend
+ * @returns a function that removes the sink again
+ */
+export function addEndpointMetricsSink(sink: EndpointMetricsSink) {
+  sinks.add(sink);
+  return () => {
+    sinks.delete(sink);
+  };
+}
+
+/**
+ * Summarizes the histograms, one row per endpoint
+ */
+export function getEndpointMetrics() {
+  return [...endpointHistograms.entries()].map(([endpoint, histogram]) => ({
+    endpoint,
+    count: histogram.count,
+    errors: histogram.errors,
+    averageMs: histogram.totalDuration / histogram.count,
+    p50Ms: histogram.percentile(0.5),
+    p90Ms: histogram.percentile(0.9),
+    p99Ms: histogram.percentile(0.99),
+    averageBytes: histogram.totalBytes / histogram.count,
+  }));
+}
+
+let callId = 0;
+
+/**
+ * Starts measuring one call of a generated service method. The measurement ends when the response arrives,
+ * so it goes along with the request options as a ky hook. Requests that fail without a response are not recorded.
+ */
+export function measureCall<T extends RequestOptions>(endpoint: string, options: T | undefined): T {
+  const markName = `${endpoint}#${++callId}`;
+  const start = performance.now();
+  performance.mark(markName);
+  const hooks: Options['hooks'] = {
+    afterResponse: [
+      (_request, _options, response) => {
+        // The entries are only needed for the DevTools, which have already seen them
+        performance.measure(endpoint, { start: markName, detail: { status: response.status } });
+        performance.clearMarks(markName);
+        performance.clearMeasures(endpoint);
+        const metric: EndpointMetric = {
+          endpoint,
+          duration: performance.now() - start,
+          status: response.status,
+          bytes: getResponseSize(response, start),
+        };
+        sinks.forEach((sink) => sink(metric));
+      },
+    ],
+  };
+  // ky appends the hooks to the ones of the service
+  return { ...options, hooks } as T;
+}
+
+function getResponseSize(response: Response, start: number) {
+  const contentLength = Number(response.headers.get('content-length'));
+  if (contentLength > 0) return contentLength;
+  // Chunked responses have no Content-Length, but the browser knows how much it received
+  const entries = performance.getEntriesByName(response.url, 'resource') as PerformanceResourceTiming[];
+  const entry = entries[entries.length - 1];
+  return entry && entry.startTime >= start ? entry.encodedBodySize : 0;
+}
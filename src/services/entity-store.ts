@@ -0,0 +1,71 @@
+/** Every store, so that they can all be cleared at once */
+const stores = new Set<{ clear(): void }>();
+
+/**
+ * Forgets every entity in every store. The auth store calls this whenever the user changes,
+ * so that the next user never sees what the previous one was allowed to fetch.
+ */
+export function clearEntityStores() {
+  stores.forEach((store) => store.clear());
+}
+
+type StoredEntity<V> = {
+  entity: V;
+  /** Date.now() of when the entity was fetched */
+  storedAt: number;
+};
+
+/**
+ * Keeps the latest object of every entity key, and forgets the least recently used entities and the ones
+ * that are older than maxAge. The generated entity-stores.ts has one store per DTO with an id.
+ */
+export class EntityStore<K, V extends object> {
+  // A Map iterates in insertion order, so re-inserting an entity marks it as the most recently used one
+  private readonly entities = new Map<K, StoredEntity<V>>();
+
+  /**
+   * @param maxSize Most entities that are kept
+   * @param maxAge Milliseconds that an entity is returned without fetching it again
+   */
+  constructor(private readonly maxSize = 500, private readonly maxAge = 60 * 1000) {
+    stores.add(this);
+  }
+
+  get(key: K): V | undefined {
+    const stored = this.entities.get(key);
+    if (stored === undefined) {
+      return undefined;
+    }
+    this.entities.delete(key);
+    if (Date.now() - stored.storedAt >= this.maxAge) {
+      // Outdated, the caller fetches it again
+      return undefined;
+    }
+    this.entities.set(key, stored);
+    return stored.entity;
+  }
+
+  /**
+   * Remembers an entity. A known entity gets replaced, and never changed, since components and stores
+   * might still be using the older object.
+   */
+  put(key: K, entity: V): V {
+    this.entities.delete(key);
+    this.entities.set(key, { entity, storedAt: Date.now() });
+    if (this.entities.size > this.maxSize) {
+      const leastRecentlyUsed = this.entities.keys().next();
+      if (!leastRecentlyUsed.done) {
+        this.entities.delete(leastRecentlyUsed.value);
+      }
+    }
+    return entity;
+  }
+
+  delete(key: K) {
+    this.entities.delete(key);
+  }
+
+  clear() {
+    this.entities.clear();
+  }
+}
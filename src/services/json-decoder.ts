@@ -0,0 +1,71 @@
+/**
+ * Bodies smaller than this are parsed right away, sending them to the worker and back would take longer than parsing
+ * them. Same as DEFAULT_MIN_SIZE in WorkerDecoding.java.
+ */
+export const DEFAULT_WORKER_MIN_SIZE = 64 * 1024;
+
+export type DecodeRequest = { id: number; buffer: ArrayBuffer };
+export type DecodeResult = { id: number; value: unknown } | { id: number; error: string };
+
+type PendingDecode = { resolve: (value: unknown) => void; reject: (error: unknown) => void };
+
+let worker: Worker | undefined;
+/** Set once the worker failed to start, every later body gets parsed on the main thread */
+let workerFailed = false;
+let nextId = 0;
+const pendingDecodes = new Map<number, PendingDecode>();
+
+function getWorker() {
+  if (!worker) {
+    // Vite bundles the worker as its own module
+    worker = new Worker(new URL('./json-decoder.worker.ts', import.meta.url), { type: 'module' });
+    worker.onmessage = (event: MessageEvent<DecodeResult>) => {
+      const result = event.data;
+      const pending = pendingDecodes.get(result.id);
+      if (!pending) return;
+      pendingDecodes.delete(result.id);
+      if ('error' in result) {
+        // Like response.json()
+        pending.reject(new SyntaxError(result.error));
+      } else {
+        pending.resolve(result.value);
+      }
+    };
+    worker.onerror = (event) => {
+      // The buffers were transferred to the worker, so the waiting bodies are lost
+      workerFailed = true;
+      worker?.terminate();
+      worker = undefined;
+      const error = new Error('Failed to decode the response in the worker: ' + event.message);
+      pendingDecodes.forEach((pending) => pending.reject(error));
+      pendingDecodes.clear();
+    };
+  }
+  return worker;
+}
+
+function decodeInline(buffer: ArrayBuffer) {
+  const text = new TextDecoder().decode(buffer);
+  // Like ky, an empty body is an empty string
+  return text === '' ? '' : JSON.parse(text);
+}
+
+/**
+ * Parses a JSON response in a Web Worker, instead of calling `.json()` on the main thread.
+ * The body is transferred to the worker without copying it, and the parsed value comes back as a structured clone.
+ *
+ * @param minSize Bodies with fewer bytes are parsed on the main thread
+ */
+export async function decodeInWorker<T>(response: Promise<Response>, minSize = DEFAULT_WORKER_MIN_SIZE): Promise<T> {
+  const buffer = await (await response).arrayBuffer();
+  if (buffer.byteLength < minSize || workerFailed || typeof Worker === 'undefined') {
+    return decodeInline(buffer) as T;
+  }
+
+  return new Promise<T>((resolve, reject) => {
+    const id = nextId++;
+    pendingDecodes.set(id, { resolve: resolve as (value: unknown) => void, reject });
+    const request: DecodeRequest = { id, buffer };
+    getWorker().postMessage(request, [buffer]);
+  });
+}
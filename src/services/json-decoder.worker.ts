@@ -0,0 +1,16 @@
+import type { DecodeRequest, DecodeResult } from './json-decoder';
+
+/**
+ * Parses the response bodies that json-decoder.ts sends, off the main thread
+ */
+self.onmessage = (event: MessageEvent<DecodeRequest>) => {
+  const { id, buffer } = event.data;
+  let result: DecodeResult;
+  try {
+    const text = new TextDecoder().decode(buffer);
+    result = { id, value: text === '' ? '' : JSON.parse(text) };
+  } catch (error) {
+    result = { id, error: error instanceof Error ? error.message : String(error) };
+  }
+  self.postMessage(result);
+};
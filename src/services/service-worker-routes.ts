@@ -0,0 +1,12 @@
+/** File Hash: 1f2367cec63e15abfe0eb58a6fa44f8c86e1563e1c53eacb4b31535ca2b0acc2 */
+
+/** Autogenerated Code - Do Not Touch */
+/* eslint-disable */
+
+import type { ServiceWorkerRoute } from '../service-worker';
+
+/** Changes whenever the routes or the DTOs change, see CACHE_NAME in service-worker.ts */
+export const serviceWorkerCacheVersion = 'c3b9155d4539c939';
+
+export const serviceWorkerRoutes: ServiceWorkerRoute[] = [
+];
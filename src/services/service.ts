@@ -1,8 +1,31 @@
-import ky from 'ky';
+import ky, { HTTPError, TimeoutError } from 'ky';
 import type { Options } from 'ky';
 import { useAuthStore } from '../stores/auth-store';
+import type { InvalidateMessage } from '../service-worker';
 
 type KyRequestIdentifier = string;
+
+/**
+ * Options that every generated service method accepts as its last parameter
+ */
+export type RequestOptions = {
+  /** Cancels the request, and any retry that is waiting for its turn */
+  signal?: AbortSignal;
+  /** Timeout in milliseconds, or false to wait forever. Defaults to 10 seconds */
+  timeout?: number | false;
+};
+/**
+ * Options of a resumable upload, see {@link uploadInChunks}
+ */
+export type UploadOptions = RequestOptions & {
+  /** Gets called after every chunk */
+  onProgress?: (progress: UploadProgress) => void;
+};
+export type UploadProgress = {
+  /** Bytes that the backend has */
+  loaded: number;
+  total: number;
+};
 type KyResponse = {
   status: number;
   contentType: string | null;
@@ -12,7 +35,7 @@ type KyResponse = {
 const kyCache = new Map<string, KyResponse>();
 (globalThis as any)['kyCache'] = kyCache;
 let useCache = false;
-// To copy the kyCache, just put the following in your console
+// Snapshots are usually recorded with the SnapshotRecorder.java. Alternatively, to copy the kyCache, just put the following in your console
 // And then put it into the /dist/ky-cache.txt file. TODO: Hmm, I think that file gets overwritten every time one does a build. But I don't want to commit the cache to git either...
 /*
 
@@ -22,14 +45,75 @@ copy(stringified);
 
 */
 
+/**
+ * A recorded snapshot, see SnapshotRecorder.java. Only the index gets loaded at startup,
+ * every response gets fetched and decompressed when it is requested for the first time.
+ */
+type KySnapshot = {
+  dataUrl: string;
+  /** Offset and length of the gzipped response in the data file */
+  entries: Map<KyRequestIdentifier, [number, number]>;
+  /** The whole data file, in case the server ignores range requests */
+  data: Promise<ArrayBuffer> | null;
+};
+let kySnapshot: KySnapshot | null = null;
+
+async function tryLoadKySnapshot() {
+  // Older browsers can't decompress the snapshot, they fall back to the ky-cache.txt
+  const decompressionStream = (globalThis as any).DecompressionStream;
+  if (!decompressionStream) return false;
+  try {
+    const indexFile = await fetch(new URL('./ky-snapshot/index.json', import.meta.url).href);
+    if (!indexFile.ok) return false;
+    const index: { version: number; entries: Record<KyRequestIdentifier, [number, number]> } = await indexFile.json();
+    if (index.version !== 1) return false;
+
+    const entries = new Map<KyRequestIdentifier, [number, number]>();
+    for (const [key, value] of Object.entries(index.entries)) {
+      entries.set(canonicalizeRequestIdentifier(key), value);
+    }
+    kySnapshot = {
+      dataUrl: new URL('./ky-snapshot/data.bin', import.meta.url).href,
+      entries,
+      data: null,
+    };
+    return true;
+  } catch (e) {
+    console.warn('Failed to load ky snapshot', e);
+    return false;
+  }
+}
+
+async function readKySnapshotEntry(snapshot: KySnapshot, [offset, length]: [number, number]): Promise<KyResponse> {
+  let compressed: ArrayBuffer;
+  if (snapshot.data) {
+    compressed = (await snapshot.data).slice(offset, offset + length);
+  } else {
+    const response = await fetch(snapshot.dataUrl, { headers: { range: `bytes=${offset}-${offset + length - 1}` } });
+    if (response.status === 206) {
+      compressed = await response.arrayBuffer();
+    } else {
+      // Got the whole file, so keep it around for the next entries
+      snapshot.data = response.arrayBuffer();
+      compressed = (await snapshot.data).slice(offset, offset + length);
+    }
+  }
+  const decompressed = new Blob([compressed]).stream().pipeThrough(new (globalThis as any).DecompressionStream('gzip'));
+  return JSON.parse(await new Response(decompressed).text());
+}
+
 async function tryLoadKyCache() {
+  if (await tryLoadKySnapshot()) {
+    useCache = true;
+    return;
+  }
   try {
     const kyCacheFile = await fetch(new URL('./ky-cache.txt', import.meta.url).href);
     const content = await kyCacheFile.text();
     if (!content) return;
     const parsedContent = JSON.parse(content);
     for (const [key, value] of parsedContent) {
-      kyCache.set(key, value);
+      kyCache.set(canonicalizeRequestIdentifier(key), value);
     }
     useCache = true;
   } catch (e) {
@@ -40,6 +124,8 @@ await tryLoadKyCache();
 
 function getRequestIdentifier(request: Request): KyRequestIdentifier {
   const url = new URL(request.url);
+  // The order of the search params shouldn't matter, otherwise the same request can end up in the cache multiple times
+  url.searchParams.sort();
 
   return JSON.stringify([
     request.method,
@@ -48,7 +134,22 @@ function getRequestIdentifier(request: Request): KyRequestIdentifier {
   ]);
 }
 
+/**
+ * Older cache files were recorded with unsorted search params
+ */
+function canonicalizeRequestIdentifier(requestIdentifier: KyRequestIdentifier): KyRequestIdentifier {
+  const [method, path, isAuthorized] = JSON.parse(requestIdentifier);
+  const url = new URL(path, 'http://localhost');
+  url.searchParams.sort();
+  return JSON.stringify([method, url.pathname + url.search + url.hash, isAuthorized]);
+}
+
 async function addToCache(request: Request, response: Response) {
+  if (isStreamingResponse(response)) {
+    // Never ends or is huge, so it can't be cached. Not reading this copy of the body would keep it in memory.
+    await response.body?.cancel();
+    return;
+  }
   const requestIdentifier = getRequestIdentifier(request);
   const responseData: KyResponse = {
     status: response.status,
@@ -60,9 +161,14 @@ async function addToCache(request: Request, response: Response) {
   kyCache.set(requestIdentifier, responseData);
 }
 
-function respondFromCache(request: Request): Response | null {
+async function respondFromCache(request: Request): Promise<Response | null> {
   const requestIdentifier = getRequestIdentifier(request);
-  const cachedResponse = kyCache.get(requestIdentifier);
+  let cachedResponse = kyCache.get(requestIdentifier);
+  const snapshotEntry = kySnapshot?.entries.get(requestIdentifier);
+  if (!cachedResponse && kySnapshot && snapshotEntry) {
+    cachedResponse = await readKySnapshotEntry(kySnapshot, snapshotEntry);
+    kyCache.set(requestIdentifier, cachedResponse);
+  }
   if (cachedResponse) {
     const headers = new Headers();
     if (cachedResponse.contentType) {
@@ -78,6 +184,944 @@ function respondFromCache(request: Request): Response | null {
   }
 }
 
+/** How often invalidateCache was called */
+let invalidationCount = 0;
+/** The latest invalidation of every path pattern, as the invalidationCount at that time */
+const invalidatedPatterns = new Map<string, { segments: string[]; invalidatedAt: number }>();
+/** The invalidationCount when a path was last fetched past the HTTP cache, only for paths that an invalidated pattern matches */
+const revalidatedPaths = new Map<string, number>();
+/** Most revalidated paths that are kept, a forgotten one is only fetched past the HTTP cache once more */
+const MAX_REVALIDATED_PATHS = 100;
+/** The GETs that are fetched past the HTTP cache, with the invalidationCount when they were sent */
+const pendingRevalidations = new WeakMap<Request, number>();
+
+/**
+ * Makes the next GET of the given paths fetch fresh data. Generated services call this after a mutation,
+ * and evict the outdated entities from the entity stores themselves.
+ *
+ * A GET can be answered by the HTTP cache of the browser, if its @CachePolicy has a maxAge, and by the service worker.
+ * So the next GET of an invalidated path skips both, and the fresh response replaces what they had cached.
+ *
+ * @param pathPatterns Paths like 'api/v1/tickets/5', where a '*' segment matches any one segment. Search params are ignored.
+ */
+export function invalidateCache(pathPatterns: string[]) {
+  invalidationCount += 1;
+  for (const pathPattern of pathPatterns) {
+    invalidatedPatterns.set(pathPattern, { segments: splitPath(pathPattern), invalidatedAt: invalidationCount });
+  }
+  // Other tabs use the same service worker
+  const message: InvalidateMessage = { type: 'invalidate', pathPatterns };
+  globalThis.navigator?.serviceWorker?.controller?.postMessage(message);
+}
+
+/**
+ * Checks if a GET has to skip the HTTP cache, because its path was invalidated since it was last fetched
+ */
+function needsRevalidation(request: Request) {
+  if (request.method !== 'GET' || invalidatedPatterns.size === 0) return false;
+  const pathname = new URL(request.url).pathname;
+  const revalidatedAt = revalidatedPaths.get(pathname) ?? 0;
+  const segments = splitPath(pathname);
+  for (const { segments: pattern, invalidatedAt } of invalidatedPatterns.values()) {
+    if (invalidatedAt > revalidatedAt && matchesPath(pattern, segments)) {
+      return true;
+    }
+  }
+  return false;
+}
+
+/**
+ * Remembers that a path has fresh data in the HTTP cache again, once a GET that skipped it succeeded
+ */
+function finishRevalidation(request: Request, response: Response) {
+  const sentAt = pendingRevalidations.get(request);
+  if (sentAt === undefined || !response.ok) return;
+  const pathname = new URL(request.url).pathname;
+  const segments = splitPath(pathname);
+  // A pattern without a '*' only matches this path, so it is done once the path has been fetched after it
+  for (const [pathPattern, { segments: pattern, invalidatedAt }] of invalidatedPatterns) {
+    if (invalidatedAt <= sentAt && !pattern.includes('*') && matchesPath(pattern, segments)) {
+      invalidatedPatterns.delete(pathPattern);
+    }
+  }
+  const revalidatedAt = Math.max(sentAt, revalidatedPaths.get(pathname) ?? 0);
+  // Re-inserted, so that the Map keeps the least recently revalidated path first
+  revalidatedPaths.delete(pathname);
+  if ([...invalidatedPatterns.values()].some(({ segments: pattern }) => matchesPath(pattern, segments))) {
+    revalidatedPaths.set(pathname, revalidatedAt);
+  }
+  if (revalidatedPaths.size > MAX_REVALIDATED_PATHS) {
+    const leastRecentlyRevalidated = revalidatedPaths.keys().next();
+    if (!leastRecentlyRevalidated.done) {
+      revalidatedPaths.delete(leastRecentlyRevalidated.value);
+    }
+  }
+}
+
+function splitPath(path: string) {
+  return path
+    .split('/')
+    .filter((v) => v !== '')
+    .map((v) => decodeURIComponent(v));
+}
+
+function matchesPath(pattern: string[], segments: string[]) {
+  return pattern.length === segments.length && pattern.every((v, i) => v === '*' || v === segments[i]);
+}
+
+/**
+ * Creates a function that runs one call at a time. Starting a new call cancels the previous one,
+ * so that an older response can never overwrite a newer one.
+ *
+ * The cancelled call rejects with an AbortError, see {@link isAbortError}
+ */
+export function latestWins() {
+  let currentController: AbortController | null = null;
+
+  return async function <T>(call: (signal: AbortSignal) => Promise<T>, signal?: AbortSignal): Promise<T> {
+    currentController?.abort();
+    const controller = new AbortController();
+    currentController = controller;
+
+    const abort = () => controller.abort();
+    signal?.addEventListener('abort', abort, { once: true });
+    if (signal?.aborted) {
+      controller.abort();
+    }
+
+    try {
+      return await call(controller.signal);
+    } finally {
+      signal?.removeEventListener('abort', abort);
+      if (currentController === controller) {
+        currentController = null;
+      }
+    }
+  };
+}
+
+/**
+ * The answer of an endpoint method with a @DeltaSync, see DeltaSync.java
+ */
+export type DeltaChanges<K, V, C> = {
+  /** Where the next sync continues */
+  cursor: C;
+  /** The inserted and updated entities */
+  changed: V[];
+  /** The keys of the deleted entities */
+  deleted: K[];
+  /** True if the changes are the whole collection */
+  reset: boolean;
+};
+
+/**
+ * A local copy of a collection, that only fetches what changed since the last sync
+ */
+export type DeltaSync<K, V> = {
+  /**
+   * Fetches the changes since the last sync and merges them into the local copy.
+   * Syncs that overlap share one request, which is only cancelled once every one of them is aborted.
+   */
+  sync(options?: RequestOptions): Promise<V[]>;
+  /** The local copy, in the order the entities were first inserted */
+  items(): V[];
+  get(key: K): V | undefined;
+  /** Forgets the local copy, the next sync fetches the whole collection */
+  reset(): void;
+};
+
+/**
+ * The request of overlapping syncs
+ */
+type SharedSync<V> = {
+  controller: AbortController;
+  /** Callers that still wait for the result */
+  waiting: number;
+  result: Promise<V[]>;
+};
+
+/**
+ * Creates a {@link DeltaSync}
+ *
+ * @param fetchChanges Fetches the changes since a cursor, or the whole collection without one
+ * @param getKey Gets the key of an entity
+ */
+export function deltaSync<K, V, C>(
+  fetchChanges: (cursor: C | undefined, options?: RequestOptions) => Promise<DeltaChanges<K, V, C>>,
+  getKey: (entity: V) => K
+): DeltaSync<K, V> {
+  // A Map keeps the insertion order, and an update keeps the position of the entity
+  const entities = new Map<K, V>();
+  let cursor: C | undefined;
+  let currentSync: SharedSync<V> | null = null;
+  // Changes that were requested before a reset() must not end up in the new copy
+  let generation = 0;
+
+  async function applyChanges(options?: RequestOptions) {
+    const requestGeneration = generation;
+    const changes = await fetchChanges(cursor, options);
+    if (requestGeneration === generation) {
+      if (changes.reset) {
+        entities.clear();
+      }
+      for (const entity of changes.changed ?? []) {
+        entities.set(getKey(entity), entity);
+      }
+      for (const key of changes.deleted ?? []) {
+        entities.delete(key);
+      }
+      cursor = changes.cursor;
+    }
+    return [...entities.values()];
+  }
+
+  return {
+    sync(options) {
+      const signal = options?.signal;
+      if (signal?.aborted) {
+        return Promise.reject(signal.reason ?? new DOMException('The request was aborted', 'AbortError'));
+      }
+      if (!currentSync) {
+        // The request has its own signal, the signal of the first caller must not cancel it for the others
+        const controller = new AbortController();
+        const sync: SharedSync<V> = {
+          controller,
+          waiting: 0,
+          result: applyChanges({ ...options, signal: controller.signal }).finally(() => {
+            if (currentSync === sync) {
+              currentSync = null;
+            }
+          }),
+        };
+        currentSync = sync;
+      }
+      const sync = currentSync;
+      sync.waiting += 1;
+      if (!signal) {
+        // Never aborted, so the request is never cancelled either
+        return sync.result;
+      }
+      return new Promise<V[]>((resolve, reject) => {
+        const abort = () => {
+          reject(signal.reason ?? new DOMException('The request was aborted', 'AbortError'));
+          sync.waiting -= 1;
+          if (sync.waiting === 0) {
+            sync.controller.abort();
+            if (currentSync === sync) {
+              currentSync = null;
+            }
+          }
+        };
+        signal.addEventListener('abort', abort, { once: true });
+        sync.result.then(resolve, reject).finally(() => signal.removeEventListener('abort', abort));
+      });
+    },
+    items: () => [...entities.values()],
+    get: (key) => entities.get(key),
+    reset() {
+      entities.clear();
+      cursor = undefined;
+      generation += 1;
+      currentSync = null;
+    },
+  };
+}
+
+/**
+ * How urgent a request is, see RequestPriority.java
+ */
+export type RequestPriority = 'critical' | 'high' | 'normal' | 'low';
+const PRIORITY_LEVELS: Record<RequestPriority, number> = { critical: 0, high: 1, normal: 2, low: 3 };
+
+/**
+ * Browsers open at most 6 connections to one origin over HTTP/1.1, more requests would queue up in the browser,
+ * where nobody can tell which one is urgent
+ */
+let maxConcurrentRequests = 6;
+/** Slots that only high and critical requests can use, so that they never wait behind a full queue of images */
+const RESERVED_SLOTS = 1;
+/** A waiting request moves up one priority level per this many milliseconds, so that nothing waits forever */
+const PRIORITY_AGING_MS = 1000;
+
+type QueuedRequest = {
+  level: number;
+  enqueuedAt: number;
+  start: () => void;
+};
+
+/**
+ * Limits the concurrent requests to one origin, and starts the most urgent waiting request whenever a slot is free
+ */
+class RequestScheduler {
+  private active = 0;
+  private readonly queue: QueuedRequest[] = [];
+  private agingTimer: ReturnType<typeof setTimeout> | undefined;
+
+  /**
+   * Waits for a free slot
+   * @returns a function that frees the slot again
+   */
+  acquire(priority: RequestPriority, signal?: AbortSignal) {
+    return new Promise<() => void>((resolve, reject) => {
+      if (signal?.aborted) {
+        reject(new DOMException('The request was aborted', 'AbortError'));
+        return;
+      }
+      const queued: QueuedRequest = {
+        level: PRIORITY_LEVELS[priority],
+        enqueuedAt: performance.now(),
+        start: () => {
+          signal?.removeEventListener('abort', abort);
+          this.active += 1;
+          let isReleased = false;
+          resolve(() => {
+            if (isReleased) return;
+            isReleased = true;
+            this.active -= 1;
+            this.startNext();
+          });
+        },
+      };
+      const abort = () => {
+        const index = this.queue.indexOf(queued);
+        if (index !== -1) this.queue.splice(index, 1);
+        reject(new DOMException('The request was aborted', 'AbortError'));
+      };
+      signal?.addEventListener('abort', abort, { once: true });
+      this.queue.push(queued);
+      this.startNext();
+    });
+  }
+
+  private startNext() {
+    clearTimeout(this.agingTimer);
+    while (this.active < maxConcurrentRequests && this.queue.length > 0) {
+      const now = performance.now();
+      // The queue is short, so a scan is cheaper than keeping a heap up to date while the requests age
+      let bestIndex = 0;
+      let bestLevel = Infinity;
+      for (let i = 0; i < this.queue.length; i++) {
+        const level = this.queue[i].level - Math.floor((now - this.queue[i].enqueuedAt) / PRIORITY_AGING_MS);
+        if (level < bestLevel) {
+          bestIndex = i;
+          bestLevel = level;
+        }
+      }
+      if (bestLevel > PRIORITY_LEVELS.high && this.active >= maxConcurrentRequests - RESERVED_SLOTS) {
+        // Checks again once the waiting requests have aged
+        this.agingTimer = setTimeout(() => this.startNext(), PRIORITY_AGING_MS);
+        return;
+      }
+      const [next] = this.queue.splice(bestIndex, 1);
+      next.start();
+    }
+  }
+}
+
+const schedulers = new Map<string, RequestScheduler>();
+
+/**
+ * Changes how many requests can run at the same time, per origin. An origin that is served over HTTP/2 can take more
+ */
+export function setMaxConcurrentRequests(value: number) {
+  maxConcurrentRequests = Math.max(RESERVED_SLOTS + 1, value);
+}
+
+/**
+ * Creates the schedule function of one origin. It sends a request once a slot is free, and keeps the slot until
+ * the body is downloaded, since the connection is busy until then.
+ */
+function createSchedule(origin: string) {
+  const originScheduler = getScheduler(origin);
+
+  return function schedule(priority: RequestPriority, send: () => Promise<Response>, signal?: AbortSignal) {
+    const response = (async () => {
+      const release = await originScheduler.acquire(priority, signal);
+      try {
+        const response = await send();
+        const body = [101, 204, 205, 304].includes(response.status) ? null : await response.blob();
+        return new Response(body, { status: response.status, statusText: response.statusText, headers: response.headers });
+      } finally {
+        release();
+      }
+    })();
+    return asResponsePromise(response);
+  };
+}
+
+function getScheduler(origin: string) {
+  let scheduler = schedulers.get(origin);
+  if (!scheduler) {
+    scheduler = new RequestScheduler();
+    schedulers.set(origin, scheduler);
+  }
+  return scheduler;
+}
+
+/** Path of the batch route, it has to match BatchControllerGenerator.java */
+const BATCH_PATH = 'api/v1/batch';
+/** Most requests in one batch, it has to match BatchControllerGenerator.java */
+const MAX_BATCH_SIZE = 20;
+/** Like the default of ky */
+const DEFAULT_TIMEOUT = 10000;
+/** Most batched responses that are kept to revalidate them, the batch response itself is never cached */
+const MAX_BATCH_VALIDATED = 50;
+
+/**
+ * One line of the batch response
+ */
+type BatchSubResponse = {
+  /** Position of the request in the batch */
+  index: number;
+  /** 304 if the response is still the one whose validators were sent */
+  status: number;
+  contentType: string | null;
+  etag: string | null;
+  lastModified: string | null;
+  body: string;
+};
+
+/**
+ * A batched response with its validators, so that the next batch only asks whether it changed
+ */
+type BatchValidated = Pick<BatchSubResponse, 'contentType' | 'etag' | 'lastModified' | 'body'>;
+
+/** By the Authorization header and the path, the batched routes are different for every user */
+const batchValidated = new Map<string, BatchValidated>();
+
+type BatchEntry = {
+  priority: RequestPriority;
+  /** Relative to the backend, like 'api/v1/events/1?page=0' */
+  path: string;
+  request: Request;
+  options: Options;
+  /** Sends the request on its own, when there is nothing to batch it with */
+  sendAlone: () => Promise<Response>;
+  resolve: (response: Response) => void;
+  reject: (error: unknown) => void;
+  isSettled: boolean;
+  /** Key of the response in batchValidated */
+  validatedKey: string;
+  /** The response whose validators were sent, for a 304 */
+  validated?: BatchValidated;
+  /** Set once the batch is sent */
+  sentBatch?: SentBatch;
+  removeAbortListener: () => void;
+  api: typeof ky;
+};
+
+type SentBatch = {
+  entries: BatchEntry[];
+  /** Cancels the whole batch */
+  controller: AbortController;
+};
+
+type BatchQueue = {
+  entries: BatchEntry[];
+  timer: ReturnType<typeof setTimeout>;
+};
+
+const batchQueues = new Map<string, BatchQueue>();
+/** Origins whose backend has no batch route */
+const unbatchedOrigins = new Set<string>();
+
+/**
+ * Creates the batch function of one service. It sends GET requests that are made in the same tick to the same origin
+ * together, as one request to the BatchController. Every caller still gets its own response or HTTPError.
+ */
+function createBatch(
+  backendUrl: URL,
+  api: typeof ky,
+  schedule: ReturnType<typeof createSchedule>,
+  getHeaders: () => HeadersInit
+) {
+  const origin = backendUrl.origin;
+  // Like the prefixUrl of ky
+  const prefixUrl = backendUrl.href.endsWith('/') ? backendUrl.href : backendUrl.href + '/';
+
+  return function batch(priority: RequestPriority, input: string, options: Options) {
+    const sendAlone = () => schedule(priority, () => api.get(input, options), options.signal);
+    if (useCache || unbatchedOrigins.has(origin)) {
+      return sendAlone();
+    }
+
+    const url = new URL(input, prefixUrl);
+    if (options.searchParams) {
+      url.search = new URLSearchParams(options.searchParams as URLSearchParams).toString();
+    }
+    const response = new Promise<Response>((resolve, reject) => {
+      if (options.signal?.aborted) {
+        reject(new DOMException('The request was aborted', 'AbortError'));
+        return;
+      }
+      const request = new Request(url, { headers: getHeaders() });
+      const path = url.pathname.slice(1) + url.search;
+      const entry: BatchEntry = {
+        priority,
+        path,
+        request,
+        options,
+        sendAlone,
+        resolve: (response) => {
+          entry.isSettled = true;
+          entry.removeAbortListener();
+          resolve(response);
+        },
+        reject: (error) => {
+          entry.isSettled = true;
+          entry.removeAbortListener();
+          reject(error);
+        },
+        isSettled: false,
+        validatedKey: (request.headers.get('Authorization') ?? '') + ' ' + path,
+        removeAbortListener: () => options.signal?.removeEventListener('abort', abort),
+        api,
+      };
+      const abort = () => {
+        const queue = batchQueues.get(origin);
+        const index = queue?.entries.indexOf(entry) ?? -1;
+        if (queue && index !== -1) queue.entries.splice(index, 1);
+        entry.reject(new DOMException('The request was aborted', 'AbortError'));
+        if (entry.sentBatch?.entries.every((v) => v.isSettled)) {
+          // Nobody waits for the batch anymore
+          entry.sentBatch.controller.abort();
+        }
+      };
+      options.signal?.addEventListener('abort', abort, { once: true });
+
+      let queue = batchQueues.get(origin);
+      if (!queue) {
+        // Waits until the current tick is done, so that all of its requests end up in the batch
+        queue = { entries: [], timer: setTimeout(() => flushBatch(origin), 0) };
+        batchQueues.set(origin, queue);
+      }
+      queue.entries.push(entry);
+      if (queue.entries.length >= MAX_BATCH_SIZE) {
+        flushBatch(origin);
+      }
+    });
+    return asResponsePromise(response);
+  };
+}
+
+function flushBatch(origin: string) {
+  const queue = batchQueues.get(origin);
+  if (!queue) return;
+  batchQueues.delete(origin);
+  clearTimeout(queue.timer);
+  if (queue.entries.length === 1) {
+    sendAlone(queue.entries[0]);
+  } else if (queue.entries.length > 1) {
+    sendBatch(origin, queue.entries);
+  }
+}
+
+function sendAlone(entry: BatchEntry) {
+  // The request has its own signal now
+  entry.removeAbortListener();
+  entry.sendAlone().then(entry.resolve, entry.reject);
+}
+
+async function sendBatch(origin: string, entries: BatchEntry[]) {
+  const sentBatch: SentBatch = { entries, controller: new AbortController() };
+  entries.forEach((entry) => (entry.sentBatch = sentBatch));
+  const priority = entries.reduce(
+    (mostUrgent, entry) => (PRIORITY_LEVELS[entry.priority] < PRIORITY_LEVELS[mostUrgent] ? entry.priority : mostUrgent),
+    entries[0].priority
+  );
+  const timeouts = entries.map((entry) => entry.options.timeout ?? DEFAULT_TIMEOUT);
+  entries.forEach((entry) => (entry.validated = batchValidated.get(entry.validatedKey)));
+
+  let release: (() => void) | undefined;
+  try {
+    // Unlike schedule, the body is not buffered, so that every caller gets its response as soon as its line arrives
+    release = await getScheduler(origin).acquire(priority, sentBatch.controller.signal);
+    // The sub-requests never come from the HTTP cache, so a successful one also revalidates its path
+    entries
+      .filter((entry) => needsRevalidation(entry.request))
+      .forEach((entry) => pendingRevalidations.set(entry.request, invalidationCount));
+    const response = entries[0].api.post(findBackendUrl(BATCH_PATH), {
+      json: {
+        requests: entries.map((entry) => ({
+          path: entry.path,
+          ifNoneMatch: entry.validated?.etag ?? undefined,
+          ifModifiedSince: entry.validated?.lastModified ?? undefined,
+        })),
+      },
+      signal: sentBatch.controller.signal,
+      timeout: timeouts.includes(false) ? false : Math.max(...(timeouts as number[])),
+      retry: 0,
+    });
+    for await (const line of streamJsonLines<BatchSubResponse>(response)) {
+      const entry = entries[line.index];
+      if (entry && !entry.isSettled) {
+        await settleBatchEntry(entry, line);
+      }
+    }
+    entries
+      .filter((entry) => !entry.isSettled)
+      .forEach((entry) => entry.reject(new TypeError('The batch response has no answer for ' + entry.path)));
+  } catch (error) {
+    const unsettled = entries.filter((entry) => !entry.isSettled);
+    if (error instanceof HTTPError && [404, 405].includes(error.response.status)) {
+      // An older backend, its requests have to be sent one by one
+      unbatchedOrigins.add(origin);
+      unsettled.forEach(sendAlone);
+    } else {
+      unsettled.forEach((entry) => entry.reject(error));
+    }
+  } finally {
+    release?.();
+  }
+}
+
+async function settleBatchEntry(entry: BatchEntry, batchLine: BatchSubResponse) {
+  let line = batchLine;
+  if (line.status === 304 && entry.validated) {
+    // Like the HTTP cache, the caller gets the unchanged response as a 200
+    const { contentType, etag, lastModified, body } = entry.validated;
+    line = { ...line, status: 200, contentType, etag: line.etag ?? etag, lastModified: line.lastModified ?? lastModified, body };
+  }
+  rememberBatchValidated(entry.validatedKey, line);
+  const headers = new Headers();
+  if (line.contentType) {
+    headers.set('content-type', line.contentType);
+  }
+  if (line.etag) {
+    headers.set('etag', line.etag);
+  }
+  if (line.lastModified) {
+    headers.set('last-modified', line.lastModified);
+  }
+  const hasBody = line.body !== '' && ![204, 205, 304].includes(line.status);
+  const response = new Response(hasBody ? line.body : null, { status: line.status, headers });
+  // Like ky, the hooks of the service and of the call see every response, which records it and its latency
+  finishRevalidation(entry.request, response);
+  addToCache(entry.request, response.clone());
+  for (const hook of entry.options.hooks?.afterResponse ?? []) {
+    await hook(entry.request, entry.options as any, response.clone());
+  }
+  if (response.ok) {
+    entry.resolve(response);
+  } else {
+    entry.reject(new HTTPError(response, entry.request, entry.options as any));
+  }
+}
+
+function rememberBatchValidated(key: string, line: BatchSubResponse) {
+  // Re-inserted, so that the Map keeps the least recently used response first
+  batchValidated.delete(key);
+  if (line.status !== 200 || (!line.etag && !line.lastModified)) return;
+  batchValidated.set(key, { contentType: line.contentType, etag: line.etag, lastModified: line.lastModified, body: line.body });
+  if (batchValidated.size > MAX_BATCH_VALIDATED) {
+    const leastRecentlyUsed = batchValidated.keys().next();
+    if (!leastRecentlyUsed.done) {
+      batchValidated.delete(leastRecentlyUsed.value);
+    }
+  }
+}
+
+/**
+ * How a generated service method retries and hedges its requests, see Resilience.java
+ */
+export type ResiliencePolicy = {
+  retries: number;
+  /** Milliseconds */
+  baseDelay: number;
+  /** Milliseconds */
+  maxDelay: number;
+  /** Sends a second request when the first one is slower than this percentile of the recent ones */
+  hedgePercentile?: number;
+};
+
+/** Hedging only starts once there are enough latencies to know what is slow */
+const MIN_HEDGE_SAMPLES = 20;
+const LATENCY_SAMPLES = 100;
+
+/**
+ * Creates a function that sends a request with retries, and optionally hedges it. It remembers the latencies of
+ * its last requests to find out when a request is slower than usual.
+ *
+ * Only for requests that can safely be sent twice, the generator makes sure of that.
+ */
+export function resilience(policy: ResiliencePolicy) {
+  const latencies: number[] = [];
+  let nextLatency = 0;
+
+  function getHedgeDelay() {
+    if (!policy.hedgePercentile || latencies.length < MIN_HEDGE_SAMPLES) return null;
+    const sorted = [...latencies].sort((a, b) => a - b);
+    return sorted[Math.min(sorted.length - 1, Math.floor(policy.hedgePercentile * sorted.length))];
+  }
+
+  function rememberLatency(latency: number) {
+    latencies[nextLatency] = latency;
+    nextLatency = (nextLatency + 1) % LATENCY_SAMPLES;
+  }
+
+  /**
+   * Sends the request, and a second one if the first is too slow. Resolves with the first response,
+   * and cancels the other request.
+   */
+  function sendHedged(send: (signal: AbortSignal) => Promise<Response>, signal?: AbortSignal) {
+    return new Promise<Response>((resolve, reject) => {
+      const controllers: AbortController[] = [];
+      const hedgeDelay = getHedgeDelay();
+      let pending = 0;
+      let isSettled = false;
+      let hedgeTimer: ReturnType<typeof setTimeout> | undefined;
+      const abortAll = () => controllers.forEach((controller) => controller.abort());
+      signal?.addEventListener('abort', abortAll, { once: true });
+
+      const finish = () => {
+        isSettled = true;
+        clearTimeout(hedgeTimer);
+        signal?.removeEventListener('abort', abortAll);
+      };
+      const start = () => {
+        const controller = new AbortController();
+        controllers.push(controller);
+        if (signal?.aborted) controller.abort();
+        pending += 1;
+        const startTime = performance.now();
+        send(controller.signal).then(
+          (response) => {
+            if (isSettled) return;
+            finish();
+            rememberLatency(performance.now() - startTime);
+            // The winner keeps its controller, its body is still being read
+            controllers.filter((v) => v !== controller).forEach((v) => v.abort());
+            resolve(response);
+          },
+          (error) => {
+            pending -= 1;
+            // Waits for the other request, unless this was the last one
+            if (isSettled || pending > 0) return;
+            finish();
+            reject(error);
+          }
+        );
+      };
+
+      start();
+      if (hedgeDelay !== null) {
+        hedgeTimer = setTimeout(() => {
+          if (!isSettled) start();
+        }, hedgeDelay);
+      }
+    });
+  }
+
+  return function (send: (signal: AbortSignal) => Promise<Response>, signal?: AbortSignal) {
+    const response = (async () => {
+      for (let attempt = 0; ; attempt++) {
+        try {
+          return await sendHedged(send, signal);
+        } catch (error) {
+          if (attempt >= policy.retries || !isRetryableError(error)) {
+            throw error;
+          }
+          // "Full jitter", so that clients that failed together do not retry together
+          const maxDelay = Math.min(policy.maxDelay, policy.baseDelay * 2 ** attempt);
+          await abortableDelay(Math.max(Math.random() * maxDelay, getRetryAfter(error)), signal);
+        }
+      }
+    })();
+
+    return asResponsePromise(response);
+  };
+}
+
+/**
+ * Adds the json and blob methods of a ky ResponsePromise, so that the generated code can treat it the same
+ */
+function asResponsePromise(response: Promise<Response>) {
+  return Object.assign(response, {
+    json: async <T>() => {
+      const text = await (await response).text();
+      // Like ky, an empty body is an empty string
+      return (text === '' ? '' : JSON.parse(text)) as T;
+    },
+    blob: async () => (await response).blob(),
+  });
+}
+
+function isRetryableError(error: unknown) {
+  if (isAbortError(error)) return false;
+  // A failed fetch is a TypeError
+  if (error instanceof TypeError || error instanceof TimeoutError) return true;
+  return error instanceof HTTPError && [408, 429, 500, 502, 503, 504].includes(error.response.status);
+}
+
+/**
+ * Gets the milliseconds that the backend asked to wait with a Retry-After header, or 0
+ */
+function getRetryAfter(error: unknown) {
+  if (!(error instanceof HTTPError)) return 0;
+  const seconds = Number(error.response.headers.get('retry-after'));
+  return Number.isFinite(seconds) && seconds > 0 ? seconds * 1000 : 0;
+}
+
+/**
+ * Waits, unless the signal aborts first. Then it rejects with the reason of the abort, like fetch does.
+ */
+function abortableDelay(milliseconds: number, signal?: AbortSignal) {
+  return new Promise<void>((resolve, reject) => {
+    const getReason = () => signal?.reason ?? new DOMException('The request was aborted', 'AbortError');
+    if (signal?.aborted) {
+      reject(getReason());
+      return;
+    }
+    const abort = () => {
+      clearTimeout(timer);
+      reject(getReason());
+    };
+    const timer = setTimeout(() => {
+      signal?.removeEventListener('abort', abort);
+      resolve();
+    }, milliseconds);
+    signal?.addEventListener('abort', abort, { once: true });
+  });
+}
+
+function isStreamingResponse(response: Response) {
+  const contentType = response.headers.get('content-type') ?? '';
+  return contentType.startsWith('application/x-ndjson') || contentType.startsWith('text/event-stream');
+}
+
+/**
+ * Reads a response body line by line, as soon as the lines arrive
+ */
+async function* readLines(response: Promise<Response>): AsyncGenerator<string> {
+  const body = (await response).body;
+  if (!body) return;
+
+  const reader = body.getReader();
+  const decoder = new TextDecoder();
+  let buffer = '';
+  try {
+    while (true) {
+      const { done, value } = await reader.read();
+      if (done) break;
+      buffer += decoder.decode(value, { stream: true });
+
+      let lineEnd = buffer.indexOf('\n');
+      while (lineEnd !== -1) {
+        yield buffer.slice(0, lineEnd).replace(/\r$/, '');
+        buffer = buffer.slice(lineEnd + 1);
+        lineEnd = buffer.indexOf('\n');
+      }
+    }
+    buffer += decoder.decode();
+    if (buffer) yield buffer;
+  } finally {
+    // Stops the download if the caller stopped iterating early
+    await reader.cancel();
+  }
+}
+
+/**
+ * Parses a newline delimited JSON response, one element at a time
+ */
+export async function* streamJsonLines<T>(response: Promise<Response>): AsyncGenerator<T> {
+  for await (const line of readLines(response)) {
+    if (line.trim()) {
+      yield JSON.parse(line);
+    }
+  }
+}
+
+/**
+ * Parses a server-sent events response where every event contains JSON data
+ */
+export async function* streamServerSentEvents<T>(response: Promise<Response>): AsyncGenerator<T> {
+  let data: string[] = [];
+  for await (const line of readLines(response)) {
+    if (line === '') {
+      // An empty line ends the event
+      if (data.length > 0) {
+        yield JSON.parse(data.join('\n'));
+      }
+      data = [];
+    } else if (line.startsWith('data:')) {
+      data.push(line.slice('data:'.length).replace(/^ /, ''));
+    }
+    // Comments, event names and ids are ignored
+  }
+  if (data.length > 0) {
+    yield JSON.parse(data.join('\n'));
+  }
+}
+
+/**
+ * Uploads a file in chunks, and continues where it stopped when a chunk fails. See ResumableUpload.java for the protocol.
+ *
+ * Aborting the signal of the options cancels the chunk that is being sent, or the wait before the next attempt.
+ * Either way the upload rejects right away, the backend keeps the chunks that it already got.
+ *
+ * @param sendChunk Sends one chunk with the given headers to the upload endpoint
+ * @returns The response to the last chunk, which is the normal response of the upload endpoint
+ */
+export function uploadInChunks(
+  file: Blob,
+  chunkSize: number,
+  sendChunk: (chunk: Blob, headers: Record<string, string>) => Promise<Response>,
+  options?: UploadOptions
+) {
+  const response = (async () => {
+    const uploadId = crypto.randomUUID();
+    const total = file.size;
+    let offset = 0;
+    let failedAttempts = 0;
+    // An empty file only needs the request that asks how far the upload got
+    let askForOffset = total === 0;
+    for (;;) {
+      try {
+        const end = Math.min(offset + chunkSize, total);
+        const response = askForOffset
+          ? await sendChunk(new Blob(), { 'upload-id': uploadId, 'content-range': `bytes */${total}` })
+          : await sendChunk(file.slice(offset, end), {
+              'upload-id': uploadId,
+              'content-range': `bytes ${offset}-${end - 1}/${total}`,
+              'content-type': 'application/octet-stream',
+            });
+        if (response.status !== 202) {
+          options?.onProgress?.({ loaded: total, total });
+          return response;
+        }
+        offset = Number(response.headers.get('upload-offset') ?? end);
+        askForOffset = false;
+        failedAttempts = 0;
+        options?.onProgress?.({ loaded: offset, total });
+      } catch (error) {
+        failedAttempts += 1;
+        if (!isRetryableUploadError(error) || failedAttempts > 5) {
+          throw error;
+        }
+        // The backend might have gotten parts of the chunk, so it gets asked before sending the next one
+        await abortableDelay(500 * 2 ** failedAttempts, options?.signal);
+        askForOffset = true;
+      }
+    }
+  })();
+
+  return asResponsePromise(response);
+}
+
+function isRetryableUploadError(error: unknown) {
+  if (isAbortError(error)) return false;
+  // A failed fetch is a TypeError
+  if (error instanceof TypeError || error instanceof TimeoutError) return true;
+  return error instanceof HTTPError && error.response.status >= 500;
+}
+
+/**
+ * Cancelled requests reject with an AbortError, which usually should be ignored
+ */
+export function isAbortError(error: unknown) {
+  return error instanceof Error && error.name === 'AbortError';
+}
+
 export function findBackendUrl(basePath: string) {
   if (import.meta.env.DEV) {
     // local `npm run dev`, backend at localhost:8080
@@ -90,18 +1134,26 @@ export function findBackendUrl(basePath: string) {
 
 export function useService(basePath: string) {
   const authStore = useAuthStore();
+  const backendUrl = findBackendUrl(basePath);
 
   const options: Options = {
-    prefixUrl: findBackendUrl(basePath),
+    prefixUrl: backendUrl,
     hooks: {
       beforeRequest: [
-        (request) => {
+        async (request) => {
           if (authStore.token) {
             request.headers.set('Authorization', 'Bearer ' + authStore.token);
           }
 
+          if (!useCache && needsRevalidation(request)) {
+            // ky sends the returned request instead
+            const revalidation = new Request(request, { cache: 'no-cache' });
+            pendingRevalidations.set(revalidation, invalidationCount);
+            return revalidation;
+          }
+
           if (useCache) {
-            const cachedResponse = respondFromCache(request);
+            const cachedResponse = await respondFromCache(request);
             if (cachedResponse) {
               return cachedResponse;
             } else {
@@ -117,6 +1169,7 @@ export function useService(basePath: string) {
       ],
       afterResponse: [
         (request, options, response) => {
+          finishRevalidation(request, response);
           addToCache(request, response);
         },
       ],
@@ -124,7 +1177,14 @@ export function useService(basePath: string) {
   };
 
   const api = ky.extend(options);
+  const schedule = createSchedule(backendUrl.origin);
+  const batch = createBatch(backendUrl, api, schedule, () =>
+    authStore.token ? { Authorization: 'Bearer ' + authStore.token } : {}
+  );
 
+  /**
+   * Only used by older generated services, newer ones directly build their URLSearchParams
+   */
   function filterSearchParams(searchParams: [string, string | number | boolean | null | undefined][]) {
     return searchParams.filter((v) => v[1] !== undefined && v[1] !== null && v[1] !== '') as [
       string,
@@ -134,6 +1194,8 @@ export function useService(basePath: string) {
 
   return {
     api,
+    schedule,
+    batch,
     filterSearchParams,
   };
 }
@@ -1,5 +1,6 @@
 import { acceptHMRUpdate, defineStore } from 'pinia';
 import jwtDecode from 'jwt-decode';
+import { clearEntityStores } from '../services/entity-store';
 
 const AUTH_TOKEN_KEY = 'authToken';
 
@@ -81,6 +82,8 @@ export const useAuthStore = defineStore('auth', () => {
 
   const token = ref<string | null>(null);
   watch(token, (newToken: string | null) => {
+    // Logging out, an expired token or another user, the cached entities might not be visible anymore
+    clearEntityStores();
     if (newToken) {
       if (isNonExpired(newToken)) {
         localStorage.setItem(AUTH_TOKEN_KEY, newToken);
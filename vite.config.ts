@@ -58,5 +58,15 @@ export default defineConfig({
   build: {
     outDir: 'dist',
     target: 'esnext',
+    rollupOptions: {
+      input: {
+        main: fileURLToPath(new URL('./index.html', import.meta.url)),
+        'service-worker': fileURLToPath(new URL('./src/service-worker.ts', import.meta.url)),
+      },
+      output: {
+        // The service worker only controls the pages below its own path, so it has to be at the root
+        entryFileNames: (chunk) => (chunk.name === 'service-worker' ? '[name].js' : 'assets/[name].[hash].js'),
+      },
+    },
   },
 });